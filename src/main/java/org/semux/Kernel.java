@@ -34,10 +34,9 @@ import org.semux.core.SyncManager;
 import org.semux.core.Wallet;
 import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
+import org.semux.db.DatabaseEngine;
 import org.semux.db.DatabaseFactory;
 import org.semux.db.DatabaseName;
-import org.semux.db.LeveldbDatabase;
-import org.semux.db.LeveldbDatabase.LeveldbFactory;
 import org.semux.event.KernelBootingEvent;
 import org.semux.event.PubSub;
 import org.semux.event.PubSubFactory;
@@ -145,7 +144,7 @@ public class Kernel {
         // initialize blockchain database
         // ====================================
         relocateDatabaseIfNeeded();
-        dbFactory = new LeveldbFactory(config.databaseDir());
+        dbFactory = config.databaseEngine().createFactory(config.databaseDir());
         chain = new BlockchainImpl(config, genesis, dbFactory);
         long number = chain.getLatestBlockNumber();
         logger.info("Latest block number = {}", number);
@@ -223,9 +222,10 @@ public class Kernel {
         File blocksDir = new File(databaseDir, "block");
 
         if (blocksDir.exists()) {
-            LeveldbDatabase db = new LeveldbDatabase(blocksDir);
-            byte[] header = db.get(Bytes.merge((byte) 0x00, Bytes.of(0L)));
-            db.close();
+            // databases of the legacy layout are always LevelDB
+            DatabaseFactory dbs = DatabaseEngine.LEVELDB.createFactory(databaseDir);
+            byte[] header = dbs.getDB(DatabaseName.BLOCK).get(Bytes.merge((byte) 0x00, Bytes.of(0L)));
+            dbs.close();
 
             if (header == null || header.length < 33) {
                 logger.info("Unable to decode genesis header. Quit relocating");
@@ -68,8 +68,10 @@ import org.semux.api.v2.server.SemuxApi;
 import org.semux.config.Config;
 import org.semux.core.Amount;
 import org.semux.core.Block;
+import org.semux.core.BlockView;
 import org.semux.core.Blockchain;
 import org.semux.core.BlockchainImpl;
+import org.semux.core.BlockchainSnapshot;
 import org.semux.core.PendingManager;
 import org.semux.core.SyncManager;
 import org.semux.core.Transaction;
@@ -88,6 +90,7 @@ import org.semux.crypto.Key;
 import org.semux.crypto.cache.PublicKeyCache;
 import org.semux.net.NodeManager;
 import org.semux.net.filter.SemuxIpFilter;
+import org.semux.util.Bytes;
 import org.semux.vm.client.SemuxBlock;
 import org.semux.vm.client.SemuxBlockStore;
 import org.slf4j.Logger;
@@ -218,9 +221,14 @@ public final class SemuxApiImpl implements SemuxApi {
         try {
             byte[] addressBytes = parseAddress(address, true);
 
-            Account account = kernel.getBlockchain().getAccountState().getAccount(addressBytes);
-            int transactionCount = kernel.getBlockchain().getTransactionCount(account.getAddress());
-            int internalTransactionCount = kernel.getBlockchain().getInternalTransactionCount(account.getAddress());
+            Account account;
+            int transactionCount;
+            int internalTransactionCount;
+            try (BlockchainSnapshot chain = kernel.getBlockchain().snapshot()) {
+                account = chain.getAccountState().getAccount(addressBytes);
+                transactionCount = chain.getTransactionCount(account.getAddress());
+                internalTransactionCount = chain.getInternalTransactionCount(account.getAddress());
+            }
             int pendingTransactionCount = (int) kernel.getPendingManager()
                     .getPendingTransactions().parallelStream()
                     .map(pendingTransaction -> pendingTransaction.transaction)
@@ -288,21 +296,34 @@ public final class SemuxApiImpl implements SemuxApi {
     }
 
     @Override
-    public Response getAccountTransactions(String address, String from, String to) {
+    public Response getAccountTransactions(String address, String from, String to, String cursor) {
 
         try {
             byte[] addressBytes = parseAddress(address, true);
-            int fromInt = parseInt(from, true, "from");
-            int toInt = parseInt(to, true, "to");
+            int fromInt;
+            int toInt;
+            if (cursor != null) {
+                int[] page = parseCursor(cursor);
+                fromInt = page[0];
+                toInt = page[0] + page[1];
+            } else {
+                fromInt = parseInt(from, true, "from");
+                toInt = parseInt(to, true, "to");
+            }
 
             if (toInt <= fromInt) {
                 return badRequest("Parameter `to` must be greater than `from`");
             }
 
             GetAccountTransactionsResponse resp = new GetAccountTransactionsResponse();
-            resp.setResult(kernel.getBlockchain().getTransactions(addressBytes, fromInt, toInt).parallelStream()
-                    .map(TypeFactory::transactionType)
-                    .collect(Collectors.toList()));
+            try (BlockchainSnapshot chain = kernel.getBlockchain().snapshot()) {
+                resp.setResult(chain.getTransactions(addressBytes, fromInt, toInt).parallelStream()
+                        .map(TypeFactory::transactionType)
+                        .collect(Collectors.toList()));
+                if (toInt < chain.getTransactionCount(addressBytes)) {
+                    resp.setNextCursor(Hex.encode0x(Bytes.merge(Bytes.of(toInt), Bytes.of(toInt - fromInt))));
+                }
+            }
             return success(resp);
         } catch (IllegalArgumentException ex) {
             return badRequest(ex.getMessage());
@@ -362,7 +383,9 @@ public final class SemuxApiImpl implements SemuxApi {
             byte[] addressBytes = parseAddress(address, true);
 
             GetAccountVotesResponse resp = new GetAccountVotesResponse();
-            resp.setResult(TypeFactory.accountVotes(kernel.getBlockchain(), addressBytes));
+            try (BlockchainSnapshot chain = kernel.getBlockchain().snapshot()) {
+                resp.setResult(TypeFactory.accountVotes(chain, addressBytes));
+            }
             return success(resp);
         } catch (IllegalArgumentException e) {
             return badRequest(e.getMessage());
@@ -374,7 +397,7 @@ public final class SemuxApiImpl implements SemuxApi {
         try {
             byte[] hash = parseHash(hashString, true);
 
-            Block block = kernel.getBlockchain().getBlock(hash);
+            BlockView block = kernel.getBlockchain().getBlockView(hash);
             if (block == null) {
                 return badRequest("The requested block was not found");
             }
@@ -393,7 +416,7 @@ public final class SemuxApiImpl implements SemuxApi {
         try {
             long blockNumLong = parseInt(blockNum, true, "number");
 
-            Block block = kernel.getBlockchain().getBlock(blockNumLong);
+            BlockView block = kernel.getBlockchain().getBlockView(blockNumLong);
             if (block == null) {
                 return badRequest("The requested block was not found");
             }
@@ -412,18 +435,19 @@ public final class SemuxApiImpl implements SemuxApi {
         try {
             byte[] addressBytes = parseAddress(address, true);
 
-            Blockchain chain = kernel.getBlockchain();
-            Delegate delegate = chain.getDelegateState().getDelegateByAddress(addressBytes);
-            if (delegate == null) {
-                return badRequest("The provided address is not a delegate");
-            }
+            try (BlockchainSnapshot chain = kernel.getBlockchain().snapshot()) {
+                Delegate delegate = chain.getDelegateState().getDelegateByAddress(addressBytes);
+                if (delegate == null) {
+                    return badRequest("The provided address is not a delegate");
+                }
 
-            BlockchainImpl.ValidatorStats validatorStats = chain.getValidatorStats(addressBytes);
-            boolean isValidator = chain.getValidators().contains(address.replace("0x", ""));
+                BlockchainImpl.ValidatorStats validatorStats = chain.getValidatorStats(addressBytes);
+                boolean isValidator = chain.getValidators().contains(address.replace("0x", ""));
 
-            GetDelegateResponse resp = new GetDelegateResponse();
-            resp.setResult(TypeFactory.delegateType(validatorStats, delegate, isValidator));
-            return success(resp);
+                GetDelegateResponse resp = new GetDelegateResponse();
+                resp.setResult(TypeFactory.delegateType(validatorStats, delegate, isValidator));
+                return success(resp);
+            }
         } catch (IllegalArgumentException e) {
             return badRequest(e.getMessage());
         }
@@ -432,15 +456,16 @@ public final class SemuxApiImpl implements SemuxApi {
     @Override
     public Response getDelegates() {
         GetDelegatesResponse resp = new GetDelegatesResponse();
-        Blockchain chain = kernel.getBlockchain();
-        Set<String> validators = new HashSet<>(chain.getValidators());
-
-        resp.setResult(chain.getDelegateState().getDelegates().parallelStream()
-                .map(delegate -> TypeFactory.delegateType(
-                        chain.getValidatorStats(delegate.getAddress()),
-                        delegate,
-                        validators.contains(delegate.getAddressString())))
-                .collect(Collectors.toList()));
+        try (BlockchainSnapshot chain = kernel.getBlockchain().snapshot()) {
+            Set<String> validators = new HashSet<>(chain.getValidators());
+
+            resp.setResult(chain.getDelegateState().getDelegates().parallelStream()
+                    .map(delegate -> TypeFactory.delegateType(
+                            chain.getValidatorStats(delegate.getAddress()),
+                            delegate,
+                            validators.contains(delegate.getAddressString())))
+                    .collect(Collectors.toList()));
+        }
 
         return success(resp);
     }
@@ -992,6 +1017,29 @@ public final class SemuxApiImpl implements SemuxApi {
         }
     }
 
+    /**
+     * Parses a pagination cursor, which encodes the index of the first entry and
+     * the page size.
+     *
+     * @param cursor
+     * @return the index and the page size
+     */
+    private int[] parseCursor(String cursor) {
+        try {
+            byte[] bytes = Hex.decode0x(cursor);
+            if (bytes.length == 8) {
+                int index = Bytes.toInt(bytes);
+                int size = Bytes.toInt(Arrays.copyOfRange(bytes, 4, 8));
+                if (index >= 0 && size > 0 && index + size > 0) {
+                    return new int[] { index, size };
+                }
+            }
+        } catch (CryptoException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Parameter `cursor` is invalid");
+    }
+
     private Integer parseInt(String num, boolean required, String name) {
         if (num == null) {
             if (required) {
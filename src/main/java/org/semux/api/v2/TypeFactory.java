@@ -10,12 +10,15 @@ import static org.semux.core.TransactionType.CALL;
 import static org.semux.core.TransactionType.CREATE;
 import static org.semux.core.TransactionType.DELEGATE;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.ethereum.vm.LogInfo;
 import org.semux.Kernel;
 import org.semux.api.v2.model.AccountType;
@@ -31,14 +34,18 @@ import org.semux.api.v2.model.TransactionResultType;
 import org.semux.api.v2.model.TransactionType;
 import org.semux.core.Amount;
 import org.semux.core.Block;
-import org.semux.core.Blockchain;
+import org.semux.core.BlockHeader;
+import org.semux.core.BlockView;
 import org.semux.core.BlockchainImpl;
+import org.semux.core.BlockchainSnapshot;
 import org.semux.core.Transaction;
 import org.semux.core.TransactionResult;
 import org.semux.core.state.Account;
 import org.semux.core.state.Delegate;
+import org.semux.core.state.DelegateState;
 import org.semux.crypto.Hex;
 import org.semux.net.Peer;
+import org.semux.util.ByteArray;
 import org.semux.vm.client.SemuxInternalTransaction;
 
 public class TypeFactory {
@@ -56,21 +63,29 @@ public class TypeFactory {
     }
 
     public static BlockType blockType(Block block, Transaction coinbaseTransaction) {
-        List<Transaction> txs = block.getTransactions();
+        return blockType(block.getHeader(), block.getView(), block.getTransactions(), coinbaseTransaction);
+    }
+
+    public static BlockType blockType(BlockView block, Transaction coinbaseTransaction) {
+        return blockType(block.getHeader(), block.getView(), block.getTransactions(), coinbaseTransaction);
+    }
+
+    private static BlockType blockType(BlockHeader header, int view, List<Transaction> txs,
+            Transaction coinbaseTransaction) {
         if (coinbaseTransaction != null) {
             txs.add(0, coinbaseTransaction);
         }
         return new BlockType()
-                .hash(Hex.encode0x(block.getHash()))
-                .number(String.valueOf(block.getNumber()))
-                .view(block.getView())
-                .coinbase(Hex.encode0x(block.getCoinbase()))
-                .parentHash(Hex.encode0x(block.getParentHash()))
-                .timestamp(String.valueOf(block.getTimestamp()))
-                .transactionsRoot(Hex.encode0x(block.getTransactionsRoot()))
-                .resultsRoot(Hex.encode0x(block.getResultsRoot()))
-                .stateRoot(Hex.encode0x(block.getStateRoot()))
-                .data(Hex.encode0x(block.getData()))
+                .hash(Hex.encode0x(header.getHash()))
+                .number(String.valueOf(header.getNumber()))
+                .view(view)
+                .coinbase(Hex.encode0x(header.getCoinbase()))
+                .parentHash(Hex.encode0x(header.getParentHash()))
+                .timestamp(String.valueOf(header.getTimestamp()))
+                .transactionsRoot(Hex.encode0x(header.getTransactionsRoot()))
+                .resultsRoot(Hex.encode0x(header.getResultsRoot()))
+                .stateRoot(Hex.encode0x(header.getStateRoot()))
+                .data(Hex.encode0x(header.getData()))
                 .transactions(txs.stream().map(TypeFactory::transactionType).collect(Collectors.toList()));
     }
 
@@ -87,25 +102,42 @@ public class TypeFactory {
                 .validator(isValidator);
     }
 
-    public static List<AccountVoteType> accountVotes(Blockchain blockchain, byte[] address) {
+    public static List<AccountVoteType> accountVotes(BlockchainSnapshot blockchain, byte[] address) {
         Set<String> validators = new HashSet<>(blockchain.getValidators());
-        return blockchain.getDelegateState()
-                .getDelegates()
-                .parallelStream()
-                .map(delegate -> accountVoteType(blockchain, address, delegate,
-                        validators.contains(delegate.getAddressString())))
-                .filter(accountVote -> !accountVote.getVotes().equals("0"))
+        DelegateState ds = blockchain.getDelegateState();
+
+        List<Pair<Delegate, Amount>> votes = new ArrayList<>();
+        for (Map.Entry<ByteArray, Amount> e : ds.getVotesByVoter(address).entrySet()) {
+            Delegate delegate = ds.getDelegateByAddress(e.getKey().getData());
+            if (delegate != null) {
+                votes.add(Pair.of(delegate, e.getValue()));
+            }
+        }
+        votes.sort((v1, v2) -> {
+            int cmp = v2.getKey().getVotes().compareTo(v1.getKey().getVotes());
+            return (cmp != 0) ? cmp : v1.getKey().getNameString().compareTo(v2.getKey().getNameString());
+        });
+
+        return votes.stream()
+                .map(vote -> accountVoteType(blockchain, vote.getKey(), vote.getValue(),
+                        validators.contains(vote.getKey().getAddressString())))
                 .collect(Collectors.toList());
     }
 
-    public static AccountVoteType accountVoteType(Blockchain blockchain, byte[] address, Delegate delegate,
+    public static AccountVoteType accountVoteType(BlockchainSnapshot blockchain, byte[] address, Delegate delegate,
+            Boolean isValidator) {
+        return accountVoteType(blockchain, delegate,
+                blockchain.getDelegateState().getVote(address, delegate.getAddress()), isValidator);
+    }
+
+    public static AccountVoteType accountVoteType(BlockchainSnapshot blockchain, Delegate delegate, Amount votes,
             Boolean isValidator) {
         return new AccountVoteType()
                 .delegate(
                         TypeFactory
                                 .delegateType(blockchain.getValidatorStats(delegate.getAddress()), delegate,
                                         isValidator))
-                .votes(blockchain.getDelegateState().getVote(address, delegate.getAddress()).toString());
+                .votes(votes.toString());
     }
 
     public static InfoType infoType(Kernel kernel) {
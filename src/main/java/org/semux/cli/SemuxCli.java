@@ -28,7 +28,7 @@ import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
 import org.semux.crypto.bip39.MnemonicGenerator;
 import org.semux.db.DatabaseFactory;
-import org.semux.db.LeveldbDatabase;
+import org.semux.db.RocksdbDatabase.RocksdbFactory;
 import org.semux.exception.LauncherException;
 import org.semux.message.CliMessages;
 import org.semux.net.filter.exception.IpFilterJsonParseException;
@@ -122,6 +122,18 @@ public class SemuxCli extends Launcher {
                 .hasArg(true).optionalArg(true).argName("to").type(String.class)
                 .build();
         addOption(reindexOption);
+
+        Option trustSignaturesOption = Option.builder()
+                .longOpt(SemuxOption.TRUST_SIGNATURES.toString())
+                .desc(CliMessages.get("TrustSignaturesDescription"))
+                .build();
+        addOption(trustSignaturesOption);
+
+        Option migrateDatabaseOption = Option.builder()
+                .longOpt(SemuxOption.MIGRATE_DATABASE.toString())
+                .desc(CliMessages.get("MigrateDatabaseDescription"))
+                .build();
+        addOption(migrateDatabaseOption);
     }
 
     public void start(String[] args) throws ParseException, IOException {
@@ -153,7 +165,11 @@ public class SemuxCli extends Launcher {
             importPrivateKey(cmd.getOptionValue(SemuxOption.IMPORT_PRIVATE_KEY.toString()).trim());
 
         } else if (cmd.hasOption(SemuxOption.REINDEX.toString())) {
-            reindex(cmd.getOptionValue(SemuxOption.REINDEX.toString()));
+            reindex(cmd.getOptionValue(SemuxOption.REINDEX.toString()),
+                    cmd.hasOption(SemuxOption.TRUST_SIGNATURES.toString()));
+
+        } else if (cmd.hasOption(SemuxOption.MIGRATE_DATABASE.toString())) {
+            migrateDatabase();
 
         } else {
             start();
@@ -170,10 +186,17 @@ public class SemuxCli extends Launcher {
         System.out.println(Constants.CLIENT_VERSION);
     }
 
-    protected void reindex(String to) {
+    protected void reindex(String to, boolean trustSignatures) {
+        Config config = getConfig();
+        DatabaseFactory dbFactory = config.databaseEngine().createFactory(config.databaseDir());
+        BlockchainImpl.upgrade(config, dbFactory, to == null ? Long.MAX_VALUE : Long.parseLong(to), trustSignatures);
+    }
+
+    protected void migrateDatabase() throws IOException {
         Config config = getConfig();
-        DatabaseFactory dbFactory = new LeveldbDatabase.LeveldbFactory(config.databaseDir());
-        BlockchainImpl.upgrade(config, dbFactory, to == null ? Long.MAX_VALUE : Long.parseLong(to));
+        RocksdbFactory.migrateFromLeveldb(config.databaseDir());
+        logger.info(CliMessages.get("DatabaseMigrated", config.getFile().getAbsolutePath(),
+                config.databaseDir().getAbsolutePath()));
     }
 
     protected void start() throws IOException {
@@ -33,7 +33,11 @@ public enum SemuxOption {
 
     HD_WALLET("hdwallet"),
 
-    REINDEX("reindex");
+    REINDEX("reindex"),
+
+    TRUST_SIGNATURES("trustsignatures"),
+
+    MIGRATE_DATABASE("migratedb");
 
     private final String name;
 
@@ -37,6 +37,7 @@ import org.semux.core.Amount;
 import org.semux.core.Fork;
 import org.semux.core.TransactionType;
 import org.semux.crypto.Hash;
+import org.semux.db.DatabaseEngine;
 import org.semux.net.Capability;
 import org.semux.net.CapabilityTreeSet;
 import org.semux.net.NodeManager.Node;
@@ -70,6 +71,9 @@ public abstract class AbstractConfig implements Config, ChainSpec {
     protected File dataDir;
     protected Network network;
     protected short networkVersion;
+    protected DatabaseEngine databaseEngine = DatabaseEngine.LEVELDB;
+    protected int databaseAccountCacheSize = 32;
+    protected boolean databaseWarmUpAccountCache = true;
 
     // =========================
     // P2P
@@ -331,6 +335,21 @@ public abstract class AbstractConfig implements Config, ChainSpec {
         return new File(dataDir, Constants.DATABASE_DIR + File.separator + network.name().toLowerCase(Locale.ROOT));
     }
 
+    @Override
+    public DatabaseEngine databaseEngine() {
+        return databaseEngine;
+    }
+
+    @Override
+    public int databaseAccountCacheSize() {
+        return databaseAccountCacheSize;
+    }
+
+    @Override
+    public boolean databaseWarmUpAccountCache() {
+        return databaseWarmUpAccountCache;
+    }
+
     @Override
     public File configDir() {
         return new File(dataDir, Constants.CONFIG_DIR);
@@ -606,6 +625,16 @@ public abstract class AbstractConfig implements Config, ChainSpec {
                 String name = (String) k;
 
                 switch (name) {
+                case "db.engine":
+                    databaseEngine = DatabaseEngine.valueOf(props.getProperty(name).trim().toUpperCase(Locale.ROOT));
+                    break;
+                case "db.accountCacheSize":
+                    databaseAccountCacheSize = Integer.parseInt(props.getProperty(name).trim());
+                    break;
+                case "db.warmUpAccountCache":
+                    databaseWarmUpAccountCache = Boolean.parseBoolean(props.getProperty(name).trim());
+                    break;
+
                 case "p2p.declaredIp":
                     p2pDeclaredIp = props.getProperty(name).trim();
                     break;
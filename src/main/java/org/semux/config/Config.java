@@ -16,6 +16,7 @@ import java.util.Set;
 import org.semux.Network;
 import org.semux.core.Amount;
 import org.semux.core.Fork;
+import org.semux.db.DatabaseEngine;
 import org.semux.net.CapabilityTreeSet;
 import org.semux.net.NodeManager.Node;
 import org.semux.net.msg.MessageCode;
@@ -62,6 +63,28 @@ public interface Config {
      */
     File databaseDir(Network network);
 
+    /**
+     * Returns the database engine.
+     *
+     * @return
+     */
+    DatabaseEngine databaseEngine();
+
+    /**
+     * Returns the maximum size of the account cache, in megabytes.
+     *
+     * @return
+     */
+    int databaseAccountCacheSize();
+
+    /**
+     * Returns whether to load the accounts of the validators and top delegates
+     * into the account cache at startup.
+     *
+     * @return
+     */
+    boolean databaseWarmUpAccountCache();
+
     /**
      * Returns the config directory.
      *
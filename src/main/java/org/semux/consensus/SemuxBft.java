@@ -12,10 +12,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.stream.Collectors;
 
 import org.ethereum.vm.client.BlockStore;
 import org.semux.Kernel;
@@ -34,8 +32,6 @@ import org.semux.core.TransactionExecutor;
 import org.semux.core.TransactionResult;
 import org.semux.core.state.AccountState;
 import org.semux.core.state.DelegateState;
-import org.semux.crypto.Hash;
-import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
 import org.semux.crypto.Key.Signature;
 import org.semux.net.Channel;
@@ -115,7 +111,7 @@ public class SemuxBft implements BftManager {
     protected Proof proof;
     protected Proposal proposal;
 
-    protected Cache<ByteArray, Block> validBlocks = Caffeine.newBuilder().maximumSize(8).build();
+    protected Cache<ByteArray, ValidBlock> validBlocks = Caffeine.newBuilder().maximumSize(8).build();
 
     protected List<String> validators;
     protected List<Channel> activeValidators;
@@ -411,8 +407,12 @@ public class SemuxBft implements BftManager {
                 precommitVotes, commitVotes);
 
         Optional<byte[]> blockHash = precommitVotes.anyApproved();
-        Block block;
-        if (blockHash.isPresent() && (block = validBlocks.getIfPresent(ByteArray.of(blockHash.get()))) != null) {
+        ValidBlock validBlock;
+        if (blockHash.isPresent() && (validBlock = validBlocks.getIfPresent(ByteArray.of(blockHash.get()))) != null) {
+            // the tracked states are committed on import, and can't be reused
+            validBlocks.invalidate(ByteArray.of(blockHash.get()));
+            Block block = validBlock.block;
+
             // [1] update view and votes
             List<Signature> votes = new ArrayList<>();
             for (Vote vote : precommitVotes.getApprovals(blockHash.get())) {
@@ -421,9 +421,13 @@ public class SemuxBft implements BftManager {
             block.setView(view);
             block.setVotes(votes);
 
-            // [2] add the block to chain
+            // [2] add the block to chain, reusing the states of the validation if they
+            // still apply, or validating it again otherwise
             logger.info(block.toString());
-            chain.importBlock(block, false);
+            if (!chain.importValidatedBlock(block, validBlock.asTrack, validBlock.dsTrack)) {
+                logger.warn("Validated states are stale, importing the block again: {}", block.getNumber());
+                chain.importBlock(block, false);
+            }
         } else {
             sync(height + 1);
         }
@@ -503,7 +507,7 @@ public class SemuxBft implements BftManager {
                 && (p.getView() == view && proposal == null && (state == State.NEW_HEIGHT || state == State.PROPOSE)
                         // expecting
                         || p.getView() > view && state != State.COMMIT && state != State.FINALIZE) // larger view
-                && isPrimary(p.getHeight(), p.getView(), Hex.encode(p.getSignature().getAddress()))) {
+                && isPrimary(p.getHeight(), p.getView(), p.getSignature().getAddressString())) {
 
             // check proof-of-unlock
             if (p.getView() != 0) {
@@ -718,7 +722,7 @@ public class SemuxBft implements BftManager {
      * @return
      */
     protected boolean isFromValidator(Signature sig) {
-        return validators.contains(Hex.encode(Hash.h160(sig.getPublicKey())));
+        return validators.contains(sig.getAddressString());
     }
 
     /**
@@ -839,9 +843,9 @@ public class SemuxBft implements BftManager {
                 return false;
             }
 
-            // [2] check transactions
-            List<Transaction> unvalidatedTransactions = getUnvalidatedTransactions(transactions);
-            if (!block.validateTransactions(header, unvalidatedTransactions, transactions, config.network())) {
+            // [2] check transactions, the signatures verified by the pending manager are
+            // not verified again
+            if (!block.validateTransactions(header, transactions, config.network())) {
                 logger.warn("Invalid transactions");
                 return false;
             }
@@ -853,7 +857,7 @@ public class SemuxBft implements BftManager {
             // [3] evaluate transactions
             TransactionExecutor transactionExecutor = new TransactionExecutor(config, blockStore, chain.isVMEnabled(),
                     chain.isVotingPrecompiledUpgraded());
-            List<TransactionResult> results = transactionExecutor.execute(transactions, asTrack, dsTrack,
+            List<TransactionResult> results = transactionExecutor.executeParallel(transactions, asTrack, dsTrack,
                     new SemuxBlock(header, config.spec().maxBlockGasLimit()), 0);
             if (!block.validateResults(header, results)) {
                 logger.error("Invalid transaction results");
@@ -864,7 +868,7 @@ public class SemuxBft implements BftManager {
             long t2 = TimeUtil.currentTimeMillis();
             logger.debug("Block validation: # txs = {}, time = {} ms", transactions.size(), t2 - t1);
 
-            validBlocks.put(ByteArray.of(block.getHash()), block);
+            validBlocks.put(ByteArray.of(block.getHash()), new ValidBlock(block, asTrack, dsTrack));
             return true;
         } catch (Exception e) {
             logger.error("Unexpected exception during block proposal validation", e);
@@ -872,30 +876,26 @@ public class SemuxBft implements BftManager {
         }
     }
 
-    /**
-     * Filter transactions to find ones that have not already been validated via the
-     * pending manager.
-     *
-     * @param transactions
-     * @return
-     */
-    protected List<Transaction> getUnvalidatedTransactions(List<Transaction> transactions) {
-
-        Set<Transaction> pendingValidatedTransactions = pendingMgr.getPendingTransactions()
-                .stream()
-                .map(pendingTx -> pendingTx.transaction)
-                .collect(Collectors.toSet());
-
-        return transactions
-                .stream()
-                .filter(it -> !pendingValidatedTransactions.contains(it))
-                .collect(Collectors.toList());
-    }
-
     public enum State {
         NEW_HEIGHT, PROPOSE, VALIDATE, PRE_COMMIT, COMMIT, FINALIZE
     }
 
+    /**
+     * A validated block proposal, along with the states tracked from the parent
+     * block where the transactions of the block have been executed.
+     */
+    protected static class ValidBlock {
+        protected final Block block;
+        protected final AccountState asTrack;
+        protected final DelegateState dsTrack;
+
+        public ValidBlock(Block block, AccountState asTrack, DelegateState dsTrack) {
+            this.block = block;
+            this.asTrack = asTrack;
+            this.dsTrack = dsTrack;
+        }
+    }
+
     /**
      * Timer used by consensus. It's designed to be single timeout; previous timeout
      * get cleared when new one being added.
@@ -24,7 +24,11 @@ import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
@@ -63,6 +67,10 @@ import org.slf4j.LoggerFactory;
  * The {@link #download()} and the {@link #process()} methods are not
  * synchronized and need to be executed by one single thread at anytime.
  * <p>
+ * Blocks are imported in a pipeline: while {@link #process()} imports block N,
+ * the stateless validation of the following blocks, mostly signature
+ * verification, runs in parallel on a worker pool.
+ * <p>
  * The download/unfinished/pending queues are protected by lock.
  */
 public class SemuxSync implements SyncManager {
@@ -81,6 +89,25 @@ public class SemuxSync implements SyncManager {
     private static final ScheduledExecutorService timer1 = Executors.newSingleThreadScheduledExecutor(factory);
     private static final ScheduledExecutorService timer2 = Executors.newSingleThreadScheduledExecutor(factory);
 
+    private static final int VALIDATION_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    /**
+     * Maximum number of blocks validated ahead of the latest imported block.
+     */
+    private static final int MAX_PREVALIDATED_BLOCKS = VALIDATION_THREADS * 4;
+
+    private static final ExecutorService validationPool = Executors.newFixedThreadPool(VALIDATION_THREADS,
+            new ThreadFactory() {
+                private AtomicInteger cnt = new AtomicInteger(0);
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "sync-validation-" + cnt.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
     private final long DOWNLOAD_TIMEOUT;
 
     private final int MAX_QUEUED_JOBS;
@@ -110,6 +137,9 @@ public class SemuxSync implements SyncManager {
     // Blocks which were validated but haven't been imported
     private TreeMap<Long, Pair<Block, Channel>> toImport = new TreeMap<>();
 
+    // Blocks whose stateless validation has been submitted, ahead of the import
+    private TreeMap<Long, Pair<Block, Future<Boolean>>> prevalidated = new TreeMap<>();
+
     private final Object lock = new Object();
 
     // current and target heights
@@ -123,6 +153,12 @@ public class SemuxSync implements SyncManager {
     // reset at the beginning of a sync task
     private Set<String> badPeers = new HashSet<>();
 
+    // throughput of the pipeline stages, reset at the beginning of a sync task
+    private final StageMetrics downloadMetrics = new StageMetrics();
+    private final StageMetrics validationMetrics = new StageMetrics();
+    private final StageMetrics importMetrics = new StageMetrics();
+    private final AtomicLong importWaitNanos = new AtomicLong();
+
     public SemuxSync(Kernel kernel) {
         this.config = kernel.getConfig();
 
@@ -141,6 +177,10 @@ public class SemuxSync implements SyncManager {
             beginningInstant = Instant.now();
 
             badPeers.clear();
+            downloadMetrics.reset();
+            validationMetrics.reset();
+            importMetrics.reset();
+            importWaitNanos.set(0);
 
             logger.info("Syncing started, best known block = {}", targetHeight - 1);
 
@@ -150,6 +190,7 @@ public class SemuxSync implements SyncManager {
                 toReceive.clear();
                 toValidate.clear();
                 toImport.clear();
+                prevalidated.clear();
 
                 begin.set(chain.getLatestBlockNumber() + 1);
                 current.set(chain.getLatestBlockNumber() + 1);
@@ -180,8 +221,15 @@ public class SemuxSync implements SyncManager {
             download.cancel(true);
             process.cancel(false);
 
+            // [5] drop the pending validations
+            synchronized (lock) {
+                prevalidated.values().forEach(p -> p.getValue().cancel(false));
+                prevalidated.clear();
+            }
+
             Instant end = Instant.now();
             logger.info("Syncing finished, took {}", TimeUtil.formatDuration(Duration.between(beginningInstant, end)));
+            logThroughput(Duration.between(beginningInstant, end));
         }
     }
 
@@ -207,6 +255,7 @@ public class SemuxSync implements SyncManager {
             toReceive.remove(block.getNumber());
             toValidate.add(Pair.of(block, channel));
         }
+        downloadMetrics.record(0);
     }
 
     @Override
@@ -411,6 +460,9 @@ public class SemuxSync implements SyncManager {
         }
 
         synchronized (lock) {
+            // Validate the blocks ahead in parallel, while importing
+            prevalidate(latest);
+
             // Move blocks from validate queue to import queue if within range
             Iterator<Pair<Block, Channel>> iterator = toValidate.iterator();
             while (iterator.hasNext()) {
@@ -434,14 +486,18 @@ public class SemuxSync implements SyncManager {
                 if (valid) {
                     for (long n = latest + 1; n <= checkpoint; n++) {
                         Pair<Block, Channel> p = toImport.remove(n);
-                        boolean imported = chain.importBlock(p.getKey(), false);
+                        boolean imported = importBlock(p.getKey());
                         if (!imported) {
                             handleInvalidBlock(p.getKey(), p.getValue());
                             break;
                         }
+                        prevalidate(n);
 
                         if (n == checkpoint) {
                             logger.info("{}", p.getLeft());
+                            if (logger.isDebugEnabled() && beginningInstant != null) {
+                                logThroughput(Duration.between(beginningInstant, Instant.now()));
+                            }
                         }
                     }
                     current.set(chain.getLatestBlockNumber() + 1);
@@ -450,6 +506,91 @@ public class SemuxSync implements SyncManager {
         }
     }
 
+    /**
+     * Submit the stateless validation of the received blocks following the given
+     * block number, up to {@link #MAX_PREVALIDATED_BLOCKS} blocks ahead.
+     *
+     * @param latest
+     *            the number of the latest imported block
+     */
+    protected void prevalidate(long latest) {
+        synchronized (lock) {
+            prevalidated.headMap(latest, true).clear();
+
+            long max = latest + MAX_PREVALIDATED_BLOCKS;
+            Stream.concat(toImport.values().stream(), toValidate.stream())
+                    .map(Pair::getKey)
+                    .filter(b -> b.getNumber() > latest && b.getNumber() <= max)
+                    .forEach(b -> {
+                        Pair<Block, Future<Boolean>> p = prevalidated.get(b.getNumber());
+                        if (p != null && p.getKey() == b) {
+                            return;
+                        }
+
+                        try {
+                            prevalidated.put(b.getNumber(), Pair.of(b, validationPool.submit(() -> {
+                                long t1 = System.nanoTime();
+                                boolean valid = chain.prevalidateBlock(b);
+                                validationMetrics.record(System.nanoTime() - t1);
+                                return valid;
+                            })));
+                        } catch (RejectedExecutionException e) {
+                            logger.debug("Failed to submit the validation of block #{}", b.getNumber());
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Import a block, reusing its stateless validation if it has been submitted.
+     *
+     * @param block
+     * @return whether the block has been imported
+     */
+    protected boolean importBlock(Block block) {
+        Pair<Block, Future<Boolean>> p;
+        synchronized (lock) {
+            p = prevalidated.remove(block.getNumber());
+        }
+
+        boolean validated = false;
+        if (p != null && p.getKey() == block) {
+            long t1 = System.nanoTime();
+            try {
+                if (!p.getValue().get()) {
+                    return false;
+                }
+                validated = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                logger.warn("Failed to validate block #{}", block.getNumber(), e.getCause());
+            }
+            importWaitNanos.addAndGet(System.nanoTime() - t1);
+        }
+
+        long t2 = System.nanoTime();
+        boolean imported = validated ? chain.importPrevalidatedBlock(block) : chain.importBlock(block, false);
+        importMetrics.record(System.nanoTime() - t2);
+
+        return imported;
+    }
+
+    /**
+     * Log the throughput of each stage of the sync pipeline.
+     *
+     * @param elapsed
+     *            the time since the beginning of the sync
+     */
+    protected void logThroughput(Duration elapsed) {
+        logger.info("Sync throughput: download = {} blocks/s, validation = {} blocks/s ({} blocks/s per thread), "
+                + "import = {} blocks/s ({} blocks/s busy), import waited {} ms for validation",
+                downloadMetrics.getRate(elapsed),
+                validationMetrics.getRate(elapsed), validationMetrics.getBusyRate(),
+                importMetrics.getRate(elapsed), importMetrics.getBusyRate(),
+                TimeUnit.NANOSECONDS.toMillis(importWaitNanos.get()));
+    }
+
     /**
      * Validate block hashes in the toImport set.
      *
@@ -502,6 +643,7 @@ public class SemuxSync implements SyncManager {
             toReceive.remove(block.getNumber());
             toValidate.remove(Pair.of(block, channel));
             toImport.remove(block.getNumber());
+            prevalidated.remove(block.getNumber());
         }
 
         badPeers.add(channel.getRemotePeer().getPeerId());
@@ -521,6 +663,50 @@ public class SemuxSync implements SyncManager {
                 Duration.between(beginningInstant != null ? beginningInstant : Instant.now(), Instant.now()));
     }
 
+    /**
+     * Throughput counters of one stage of the sync pipeline.
+     */
+    protected static class StageMetrics {
+        private final AtomicLong blocks = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+
+        public void record(long nanos) {
+            blocks.incrementAndGet();
+            busyNanos.addAndGet(nanos);
+        }
+
+        public void reset() {
+            blocks.set(0);
+            busyNanos.set(0);
+        }
+
+        public long getBlocks() {
+            return blocks.get();
+        }
+
+        /**
+         * Returns the number of blocks processed per second of the given wall time.
+         *
+         * @param elapsed
+         * @return
+         */
+        public long getRate(Duration elapsed) {
+            long millis = elapsed.toMillis();
+            return millis == 0 ? 0 : blocks.get() * 1000 / millis;
+        }
+
+        /**
+         * Returns the number of blocks processed per second of busy time, i.e. the
+         * throughput of a single worker of this stage.
+         *
+         * @return
+         */
+        public long getBusyRate() {
+            long nanos = busyNanos.get();
+            return nanos == 0 ? 0 : blocks.get() * 1_000_000_000L / nanos;
+        }
+    }
+
     public static class SemuxSyncProgress implements Progress {
 
         final long startingHeight;
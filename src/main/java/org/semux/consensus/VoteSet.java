@@ -15,7 +15,6 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
-import org.semux.crypto.Hex;
 import org.semux.crypto.Key.Signature;
 import org.semux.util.ByteArray;
 
@@ -73,8 +72,8 @@ public class VoteSet {
                 && vote.getBlockHash() != null
                 && vote.validate()
                 && sig != null
-                && validators.contains(Hex.encode(sig.getAddress()))) {
-            String peerId = Hex.encode(sig.getAddress());
+                && validators.contains(sig.getAddressString())) {
+            String peerId = sig.getAddressString();
 
             if (vote.getValue() == Vote.VALUE_APPROVE) {
                 ByteArray key = ByteArray.of(vote.getBlockHash());
@@ -19,8 +19,8 @@ import org.semux.Network;
 import org.semux.config.Config;
 import org.semux.config.Constants;
 import org.semux.crypto.Hex;
-import org.semux.crypto.Key;
 import org.semux.crypto.Key.Signature;
+import org.semux.crypto.cache.SignatureCache;
 import org.semux.util.MerkleUtil;
 import org.semux.util.SimpleDecoder;
 import org.semux.util.SimpleEncoder;
@@ -159,7 +159,8 @@ public class Block {
 
     /**
      * Validates transactions in parallel, only doing those that have not already
-     * been calculated.
+     * been calculated. Signatures which are known to be valid are not verified
+     * again.
      *
      * @param header
      *            block header
@@ -175,20 +176,14 @@ public class Block {
             List<Transaction> allTransactions, Network network) {
 
         // validate transactions
-        if (!Key.isVerifyBatchSupported() || unvalidatedTransactions.size() < 3) {
-            if (!unvalidatedTransactions.parallelStream().allMatch(tx -> tx.validate(network))) {
-                return false;
-            }
-        } else {
-            if (!unvalidatedTransactions.parallelStream().allMatch(tx -> tx.validate(network, false))) {
-                return false;
-            }
+        if (!unvalidatedTransactions.parallelStream().allMatch(tx -> tx.validate(network, false))) {
+            return false;
+        }
 
-            if (!Key.verifyBatch(
-                    unvalidatedTransactions.stream().map(Transaction::getHash).collect(Collectors.toList()),
-                    unvalidatedTransactions.stream().map(Transaction::getSignature).collect(Collectors.toList()))) {
-                return false;
-            }
+        if (!SignatureCache.verifyBatch(
+                unvalidatedTransactions.stream().map(Transaction::getHash).collect(Collectors.toList()),
+                unvalidatedTransactions.stream().map(Transaction::getSignature).collect(Collectors.toList()))) {
+            return false;
         }
 
         // validate transactions root
@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import org.semux.util.ByteArray;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Cache of recently read or imported blocks and block headers. Entries are
+ * bounded by their encoded size in bytes, not by count, since block sizes vary
+ * by orders of magnitude.<br>
+ * <br>
+ * Cached objects are shared between callers and must not be modified.
+ */
+public class BlockCache {
+
+    public static final long DEFAULT_MAX_BLOCK_BYTES = 64L * 1024 * 1024;
+    public static final long DEFAULT_MAX_HEADER_BYTES = 8L * 1024 * 1024;
+
+    private static final int MAX_HASHES = 64 * 1024;
+
+    private final Cache<Long, Sized<Block>> blocks;
+    private final Cache<Long, Sized<BlockHeader>> headers;
+    private final Cache<ByteArray, Long> numbers;
+
+    public BlockCache() {
+        this(DEFAULT_MAX_BLOCK_BYTES, DEFAULT_MAX_HEADER_BYTES);
+    }
+
+    /**
+     * Creates a block cache.
+     *
+     * @param maxBlockBytes
+     *            the maximum encoded size of cached blocks
+     * @param maxHeaderBytes
+     *            the maximum encoded size of cached block headers
+     */
+    public BlockCache(long maxBlockBytes, long maxHeaderBytes) {
+        this.blocks = Caffeine.newBuilder()
+                .maximumWeight(maxBlockBytes)
+                .weigher((Long k, Sized<Block> v) -> v.size)
+                .recordStats()
+                .build();
+        this.headers = Caffeine.newBuilder()
+                .maximumWeight(maxHeaderBytes)
+                .weigher((Long k, Sized<BlockHeader> v) -> v.size)
+                .recordStats()
+                .build();
+        this.numbers = Caffeine.newBuilder()
+                .maximumSize(MAX_HASHES)
+                .build();
+    }
+
+    /**
+     * Returns the cached block of the given number, or null.
+     *
+     * @param number
+     * @return
+     */
+    public Block getBlock(long number) {
+        Sized<Block> v = blocks.getIfPresent(number);
+        return v == null ? null : v.value;
+    }
+
+    /**
+     * Returns the cached header of the given number, or null. Headers of cached
+     * blocks are returned as well.
+     *
+     * @param number
+     * @return
+     */
+    public BlockHeader getHeader(long number) {
+        Sized<BlockHeader> v = headers.getIfPresent(number);
+        if (v != null) {
+            return v.value;
+        }
+
+        Sized<Block> b = blocks.getIfPresent(number);
+        return b == null ? null : b.value.getHeader();
+    }
+
+    /**
+     * Returns the cached number of the block with the given hash, or -1.
+     *
+     * @param hash
+     * @return
+     */
+    public long getNumber(byte[] hash) {
+        Long number = numbers.getIfPresent(ByteArray.of(hash));
+        return number == null ? -1 : number;
+    }
+
+    /**
+     * Adds a block into the cache.
+     *
+     * @param block
+     * @param size
+     *            the encoded size of the block
+     */
+    public void put(Block block, int size) {
+        blocks.put(block.getNumber(), new Sized<>(block, size));
+        numbers.put(ByteArray.of(block.getHash()), block.getNumber());
+    }
+
+    /**
+     * Adds a block header into the cache.
+     *
+     * @param header
+     * @param size
+     *            the encoded size of the header
+     */
+    public void put(BlockHeader header, int size) {
+        headers.put(header.getNumber(), new Sized<>(header, size));
+        numbers.put(ByteArray.of(header.getHash()), header.getNumber());
+    }
+
+    /**
+     * Adds a block hash to number mapping into the cache.
+     *
+     * @param hash
+     * @param number
+     */
+    public void putNumber(byte[] hash, long number) {
+        numbers.put(ByteArray.of(hash), number);
+    }
+
+    /**
+     * Removes all the cached blocks, headers and hashes.
+     */
+    public void invalidateAll() {
+        blocks.invalidateAll();
+        headers.invalidateAll();
+        numbers.invalidateAll();
+    }
+
+    /**
+     * Returns the hit/miss statistics of block lookups.
+     *
+     * @return
+     */
+    public CacheStats getBlockStats() {
+        return blocks.stats();
+    }
+
+    /**
+     * Returns the hit/miss statistics of block header lookups.
+     *
+     * @return
+     */
+    public CacheStats getHeaderStats() {
+        return headers.stats();
+    }
+
+    private static class Sized<T> {
+        final T value;
+        final int size;
+
+        Sized(T value, int size) {
+            this.value = value;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.semux.crypto.Key.Signature;
+import org.semux.util.SimpleDecoder;
+
+/**
+ * A read-only view of a stored block. The header is decoded eagerly, while the
+ * transactions, results and votes are kept encoded and decoded on demand.
+ * <p>
+ * Transactions and results are located through a table of their offsets within
+ * the encoded component, which are the offsets recorded by the transaction
+ * index.
+ */
+public class BlockView {
+
+    private final BlockHeader header;
+
+    private final byte[] transactions;
+    private final byte[] results;
+    private final byte[] votes;
+
+    private volatile int[] transactionOffsets;
+    private volatile int[] resultOffsets;
+
+    /**
+     * Creates a block view.
+     *
+     * @param header
+     *            the block header
+     * @param transactions
+     *            serialized transactions
+     * @param results
+     *            serialized transaction results, or null
+     * @param votes
+     *            serialized votes, or null
+     */
+    public BlockView(BlockHeader header, byte[] transactions, byte[] results, byte[] votes) {
+        if (header == null) {
+            throw new IllegalArgumentException("Block header can't be null");
+        }
+        if (transactions == null) {
+            throw new IllegalArgumentException("Block transactions can't be null");
+        }
+
+        this.header = header;
+        this.transactions = transactions;
+        this.results = results;
+        this.votes = votes;
+    }
+
+    /**
+     * Parses a block view from bytes, decoding only the header.
+     *
+     * @param h
+     *            Serialized header
+     * @param t
+     *            Serialized transactions
+     * @param r
+     *            Serialized transaction results
+     * @param v
+     *            Serialized votes
+     * @return
+     */
+    public static BlockView fromComponents(byte[] h, byte[] t, byte[] r, byte[] v) {
+        if (h == null) {
+            throw new IllegalArgumentException("Block header can't be null");
+        }
+        return new BlockView(BlockHeader.fromBytes(h), t, r, v);
+    }
+
+    public BlockHeader getHeader() {
+        return header;
+    }
+
+    public long getNumber() {
+        return header.getNumber();
+    }
+
+    public byte[] getHash() {
+        return header.getHash();
+    }
+
+    /**
+     * Returns the number of transactions.
+     *
+     * @return
+     */
+    public int getTransactionCount() {
+        return getTransactionOffsets().length;
+    }
+
+    /**
+     * Decodes the i-th transaction.
+     *
+     * @param i
+     * @return
+     */
+    public Transaction getTransaction(int i) {
+        return decodeTransaction(transactions, getTransactionOffsets()[i]);
+    }
+
+    /**
+     * Decodes all the transactions.
+     *
+     * @return
+     */
+    public List<Transaction> getTransactions() {
+        int[] offsets = getTransactionOffsets();
+        List<Transaction> list = new ArrayList<>(offsets.length);
+        for (int offset : offsets) {
+            list.add(decodeTransaction(transactions, offset));
+        }
+        return list;
+    }
+
+    /**
+     * Returns the number of transaction results.
+     *
+     * @return
+     */
+    public int getResultCount() {
+        return getResultOffsets().length;
+    }
+
+    /**
+     * Decodes the i-th transaction result.
+     *
+     * @param i
+     * @return
+     */
+    public TransactionResult getResult(int i) {
+        return decodeResult(results, getResultOffsets()[i]);
+    }
+
+    /**
+     * Decodes all the transaction results.
+     *
+     * @return
+     */
+    public List<TransactionResult> getResults() {
+        int[] offsets = getResultOffsets();
+        List<TransactionResult> list = new ArrayList<>(offsets.length);
+        for (int offset : offsets) {
+            list.add(decodeResult(results, offset));
+        }
+        return list;
+    }
+
+    /**
+     * Returns the BFT view.
+     *
+     * @return
+     */
+    public int getView() {
+        return votes == null ? 0 : new SimpleDecoder(votes).readInt();
+    }
+
+    /**
+     * Decodes the BFT votes.
+     *
+     * @return
+     */
+    public List<Signature> getVotes() {
+        List<Signature> list = new ArrayList<>();
+        if (votes != null) {
+            SimpleDecoder dec = new SimpleDecoder(votes);
+            dec.readInt(); // view
+            int n = dec.readInt();
+            for (int i = 0; i < n; i++) {
+                list.add(Signature.fromBytes(dec.readBytes()));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Decodes the whole block.
+     *
+     * @return
+     */
+    public Block toBlock() {
+        return new Block(header, getTransactions(), getResults(), getView(), getVotes());
+    }
+
+    /**
+     * Returns the offset of the i-th transaction.
+     *
+     * @param i
+     * @return
+     */
+    public int getTransactionOffset(int i) {
+        return getTransactionOffsets()[i];
+    }
+
+    private int[] getTransactionOffsets() {
+        int[] offsets = transactionOffsets;
+        if (offsets == null) {
+            transactionOffsets = offsets = offsets(transactions);
+        }
+        return offsets;
+    }
+
+    private int[] getResultOffsets() {
+        int[] offsets = resultOffsets;
+        if (offsets == null) {
+            resultOffsets = offsets = offsets(results);
+        }
+        return offsets;
+    }
+
+    /**
+     * Scans the offsets of the elements of an encoded component, without decoding
+     * them.
+     *
+     * @param component
+     * @return
+     */
+    protected static int[] offsets(byte[] component) {
+        if (component == null) {
+            return new int[0];
+        }
+
+        SimpleDecoder dec = new SimpleDecoder(component);
+        int[] offsets = new int[dec.readInt()];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = dec.getReadIndex();
+            dec.skipBytes();
+        }
+        return offsets;
+    }
+
+    /**
+     * Decodes the transaction at an offset of the encoded transactions.
+     *
+     * @param transactions
+     * @param offset
+     * @return
+     */
+    public static Transaction decodeTransaction(byte[] transactions, int offset) {
+        return Transaction.fromBytes(new SimpleDecoder(transactions, offset).readBytes());
+    }
+
+    /**
+     * Decodes the transaction result at an offset of the encoded results.
+     *
+     * @param results
+     * @param offset
+     * @return
+     */
+    public static TransactionResult decodeResult(byte[] results, int offset) {
+        return TransactionResult.fromBytes(new SimpleDecoder(results, offset).readBytes());
+    }
+}
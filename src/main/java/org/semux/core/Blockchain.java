@@ -68,6 +68,22 @@ public interface Blockchain {
      */
     Block getBlock(byte[] hash);
 
+    /**
+     * Returns a lazily decoded view of a block by number.
+     *
+     * @param number
+     * @return the block view, or null if not found
+     */
+    BlockView getBlockView(long number);
+
+    /**
+     * Returns a lazily decoded view of a block by its hash.
+     *
+     * @param hash
+     * @return the block view, or null if not found
+     */
+    BlockView getBlockView(byte[] hash);
+
     /**
      * Returns block header by block number.
      * 
@@ -84,6 +100,18 @@ public interface Blockchain {
      */
     BlockHeader getBlockHeader(byte[] hash);
 
+    /**
+     * Returns the encoded parts of a block, as they are stored, in the order of
+     * {@link BlockPart#decode(int)}.
+     *
+     * @param number
+     *            the block number
+     * @param parts
+     *            the requested parts, see {@link BlockPart#encode(BlockPart...)}
+     * @return the encoded parts, or null if the block does not exist
+     */
+    List<byte[]> getBlockParts(long number, int parts);
+
     /**
      * Returns whether the block is existing.
      *
@@ -242,6 +270,14 @@ public interface Blockchain {
      */
     byte[] constructBlockHeaderDataField();
 
+    /**
+     * Returns a read-only view of the blockchain at the latest block written to
+     * the databases, for queries which must not observe a block being imported.
+     *
+     * @return
+     */
+    BlockchainSnapshot snapshot();
+
     /**
      * Returns the state lock.
      *
@@ -260,6 +296,46 @@ public interface Blockchain {
      */
     boolean importBlock(Block block, boolean validateVotes);
 
+    /**
+     * Imports a new block which has already been validated and executed against
+     * the given tracked states. The states are committed as they are, without
+     * executing the block again.
+     *
+     * @param block
+     *            the block to import, with results set
+     * @param asTrack
+     *            the account state tracked from the latest block, with the
+     *            transactions of the block applied
+     * @param dsTrack
+     *            the delegate state tracked from the latest block, with the
+     *            transactions of the block applied
+     * @return true if the block is successfully imported; false if it does not
+     *         extend the latest block
+     */
+    boolean importValidatedBlock(Block block, AccountState asTrack, DelegateState dsTrack);
+
+    /**
+     * Validates the parts of a block which don't depend on the chain state: the
+     * header hash, the checkpoints, the transaction signatures and the
+     * transactions root. This method is thread-safe and may be called for
+     * several blocks in parallel, ahead of their import.
+     *
+     * @param block
+     *            the block to validate
+     * @return true if the block is valid; otherwise, false
+     */
+    boolean prevalidateBlock(Block block);
+
+    /**
+     * Imports a new block which has passed {@link #prevalidateBlock(Block)}. The
+     * block votes are not validated.
+     *
+     * @param block
+     *            the block to import
+     * @return true if the block is successfully imported; otherwise, false
+     */
+    boolean importPrevalidatedBlock(Block block);
+
     /**
      * Validate the block votes only.
      *
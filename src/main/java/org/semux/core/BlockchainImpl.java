@@ -10,7 +10,16 @@ import static org.semux.core.Fork.UNIFORM_DISTRIBUTION;
 import static org.semux.core.Fork.VIRTUAL_MACHINE;
 import static org.semux.core.Fork.VOTING_PRECOMPILED_UPGRADE;
 
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -23,6 +32,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -37,25 +47,27 @@ import org.semux.config.Constants;
 import org.semux.consensus.Vote;
 import org.semux.consensus.VoteType;
 import org.semux.core.Genesis.Premine;
-import org.semux.core.event.BlockchainDatabaseUpgradingEvent;
 import org.semux.core.exception.BlockchainException;
+import org.semux.core.state.AccountCache;
 import org.semux.core.state.AccountState;
 import org.semux.core.state.AccountStateImpl;
 import org.semux.core.state.Delegate;
+import org.semux.core.state.DelegateRanking;
 import org.semux.core.state.DelegateState;
 import org.semux.core.state.DelegateStateImpl;
 import org.semux.crypto.Hex;
-import org.semux.crypto.Key;
+import org.semux.crypto.cache.SignatureCache;
 import org.semux.db.Database;
 import org.semux.db.DatabaseFactory;
 import org.semux.db.DatabaseName;
-import org.semux.db.LeveldbDatabase;
-import org.semux.event.PubSubFactory;
+import org.semux.util.BloomFilter;
 import org.semux.util.ByteArray;
 import org.semux.util.Bytes;
+import org.semux.util.ClosableIterator;
 import org.semux.util.SimpleDecoder;
 import org.semux.util.SimpleEncoder;
 import org.semux.util.TimeUtil;
+import org.semux.util.exception.UnreachableException;
 import org.semux.vm.client.SemuxBlock;
 import org.semux.vm.client.SemuxBlockStore;
 import org.semux.vm.client.SemuxInternalTransaction;
@@ -76,7 +88,9 @@ import org.slf4j.LoggerFactory;
  * [4, transaction_hash] => [block_number, from, to] | [coinbase_transaction]
  * [5, address, n] => [transaction_hash]
  * [7] => [activated forks]
+ * [9] => [voter index built]
  *
+ * [0xfe, ...] => [redo log of the batch commits], see DatabaseFactory
  * [0xff] => [database version]
  * </pre>
  *
@@ -106,6 +120,7 @@ public class BlockchainImpl implements Blockchain {
     protected static final byte TYPE_ACTIVATED_FORKS = 0x06;
     protected static final byte TYPE_INTERNAL_TRANSACTION_COUNT_BY_ADDRESS = 0x07;
     protected static final byte TYPE_INTERNAL_TRANSACTION_BY_ADDRESS_AND_INDEX = 0x08;
+    protected static final byte TYPE_VOTER_INDEX = 0x09;
     protected static final byte TYPE_DATABASE_VERSION = (byte) 0xff;
 
     protected static final byte TYPE_BLOCK_HEADER_BY_NUMBER = 0x00;
@@ -113,7 +128,35 @@ public class BlockchainImpl implements Blockchain {
     protected static final byte TYPE_BLOCK_RESULTS_BY_NUMBER = 0x02;
     protected static final byte TYPE_BLOCK_VOTES_BY_NUMBER = 0x03;
 
+    /**
+     * Name of the transaction filter file, under the database directory.
+     */
+    protected static final String TRANSACTION_FILTER_FILE = "transaction.filter";
+
+    /**
+     * Number of blocks between two saves of the transaction filter.
+     */
+    protected static final long TRANSACTION_FILTER_SAVE_INTERVAL = 1000L;
+
+    /**
+     * Number of top delegates whose accounts are loaded into the account cache at
+     * startup.
+     */
+    protected static final int WARM_UP_DELEGATES = 256;
+
+    /**
+     * The minimum capacity of the transaction filter.
+     */
+    protected static final long TRANSACTION_FILTER_MIN_CAPACITY = 1L << 20;
+
+    /**
+     * The expected number of transactions per block, coinbase included, used to
+     * size the transaction filter from the chain length.
+     */
+    protected static final long TRANSACTION_FILTER_KEYS_PER_BLOCK = 4L;
+
     private final BlockStore blockStore = new SemuxBlockStore(this);
+    private final BlockCache blockCache = new BlockCache();
     private final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
 
     protected enum StatsType {
@@ -124,16 +167,56 @@ public class BlockchainImpl implements Blockchain {
     private final Config config;
     private final Genesis genesis;
 
+    private DatabaseFactory dbFactory;
     private Database indexDB;
     private Database blockDB;
 
-    private AccountState accountState;
-    private DelegateState delegateState;
+    private AccountStateImpl accountState;
+    private DelegateStateImpl delegateState;
 
     private Block latestBlock;
 
+    /**
+     * Filter of all the transaction hashes in the index, which answers most
+     * negative {@link #hasTransaction(byte[])} lookups without reading the disk.
+     */
+    private BloomFilter transactionFilter;
+
     private ActivatedForks forks;
 
+    /**
+     * Number of blocks committed per database batch, and the number of blocks in
+     * the open batch; guarded by the state lock.
+     */
+    private int blocksPerBatch = 1;
+    private int batchedBlocks = 0;
+
+    /**
+     * Whether a database batch is open, and whether the transaction filter is due
+     * to be saved once the blocks added to it are committed; guarded by the state
+     * lock.
+     */
+    private boolean batchOpen = false;
+    private boolean transactionFilterDue = false;
+
+    /**
+     * The blocks added to the open batch, whose listeners are notified once the
+     * batch is committed; guarded by the state lock.
+     */
+    private final List<Block> uncommittedBlocks = new ArrayList<>();
+
+    /**
+     * Held for writing while the database batches are being committed, and for
+     * reading while a snapshot is taken, so that snapshots wait for the commit.
+     */
+    private final ReentrantReadWriteLock commitLock = new ReentrantReadWriteLock();
+
+    /**
+     * The latest block and delegate ranking as of the last batch commit, shared
+     * by the snapshots pinned at that block; guarded by the commit lock.
+     */
+    private CommitPoint commitPoint;
+
     public BlockchainImpl(Config config, DatabaseFactory dbFactory) {
         this(config, Genesis.load(config.network()), dbFactory);
     }
@@ -145,15 +228,23 @@ public class BlockchainImpl implements Blockchain {
     }
 
     private synchronized void openDb(Config config, DatabaseFactory dbFactory) {
+        // catch up with the last commit, in case it was interrupted
+        long replayed = dbFactory.recoverBatch();
+        if (replayed > 0) {
+            logger.info("Replayed the last database commits: # commits = {}", replayed);
+        }
+
         // upgrade if possible
         upgradeDatabase(config, dbFactory);
 
+        this.dbFactory = dbFactory;
         this.indexDB = dbFactory.getDB(DatabaseName.INDEX);
         this.blockDB = dbFactory.getDB(DatabaseName.BLOCK);
 
-        this.accountState = new AccountStateImpl(dbFactory.getDB(DatabaseName.ACCOUNT));
+        this.accountState = new AccountStateImpl(dbFactory.getDB(DatabaseName.ACCOUNT),
+                new AccountCache(config.databaseAccountCacheSize() * 1024L * 1024L));
         this.delegateState = new DelegateStateImpl(this, dbFactory.getDB(DatabaseName.DELEGATE),
-                dbFactory.getDB(DatabaseName.VOTE));
+                dbFactory.getDB(DatabaseName.VOTE), dbFactory.getDB(DatabaseName.VOTER));
 
         // checks if the database needs to be initialized
         byte[] number = indexDB.get(Bytes.of(TYPE_LATEST_BLOCK_NUMBER));
@@ -163,16 +254,56 @@ public class BlockchainImpl implements Blockchain {
 
         if (number == null || number.length == 0) {
             // initialize the database for the first time
+            transactionFilter = new BloomFilter(TRANSACTION_FILTER_MIN_CAPACITY);
             initializeDb();
         } else {
             // load the latest block
             latestBlock = getBlock(Bytes.toLong(number));
+
+            // load the transaction filter
+            loadTransactionFilter();
+
+            // build the voter index of databases which predate it
+            if (indexDB.get(Bytes.of(TYPE_VOTER_INDEX)) == null) {
+                logger.info("Building the voter index...");
+                long indexed = delegateState.backfillVoterIndex();
+                indexDB.put(Bytes.of(TYPE_VOTER_INDEX), Bytes.of((byte) 1));
+                logger.info("Voter index built: {} votes", indexed);
+            }
+        }
+
+        if (config.databaseWarmUpAccountCache()) {
+            warmUpAccountCache();
         }
     }
 
+    /**
+     * Loads the accounts of the validators and the top delegates into the account
+     * cache, as they are read on every block.
+     */
+    public void warmUpAccountCache() {
+        long t1 = System.nanoTime();
+
+        Set<ByteArray> addresses = new HashSet<>();
+        for (String v : getValidators()) {
+            addresses.add(ByteArray.of(Hex.decode0x(v)));
+        }
+        for (Delegate d : delegateState.getDelegates(WARM_UP_DELEGATES)) {
+            addresses.add(ByteArray.of(d.getAddress()));
+        }
+        for (ByteArray address : addresses) {
+            accountState.getAccount(address.getData());
+        }
+
+        long t2 = System.nanoTime();
+        logger.debug("Account cache warmed up: accounts = {}, duration = {} ms", addresses.size(),
+                (t2 - t1) / 1_000_000);
+    }
+
     private void initializeDb() {
         // initialize database version
         indexDB.put(Bytes.of(TYPE_DATABASE_VERSION), Bytes.of(DATABASE_VERSION));
+        indexDB.put(Bytes.of(TYPE_VOTER_INDEX), Bytes.of((byte) 1));
 
         // pre-allocation
         for (Premine p : genesis.getPremines().values()) {
@@ -190,6 +321,22 @@ public class BlockchainImpl implements Blockchain {
         addBlock(genesis);
     }
 
+    /**
+     * Takes a snapshot of the blockchain. The databases are snapshotted between
+     * two batch commits, without waiting for the state lock, so that the snapshot
+     * is pinned at the latest block written to disk.
+     */
+    @Override
+    public BlockchainSnapshot snapshot() {
+        ReentrantReadWriteLock.ReadLock readLock = commitLock.readLock();
+        readLock.lock();
+        try {
+            return new Snapshot(dbFactory.snapshot(), commitPoint);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     @Override
     public AccountState getAccountState() {
         return accountState;
@@ -217,13 +364,47 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public long getBlockNumber(byte[] hash) {
+        return readBlockNumber(indexDB, hash);
+    }
+
+    private long readBlockNumber(Database indexDB, byte[] hash) {
+        long cached = blockCache.getNumber(hash);
+        if (cached != -1) {
+            return cached;
+        }
+
         byte[] number = indexDB.get(Bytes.merge(TYPE_BLOCK_NUMBER_BY_HASH, hash));
-        return (number == null) ? -1 : Bytes.toLong(number);
+        if (number == null) {
+            return -1;
+        }
+
+        blockCache.putNumber(hash, Bytes.toLong(number));
+        return Bytes.toLong(number);
     }
 
     @Override
     public Block getBlock(long number) {
-        return getBlock(blockDB, number, false);
+        return readBlock(blockDB, number);
+    }
+
+    private Block readBlock(Database blockDB, long number) {
+        Block cached = blockCache.getBlock(number);
+        if (cached != null) {
+            return cached;
+        }
+
+        byte[] header = blockDB.get(Bytes.merge(TYPE_BLOCK_HEADER_BY_NUMBER, Bytes.of(number)));
+        if (header == null) {
+            return null;
+        }
+        byte[] transactions = blockDB.get(Bytes.merge(TYPE_BLOCK_TRANSACTIONS_BY_NUMBER, Bytes.of(number)));
+        byte[] results = blockDB.get(Bytes.merge(TYPE_BLOCK_RESULTS_BY_NUMBER, Bytes.of(number)));
+        byte[] votes = blockDB.get(Bytes.merge(TYPE_BLOCK_VOTES_BY_NUMBER, Bytes.of(number)));
+
+        Block block = Block.fromComponents(header, transactions, results, votes);
+        blockCache.put(block, header.length + transactions.length
+                + (results == null ? 0 : results.length) + (votes == null ? 0 : votes.length));
+        return block;
     }
 
     @Override
@@ -233,9 +414,96 @@ public class BlockchainImpl implements Blockchain {
     }
 
     @Override
-    public BlockHeader getBlockHeader(long number) {
+    public BlockView getBlockView(long number) {
         byte[] header = blockDB.get(Bytes.merge(TYPE_BLOCK_HEADER_BY_NUMBER, Bytes.of(number)));
-        return (header == null) ? null : BlockHeader.fromBytes(header);
+        if (header == null) {
+            return null;
+        }
+        byte[] transactions = blockDB.get(Bytes.merge(TYPE_BLOCK_TRANSACTIONS_BY_NUMBER, Bytes.of(number)));
+        byte[] results = blockDB.get(Bytes.merge(TYPE_BLOCK_RESULTS_BY_NUMBER, Bytes.of(number)));
+        byte[] votes = blockDB.get(Bytes.merge(TYPE_BLOCK_VOTES_BY_NUMBER, Bytes.of(number)));
+
+        return new BlockView(getBlockHeader(number, header), transactions, results, votes);
+    }
+
+    @Override
+    public BlockView getBlockView(byte[] hash) {
+        long number = getBlockNumber(hash);
+        return (number == -1) ? null : getBlockView(number);
+    }
+
+    @Override
+    public BlockHeader getBlockHeader(long number) {
+        return readBlockHeader(blockDB, number);
+    }
+
+    private BlockHeader readBlockHeader(Database blockDB, long number) {
+        BlockHeader cached = blockCache.getHeader(number);
+        if (cached != null) {
+            return cached;
+        }
+
+        byte[] bytes = blockDB.get(Bytes.merge(TYPE_BLOCK_HEADER_BY_NUMBER, Bytes.of(number)));
+        return (bytes == null) ? null : getBlockHeader(number, bytes);
+    }
+
+    /**
+     * Decodes a block header, unless it's cached.
+     */
+    private BlockHeader getBlockHeader(long number, byte[] bytes) {
+        BlockHeader header = blockCache.getHeader(number);
+        if (header == null) {
+            header = BlockHeader.fromBytes(bytes);
+            blockCache.put(header, bytes.length);
+        }
+        return header;
+    }
+
+    @Override
+    public List<byte[]> getBlockParts(long number, int parts) {
+        List<byte[]> result = new ArrayList<>();
+        for (BlockPart part : BlockPart.decode(parts)) {
+            byte[] bytes = blockDB.get(Bytes.merge(getBlockPartType(part), Bytes.of(number)));
+            if (bytes == null) {
+                return null;
+            }
+            result.add(bytes);
+        }
+
+        return result;
+    }
+
+    private static byte getBlockPartType(BlockPart part) {
+        switch (part) {
+        case HEADER:
+            return TYPE_BLOCK_HEADER_BY_NUMBER;
+        case TRANSACTIONS:
+            return TYPE_BLOCK_TRANSACTIONS_BY_NUMBER;
+        case RESULTS:
+            return TYPE_BLOCK_RESULTS_BY_NUMBER;
+        case VOTES:
+            return TYPE_BLOCK_VOTES_BY_NUMBER;
+        default:
+            throw new UnreachableException();
+        }
+    }
+
+    /**
+     * Returns the cache of decoded blocks and headers.
+     *
+     * @return
+     */
+    public BlockCache getBlockCache() {
+        return blockCache;
+    }
+
+    /**
+     * Returns the cache of the account database.
+     *
+     * @return
+     */
+    public AccountCache getAccountCache() {
+        return accountState.getCache();
     }
 
     @Override
@@ -279,6 +547,10 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public Transaction getTransaction(byte[] hash) {
+        return readTransaction(indexDB, blockDB, hash);
+    }
+
+    private static Transaction readTransaction(Database indexDB, Database blockDB, byte[] hash) {
         byte[] bytes = indexDB.get(Bytes.merge(TYPE_TRANSACTION_INDEX_BY_HASH, hash));
         if (bytes != null) {
             // coinbase transaction
@@ -289,8 +561,7 @@ public class BlockchainImpl implements Blockchain {
             TransactionIndex index = TransactionIndex.fromBytes(bytes);
             byte[] transactions = blockDB
                     .get(Bytes.merge(TYPE_BLOCK_TRANSACTIONS_BY_NUMBER, Bytes.of(index.blockNumber)));
-            SimpleDecoder dec = new SimpleDecoder(transactions, index.transactionOffset);
-            return Transaction.fromBytes(dec.readBytes());
+            return BlockView.decodeTransaction(transactions, index.transactionOffset);
         }
 
         return null;
@@ -305,7 +576,8 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public boolean hasTransaction(final byte[] hash) {
-        return indexDB.get(Bytes.merge(TYPE_TRANSACTION_INDEX_BY_HASH, hash)) != null;
+        return transactionFilter.mightContain(hash)
+                && indexDB.get(Bytes.merge(TYPE_TRANSACTION_INDEX_BY_HASH, hash)) != null;
     }
 
     @Override
@@ -319,8 +591,7 @@ public class BlockchainImpl implements Blockchain {
 
             TransactionIndex index = TransactionIndex.fromBytes(bytes);
             byte[] results = blockDB.get(Bytes.merge(TYPE_BLOCK_RESULTS_BY_NUMBER, Bytes.of(index.blockNumber)));
-            SimpleDecoder dec = new SimpleDecoder(results, index.resultOffset);
-            return TransactionResult.fromBytes(dec.readBytes());
+            return BlockView.decodeResult(results, index.resultOffset);
         }
 
         return null;
@@ -353,18 +624,22 @@ public class BlockchainImpl implements Blockchain {
         }
 
         // [1] update block
-        blockDB.put(Bytes.merge(TYPE_BLOCK_HEADER_BY_NUMBER, Bytes.of(number)), block.getEncodedHeader());
-        blockDB.put(Bytes.merge(TYPE_BLOCK_TRANSACTIONS_BY_NUMBER, Bytes.of(number)), block.getEncodedTransactions());
-        blockDB.put(Bytes.merge(TYPE_BLOCK_RESULTS_BY_NUMBER, Bytes.of(number)), block.getEncodedResults());
-        blockDB.put(Bytes.merge(TYPE_BLOCK_VOTES_BY_NUMBER, Bytes.of(number)), block.getEncodedVotes());
+        byte[] encodedHeader = block.getEncodedHeader();
+        Pair<byte[], List<Integer>> transactionIndices = block.getEncodedTransactionsAndIndices();
+        Pair<byte[], List<Integer>> resultIndices = block.getEncodedResultsAndIndices();
+        byte[] encodedVotes = block.getEncodedVotes();
+        blockDB.put(Bytes.merge(TYPE_BLOCK_HEADER_BY_NUMBER, Bytes.of(number)), encodedHeader);
+        blockDB.put(Bytes.merge(TYPE_BLOCK_TRANSACTIONS_BY_NUMBER, Bytes.of(number)), transactionIndices.getLeft());
+        blockDB.put(Bytes.merge(TYPE_BLOCK_RESULTS_BY_NUMBER, Bytes.of(number)), resultIndices.getLeft());
+        blockDB.put(Bytes.merge(TYPE_BLOCK_VOTES_BY_NUMBER, Bytes.of(number)), encodedVotes);
 
         indexDB.put(Bytes.merge(TYPE_BLOCK_NUMBER_BY_HASH, hash), Bytes.of(number));
 
         // [2] update transaction indices
         List<Transaction> txs = block.getTransactions();
-        Pair<byte[], List<Integer>> transactionIndices = block.getEncodedTransactionsAndIndices();
-        Pair<byte[], List<Integer>> resultIndices = block.getEncodedResultsAndIndices();
         Amount reward = Block.getBlockReward(block, config);
+        IndexCounters txCounts = new IndexCounters(TYPE_TRANSACTION_COUNT_BY_ADDRESS);
+        IndexCounters internalTxCounts = new IndexCounters(TYPE_INTERNAL_TRANSACTION_COUNT_BY_ADDRESS);
 
         for (int i = 0; i < txs.size(); i++) {
             Transaction tx = txs.get(i);
@@ -373,18 +648,19 @@ public class BlockchainImpl implements Blockchain {
             TransactionIndex index = new TransactionIndex(number, transactionIndices.getRight().get(i),
                     resultIndices.getRight().get(i));
             indexDB.put(Bytes.merge(TYPE_TRANSACTION_INDEX_BY_HASH, tx.getHash()), index.toBytes());
+            transactionFilter.add(tx.getHash());
 
             // [3] update transaction_by_account index
-            addTransactionToAccount(tx, tx.getFrom());
+            addTransactionToAccount(txCounts, tx, tx.getFrom());
             if (!Arrays.equals(tx.getFrom(), tx.getTo())) {
-                addTransactionToAccount(tx, tx.getTo());
+                addTransactionToAccount(txCounts, tx, tx.getTo());
             }
 
             // index internal transactions
             for (SemuxInternalTransaction internalTx : result.getInternalTransactions()) {
-                addInternalTransactionToAccount(tx, internalTx, internalTx.getFrom());
+                addInternalTransactionToAccount(internalTxCounts, internalTx, internalTx.getFrom());
                 if (!Arrays.equals(internalTx.getFrom(), internalTx.getTo())) {
-                    addInternalTransactionToAccount(tx, internalTx, internalTx.getTo());
+                    addInternalTransactionToAccount(internalTxCounts, internalTx, internalTx.getTo());
                 }
             }
         }
@@ -401,37 +677,62 @@ public class BlockchainImpl implements Blockchain {
                     Bytes.EMPTY_BYTES);
             tx.sign(Constants.COINBASE_KEY);
             indexDB.put(Bytes.merge(TYPE_TRANSACTION_INDEX_BY_HASH, tx.getHash()), tx.toBytes());
+            transactionFilter.add(tx.getHash());
             indexDB.put(Bytes.merge(TYPE_BLOCK_COINBASE_BY_NUMBER, Bytes.of(block.getNumber())), tx.getHash());
-            addTransactionToAccount(tx, block.getCoinbase());
+            addTransactionToAccount(txCounts, tx, block.getCoinbase());
 
             // [5] update validator statistics
             List<String> validators = getValidators();
             String primary = config.spec().getPrimaryValidator(validators, number, 0,
                     this.isForkActivated(UNIFORM_DISTRIBUTION));
-            adjustValidatorStats(block.getCoinbase(), StatsType.FORGED, 1);
             if (primary.equals(Hex.encode(block.getCoinbase()))) {
-                adjustValidatorStats(Hex.decode0x(primary), StatsType.HIT, 1);
+                adjustValidatorStats(block.getCoinbase(), 1, 1, 0);
             } else {
-                adjustValidatorStats(Hex.decode0x(primary), StatsType.MISSED, 1);
+                adjustValidatorStats(block.getCoinbase(), 1, 0, 0);
+                adjustValidatorStats(Hex.decode0x(primary), 0, 0, 1);
             }
         }
 
+        // the final count of each address is written once per block
+        txCounts.write();
+        internalTxCounts.write();
+
         // [6] update validator set
         if (number % config.spec().getValidatorUpdateInterval() == 0) {
             updateValidators(block.getNumber());
         }
 
         // [7] update latest_block
+        blockCache.put(block, encodedHeader.length + transactionIndices.getLeft().length
+                + resultIndices.getLeft().length + encodedVotes.length);
         latestBlock = block;
         indexDB.put(Bytes.of(TYPE_LATEST_BLOCK_NUMBER), Bytes.of(number));
 
-        for (BlockchainListener listener : listeners) {
-            listener.onBlockAdded(block);
+        // the filter is saved once the block is committed
+        if (number % TRANSACTION_FILTER_SAVE_INTERVAL == 0) {
+            transactionFilterDue = true;
+        }
+        if (transactionFilterDue && !batchOpen) {
+            saveTransactionFilter();
+            transactionFilterDue = false;
+        }
+
+        // the listeners see the block in snapshots only once it's committed
+        if (batchOpen) {
+            uncommittedBlocks.add(block);
+        } else {
+            notifyBlockAdded(block);
         }
 
         activateForks();
     }
 
+    private void notifyBlockAdded(Block block) {
+        for (BlockchainListener listener : listeners) {
+            listener.onBlockAdded(block);
+        }
+    }
+
     @Override
     public Genesis getGenesis() {
         return genesis;
@@ -444,26 +745,111 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public int getTransactionCount(byte[] address) {
-        byte[] cnt = indexDB.get(Bytes.merge(TYPE_TRANSACTION_COUNT_BY_ADDRESS, address));
+        return readCount(indexDB, TYPE_TRANSACTION_COUNT_BY_ADDRESS, address);
+    }
+
+    private static int readCount(Database indexDB, byte type, byte[] address) {
+        byte[] cnt = indexDB.get(Bytes.merge(type, address));
         return (cnt == null) ? 0 : Bytes.toInt(cnt);
     }
 
     @Override
     public List<Transaction> getTransactions(byte[] address, int from, int to) {
-        List<Transaction> list = new ArrayList<>();
+        return readTransactions(indexDB, blockDB, address, from, to);
+    }
 
-        int total = getTransactionCount(address);
-        for (int i = from; i < total && i < to; i++) {
-            byte[] key = getNthTransactionIndexKey(address, i);
-            byte[] value = indexDB.get(key);
-            list.add(getTransaction(value));
+    private List<Transaction> readTransactions(Database indexDB, Database blockDB, byte[] address, int from,
+            int to) {
+        List<byte[]> hashes = new ArrayList<>();
+
+        // the index keys of an address are ordered by the big-endian index, so the
+        // range is read with a single seek instead of one lookup per entry
+        byte[] prefix = Bytes.merge(TYPE_TRANSACTION_HASH_BY_ADDRESS_AND_INDEX, address);
+        int start = Math.max(from, 0);
+        if (start < to) {
+            ClosableIterator<Entry<byte[], byte[]>> itr = indexDB.iterator(getNthTransactionIndexKey(address, start));
+            try {
+                while (hashes.size() < to - start && itr.hasNext()) {
+                    Entry<byte[], byte[]> entry = itr.next();
+                    byte[] key = entry.getKey();
+                    if (!hasPrefix(key, prefix)) {
+                        break;
+                    }
+                    if (key.length == prefix.length + 4) {
+                        hashes.add(entry.getValue());
+                    }
+                }
+            } finally {
+                itr.close();
+            }
         }
 
-        return list;
+        return readTransactions(indexDB, blockDB, hashes);
+    }
+
+    /**
+     * Returns transactions by their hashes, reading the transactions of each block
+     * only once.
+     *
+     * @param hashes
+     *            transaction hashes
+     * @return the transactions, in the same order as the hashes
+     */
+    protected List<Transaction> getTransactions(List<byte[]> hashes) {
+        return readTransactions(indexDB, blockDB, hashes);
+    }
+
+    private static List<Transaction> readTransactions(Database indexDB, Database blockDB, List<byte[]> hashes) {
+        Transaction[] txs = new Transaction[hashes.size()];
+
+        // block number => positions of the transactions in the block
+        Map<Long, List<Pair<Integer, Integer>>> blocks = new HashMap<>();
+        for (int i = 0; i < txs.length; i++) {
+            byte[] bytes = indexDB.get(Bytes.merge(TYPE_TRANSACTION_INDEX_BY_HASH, hashes.get(i)));
+            if (bytes == null) {
+                continue;
+            }
+
+            // coinbase transaction
+            if (bytes.length > 64) {
+                txs[i] = Transaction.fromBytes(bytes);
+                continue;
+            }
+
+            TransactionIndex index = TransactionIndex.fromBytes(bytes);
+            blocks.computeIfAbsent(index.blockNumber, k -> new ArrayList<>())
+                    .add(Pair.of(i, index.transactionOffset));
+        }
+
+        for (Entry<Long, List<Pair<Integer, Integer>>> block : blocks.entrySet()) {
+            byte[] transactions = blockDB
+                    .get(Bytes.merge(TYPE_BLOCK_TRANSACTIONS_BY_NUMBER, Bytes.of(block.getKey())));
+            for (Pair<Integer, Integer> p : block.getValue()) {
+                txs[p.getLeft()] = BlockView.decodeTransaction(transactions, p.getRight());
+            }
+        }
+
+        return new ArrayList<>(Arrays.asList(txs));
+    }
+
+    private static boolean hasPrefix(byte[] key, byte[] prefix) {
+        if (key.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (key[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public List<String> getValidators() {
+        return readValidators(indexDB);
+    }
+
+    private static List<String> readValidators(Database indexDB) {
         List<String> validators = new ArrayList<>();
 
         byte[] v = indexDB.get(Bytes.of(TYPE_VALIDATORS));
@@ -480,6 +866,10 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public ValidatorStats getValidatorStats(byte[] address) {
+        return readValidatorStats(indexDB, address);
+    }
+
+    private static ValidatorStats readValidatorStats(Database indexDB, byte[] address) {
         byte[] key = Bytes.merge(TYPE_VALIDATOR_STATS_BY_ADDRESS, address);
         byte[] value = indexDB.get(key);
 
@@ -494,10 +884,8 @@ public class BlockchainImpl implements Blockchain {
     public void updateValidators(long number) {
         List<String> validators = new ArrayList<>();
 
-        List<Delegate> delegates = delegateState.getDelegates();
-        int max = Math.min(delegates.size(), config.spec().getNumberOfValidators(number));
-        for (int i = 0; i < max; i++) {
-            Delegate d = delegates.get(i);
+        List<Delegate> delegates = delegateState.getDelegates(config.spec().getNumberOfValidators(number));
+        for (Delegate d : delegates) {
             validators.add(Hex.encode(d.getAddress()));
         }
 
@@ -520,48 +908,55 @@ public class BlockchainImpl implements Blockchain {
      *            difference
      */
     protected void adjustValidatorStats(byte[] address, StatsType type, long delta) {
-        byte[] key = Bytes.merge(TYPE_VALIDATOR_STATS_BY_ADDRESS, address);
-        byte[] value = indexDB.get(key);
-
-        ValidatorStats stats = (value == null) ? new ValidatorStats(0, 0, 0) : ValidatorStats.fromBytes(value);
-
         switch (type) {
         case FORGED:
-            stats.setBlocksForged(stats.getBlocksForged() + delta);
+            adjustValidatorStats(address, delta, 0, 0);
             break;
         case HIT:
-            stats.setTurnsHit(stats.getTurnsHit() + delta);
+            adjustValidatorStats(address, 0, delta, 0);
             break;
         case MISSED:
-            stats.setTurnsMissed(stats.getTurnsMissed() + delta);
+            adjustValidatorStats(address, 0, 0, delta);
             break;
         default:
             break;
         }
-
-        indexDB.put(key, stats.toBytes());
     }
 
     /**
-     * Sets the total number of transaction of an account.
+     * Adjusts all the statistics of a validator at once.
      *
      * @param address
-     * @param total
+     *            validator address
+     * @param forged
+     *            difference of blocks forged
+     * @param hit
+     *            difference of turns hit
+     * @param missed
+     *            difference of turns missed
      */
-    protected void setTransactionCount(byte[] address, int total) {
-        indexDB.put(Bytes.merge(TYPE_TRANSACTION_COUNT_BY_ADDRESS, address), Bytes.of(total));
+    protected void adjustValidatorStats(byte[] address, long forged, long hit, long missed) {
+        byte[] key = Bytes.merge(TYPE_VALIDATOR_STATS_BY_ADDRESS, address);
+        byte[] value = indexDB.get(key);
+
+        ValidatorStats stats = (value == null) ? new ValidatorStats(0, 0, 0) : ValidatorStats.fromBytes(value);
+        stats.setBlocksForged(stats.getBlocksForged() + forged);
+        stats.setTurnsHit(stats.getTurnsHit() + hit);
+        stats.setTurnsMissed(stats.getTurnsMissed() + missed);
+
+        indexDB.put(key, stats.toBytes());
     }
 
     /**
      * Adds a transaction to an account.
      *
+     * @param counts
+     *            transaction counts of the block being added
      * @param tx
      * @param address
      */
-    protected void addTransactionToAccount(Transaction tx, byte[] address) {
-        int total = getTransactionCount(address);
-        indexDB.put(getNthTransactionIndexKey(address, total), tx.getHash());
-        setTransactionCount(address, total + 1);
+    protected void addTransactionToAccount(IndexCounters counts, Transaction tx, byte[] address) {
+        indexDB.put(getNthTransactionIndexKey(address, counts.next(address)), tx.getHash());
     }
 
     /**
@@ -577,15 +972,19 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public int getInternalTransactionCount(byte[] address) {
-        byte[] cnt = indexDB.get(Bytes.merge(TYPE_INTERNAL_TRANSACTION_COUNT_BY_ADDRESS, address));
-        return (cnt == null) ? 0 : Bytes.toInt(cnt);
+        return readCount(indexDB, TYPE_INTERNAL_TRANSACTION_COUNT_BY_ADDRESS, address);
     }
 
     @Override
     public List<SemuxInternalTransaction> getInternalTransactions(byte[] address, int from, int to) {
+        return readInternalTransactions(indexDB, address, from, to);
+    }
+
+    private List<SemuxInternalTransaction> readInternalTransactions(Database indexDB, byte[] address, int from,
+            int to) {
         List<SemuxInternalTransaction> list = new ArrayList<>();
 
-        int total = getInternalTransactionCount(address);
+        int total = readCount(indexDB, TYPE_INTERNAL_TRANSACTION_COUNT_BY_ADDRESS, address);
         for (int i = from; i < total && i < to; i++) {
             byte[] key = getNthInternalTransactionIndexKey(address, i);
             byte[] value = indexDB.get(key);
@@ -596,25 +995,56 @@ public class BlockchainImpl implements Blockchain {
     }
 
     /**
-     * Sets the total number of internal transaction of an account.
+     * Adds an internal transaction to an account.
      *
+     * @param counts
+     *            internal transaction counts of the block being added
+     * @param tx
      * @param address
-     * @param total
      */
-    protected void setInternalTransactionCount(byte[] address, int total) {
-        indexDB.put(Bytes.merge(TYPE_INTERNAL_TRANSACTION_COUNT_BY_ADDRESS, address), Bytes.of(total));
+    protected void addInternalTransactionToAccount(IndexCounters counts, SemuxInternalTransaction tx,
+            byte[] address) {
+        indexDB.put(getNthInternalTransactionIndexKey(address, counts.next(address)), tx.toBytes());
     }
 
     /**
-     * Adds an internal transaction to an account.
-     *
-     * @param tx
-     * @param address
+     * Per-address counters of the index database, aggregated in memory while a
+     * block is added. Each counter is read at most once and written once, instead
+     * of a read-modify-write per transaction.
      */
-    protected void addInternalTransactionToAccount(Transaction root, SemuxInternalTransaction tx, byte[] address) {
-        int total = getInternalTransactionCount(address);
-        indexDB.put(getNthInternalTransactionIndexKey(address, total), tx.toBytes());
-        setInternalTransactionCount(address, total + 1);
+    protected class IndexCounters {
+        private final byte type;
+        private final Map<ByteArray, Integer> counts = new LinkedHashMap<>();
+
+        public IndexCounters(byte type) {
+            this.type = type;
+        }
+
+        /**
+         * Returns the next index of an address, and increases the counter.
+         *
+         * @param address
+         * @return
+         */
+        public int next(byte[] address) {
+            ByteArray key = ByteArray.of(address);
+            Integer count = counts.get(key);
+            if (count == null) {
+                byte[] value = indexDB.get(Bytes.merge(type, address));
+                count = (value == null) ? 0 : Bytes.toInt(value);
+            }
+            counts.put(key, count + 1);
+            return count;
+        }
+
+        /**
+         * Writes the final counters into the index database.
+         */
+        public void write() {
+            for (Entry<ByteArray, Integer> e : counts.entrySet()) {
+                indexDB.put(Bytes.merge(type, e.getKey().getData()), Bytes.of(e.getValue()));
+            }
+        }
     }
 
     /**
@@ -628,6 +1058,107 @@ public class BlockchainImpl implements Blockchain {
         return Bytes.merge(Bytes.of(TYPE_INTERNAL_TRANSACTION_BY_ADDRESS_AND_INDEX), address, Bytes.of(n));
     }
 
+    /**
+     * Loads the transaction filter from disk and catches it up with the blocks
+     * imported after it was saved, or rebuilds it from the transaction index if
+     * it's missing, unreadable or saturated.
+     */
+    protected void loadTransactionFilter() {
+        Path file = dbFactory.getDataDir().resolve(TRANSACTION_FILTER_FILE);
+        long latestNumber = latestBlock.getNumber();
+
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file);
+                    DataInputStream din = new DataInputStream(new BufferedInputStream(in))) {
+                long number = din.readLong();
+                BloomFilter filter = BloomFilter.readFrom(din);
+
+                if (number <= latestNumber && !filter.isSaturated()) {
+                    transactionFilter = filter;
+                    for (long i = number + 1; i <= latestNumber; i++) {
+                        addToTransactionFilter(i);
+                    }
+                    logger.info("Transaction filter loaded: saved at = {}, replayed = {}", number,
+                            latestNumber - number);
+                    return;
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to load the transaction filter, rebuilding", e);
+            }
+        }
+
+        rebuildTransactionFilter(0);
+    }
+
+    /**
+     * Rebuilds the transaction filter by scanning the transaction index.
+     *
+     * @param minCapacity
+     *            the minimum capacity of the new filter
+     */
+    protected void rebuildTransactionFilter(long minCapacity) {
+        long capacity = Math.max(TRANSACTION_FILTER_MIN_CAPACITY,
+                Math.max(minCapacity, (latestBlock.getNumber() + 1) * TRANSACTION_FILTER_KEYS_PER_BLOCK));
+        BloomFilter filter = new BloomFilter(capacity);
+
+        ClosableIterator<Entry<byte[], byte[]>> itr = indexDB.iterator(Bytes.of(TYPE_TRANSACTION_INDEX_BY_HASH));
+        while (itr.hasNext()) {
+            byte[] key = itr.next().getKey();
+            if (key[0] != TYPE_TRANSACTION_INDEX_BY_HASH) {
+                break;
+            }
+            filter.add(Arrays.copyOfRange(key, 1, key.length));
+        }
+        itr.close();
+
+        if (filter.isSaturated()) {
+            // chain length underestimated the number of transactions
+            rebuildTransactionFilter(filter.getCount() * 2);
+            return;
+        }
+
+        transactionFilter = filter;
+        logger.info("Transaction filter rebuilt: transactions = {}, capacity = {}", filter.getCount(), capacity);
+        saveTransactionFilter();
+    }
+
+    /**
+     * Adds the transactions of a block into the transaction filter.
+     *
+     * @param number
+     */
+    private void addToTransactionFilter(long number) {
+        Block block = getBlock(number);
+        for (Transaction tx : block.getTransactions()) {
+            transactionFilter.add(tx.getHash());
+        }
+
+        byte[] coinbase = indexDB.get(Bytes.merge(TYPE_BLOCK_COINBASE_BY_NUMBER, Bytes.of(number)));
+        if (coinbase != null) {
+            transactionFilter.add(coinbase);
+        }
+    }
+
+    /**
+     * Saves the transaction filter, tagged with the latest block number, to disk.
+     * A filter saved ahead of the database only yields false positives.
+     */
+    protected void saveTransactionFilter() {
+        Path file = dbFactory.getDataDir().resolve(TRANSACTION_FILTER_FILE);
+        Path temp = dbFactory.getDataDir().resolve(TRANSACTION_FILTER_FILE + ".tmp");
+
+        try {
+            try (OutputStream out = Files.newOutputStream(temp);
+                    DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(out))) {
+                dout.writeLong(latestBlock.getNumber());
+                transactionFilter.writeTo(dout);
+            }
+            Files.move(temp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to save the transaction filter", e);
+        }
+    }
+
     /**
      * Returns the version of current database.
      *
@@ -637,6 +1168,147 @@ public class BlockchainImpl implements Blockchain {
         return getDatabaseVersion(indexDB);
     }
 
+    /**
+     * The state of the chain as of a batch commit.
+     */
+    private static class CommitPoint {
+        final Block latestBlock;
+        final DelegateRanking ranking;
+
+        CommitPoint(Block latestBlock, DelegateRanking ranking) {
+            this.latestBlock = latestBlock;
+            this.ranking = ranking;
+        }
+    }
+
+    /**
+     * A read-only view of the blockchain on database snapshots, as returned by
+     * {@link #snapshot()}. Blocks are read through the block cache of the chain,
+     * up to the pinned block, and delegates are ranked with the copy taken at
+     * the pinned block when there's one.
+     */
+    protected class Snapshot implements BlockchainSnapshot {
+
+        private final DatabaseFactory dbs;
+        private final Database indexDB;
+        private final Database blockDB;
+        private final Block latestBlock;
+        private final AccountStateImpl accountState;
+        private final DelegateStateImpl delegateState;
+
+        private Snapshot(DatabaseFactory dbs, CommitPoint point) {
+            this.dbs = dbs;
+            this.indexDB = dbs.getDB(DatabaseName.INDEX);
+            this.blockDB = dbs.getDB(DatabaseName.BLOCK);
+
+            long number = Bytes.toLong(BlockchainImpl.getLatestBlockNumber(indexDB));
+            boolean pinned = point != null && point.latestBlock.getNumber() == number;
+            this.latestBlock = pinned ? point.latestBlock : readBlock(blockDB, number);
+
+            // the account cache of the chain may be ahead of the snapshot
+            this.accountState = new AccountStateImpl(dbs.getDB(DatabaseName.ACCOUNT));
+            this.delegateState = new DelegateStateImpl(BlockchainImpl.this, dbs.getDB(DatabaseName.DELEGATE),
+                    dbs.getDB(DatabaseName.VOTE), dbs.getDB(DatabaseName.VOTER), pinned ? point.ranking : null);
+        }
+
+        @Override
+        public Block getLatestBlock() {
+            return latestBlock;
+        }
+
+        @Override
+        public byte[] getLatestBlockHash() {
+            return latestBlock.getHash();
+        }
+
+        @Override
+        public long getLatestBlockNumber() {
+            return latestBlock.getNumber();
+        }
+
+        @Override
+        public long getBlockNumber(byte[] hash) {
+            long number = readBlockNumber(indexDB, hash);
+            return (number <= latestBlock.getNumber()) ? number : -1;
+        }
+
+        @Override
+        public Block getBlock(long number) {
+            return (number <= latestBlock.getNumber()) ? readBlock(blockDB, number) : null;
+        }
+
+        @Override
+        public Block getBlock(byte[] hash) {
+            long number = getBlockNumber(hash);
+            return (number == -1) ? null : getBlock(number);
+        }
+
+        @Override
+        public BlockHeader getBlockHeader(long number) {
+            return (number <= latestBlock.getNumber()) ? readBlockHeader(blockDB, number) : null;
+        }
+
+        @Override
+        public Transaction getTransaction(byte[] hash) {
+            return readTransaction(indexDB, blockDB, hash);
+        }
+
+        @Override
+        public int getTransactionCount(byte[] address) {
+            return readCount(indexDB, TYPE_TRANSACTION_COUNT_BY_ADDRESS, address);
+        }
+
+        @Override
+        public List<Transaction> getTransactions(byte[] address, int from, int to) {
+            return readTransactions(indexDB, blockDB, address, from, to);
+        }
+
+        @Override
+        public int getInternalTransactionCount(byte[] address) {
+            return readCount(indexDB, TYPE_INTERNAL_TRANSACTION_COUNT_BY_ADDRESS, address);
+        }
+
+        @Override
+        public List<SemuxInternalTransaction> getInternalTransactions(byte[] address, int from, int to) {
+            return readInternalTransactions(indexDB, address, from, to);
+        }
+
+        @Override
+        public AccountState getAccountState() {
+            return accountState;
+        }
+
+        @Override
+        public DelegateState getDelegateState() {
+            return delegateState;
+        }
+
+        @Override
+        public List<String> getValidators() {
+            return readValidators(indexDB);
+        }
+
+        @Override
+        public ValidatorStats getValidatorStats(byte[] address) {
+            return readValidatorStats(indexDB, address);
+        }
+
+        @Override
+        public boolean isForkActivated(Fork fork) {
+            return forks.isActivated(fork, latestBlock.getNumber() + 1);
+        }
+
+        @Override
+        public BlockchainSnapshot snapshot() {
+            return this;
+        }
+
+        @Override
+        public void close() {
+            dbs.close();
+        }
+    }
+
     /**
      * Validator statistics.
      */
@@ -754,6 +1426,52 @@ public class BlockchainImpl implements Blockchain {
         return validateBlock(block, asTrack, dsTrack, validateVotes) && applyBlock(block, asTrack, dsTrack);
     }
 
+    @Override
+    public boolean importValidatedBlock(Block block, AccountState asTrack, DelegateState dsTrack) {
+        // the tracked states are only valid on top of the block they were tracked from
+        Block latest = this.getLatestBlock();
+        if (block.getNumber() != latest.getNumber() + 1
+                || !Arrays.equals(block.getParentHash(), latest.getHash())) {
+            logger.warn("Validated block #{} does not extend the latest block #{}", block.getNumber(),
+                    latest.getNumber());
+            return false;
+        }
+
+        return validateCheckpoint(block.getHeader()) && applyBlock(block, asTrack, dsTrack);
+    }
+
+    @Override
+    public boolean prevalidateBlock(Block block) {
+        try {
+            BlockHeader header = block.getHeader();
+            if (!header.validate()) {
+                logger.error("Invalid block header");
+                return false;
+            }
+
+            if (!validateCheckpoint(header)) {
+                return false;
+            }
+
+            if (!block.validateTransactions(header, block.getTransactions(), config.network())) {
+                logger.error("Invalid transactions");
+                return false;
+            }
+
+            return true;
+        } catch (Exception e) {
+            logger.error("Unexpected exception during block prevalidation", e);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean importPrevalidatedBlock(Block block) {
+        AccountState asTrack = this.getAccountState().track();
+        DelegateState dsTrack = this.getDelegateState().track();
+        return validateBlock(block, asTrack, dsTrack, false, false) && applyBlock(block, asTrack, dsTrack);
+    }
+
     /**
      * Validate the block. Votes are validated only if validateVotes is true.
      *
@@ -764,6 +1482,23 @@ public class BlockchainImpl implements Blockchain {
      * @return
      */
     protected boolean validateBlock(Block block, AccountState asTrack, DelegateState dsTrack, boolean validateVotes) {
+        return validateBlock(block, asTrack, dsTrack, validateVotes, true);
+    }
+
+    /**
+     * Validate the block. Votes are validated only if validateVotes is true; the
+     * transaction signatures and the transactions root are validated only if
+     * validateTransactions is true.
+     *
+     * @param block
+     * @param asTrack
+     * @param dsTrack
+     * @param validateVotes
+     * @param validateTransactions
+     * @return
+     */
+    protected boolean validateBlock(Block block, AccountState asTrack, DelegateState dsTrack, boolean validateVotes,
+            boolean validateTransactions) {
         try {
             BlockHeader header = block.getHeader();
             List<Transaction> transactions = block.getTransactions();
@@ -777,16 +1512,12 @@ public class BlockchainImpl implements Blockchain {
 
             // [?] additional checks by block importer
             // - check points
-            if (config.checkpoints().containsKey(header.getNumber()) &&
-                    !Arrays.equals(header.getHash(), config.checkpoints().get(header.getNumber()))) {
-                logger.error("Checkpoint validation failed, checkpoint is {} => {}, getting {}", header.getNumber(),
-                        Hex.encode0x(config.checkpoints().get(header.getNumber())),
-                        Hex.encode0x(header.getHash()));
+            if (!validateCheckpoint(header)) {
                 return false;
             }
 
             // [2] check transactions
-            if (!block.validateTransactions(header, transactions, config.network())) {
+            if (validateTransactions && !block.validateTransactions(header, transactions, config.network())) {
                 logger.error("Invalid transactions");
                 return false;
             }
@@ -798,7 +1529,7 @@ public class BlockchainImpl implements Blockchain {
             // [3] evaluate transactions
             TransactionExecutor transactionExecutor = new TransactionExecutor(config, blockStore, isVMEnabled(),
                     isVotingPrecompiledUpgraded());
-            List<TransactionResult> results = transactionExecutor.execute(transactions, asTrack, dsTrack,
+            List<TransactionResult> results = transactionExecutor.executeParallel(transactions, asTrack, dsTrack,
                     new SemuxBlock(block.getHeader(), config.spec().maxBlockGasLimit()),
                     0);
             if (!block.validateResults(header, results)) {
@@ -819,6 +1550,24 @@ public class BlockchainImpl implements Blockchain {
         }
     }
 
+    /**
+     * Validate the block header against the configured checkpoints.
+     *
+     * @param header
+     * @return
+     */
+    protected boolean validateCheckpoint(BlockHeader header) {
+        if (config.checkpoints().containsKey(header.getNumber()) &&
+                !Arrays.equals(header.getHash(), config.checkpoints().get(header.getNumber()))) {
+            logger.error("Checkpoint validation failed, checkpoint is {} => {}, getting {}", header.getNumber(),
+                    Hex.encode0x(config.checkpoints().get(header.getNumber())),
+                    Hex.encode0x(header.getHash()));
+            return false;
+        }
+
+        return true;
+    }
+
     @Override
     public boolean validateBlockVotes(Block block) {
         int maxValidators = config.spec().getNumberOfValidators(block.getNumber());
@@ -837,22 +1586,14 @@ public class BlockchainImpl implements Blockchain {
         byte[] encoded = vote.getEncoded();
 
         // check validity of votes
-        if (block.getVotes().stream().anyMatch(sig -> !validators.contains(Hex.encode(sig.getAddress())))) {
+        if (block.getVotes().stream().anyMatch(sig -> !validators.contains(sig.getAddressString()))) {
             logger.warn("Block votes are invalid");
             return false;
         }
 
-        if (!Key.isVerifyBatchSupported()) {
-            if (!block.getVotes().stream()
-                    .allMatch(sig -> Key.verify(encoded, sig))) {
-                logger.warn("Block votes are invalid");
-                return false;
-            }
-        } else {
-            if (!Key.verifyBatch(Collections.nCopies(block.getVotes().size(), encoded), block.getVotes())) {
-                logger.warn("Block votes are invalid");
-                return false;
-            }
+        if (!SignatureCache.verifyBatch(Collections.nCopies(block.getVotes().size(), encoded), block.getVotes())) {
+            logger.warn("Block votes are invalid");
+            return false;
         }
 
         // at least two thirds voters
@@ -881,12 +1622,27 @@ public class BlockchainImpl implements Blockchain {
         ReentrantReadWriteLock.WriteLock writeLock = this.stateLock.writeLock();
         writeLock.lock();
         try {
-            // [7] flush state to disk
-            this.getAccountState().commit();
-            this.getDelegateState().commit();
-
-            // [8] add block to chain
-            this.addBlock(block);
+            // all the mutations of this block are written in one batch per database,
+            // possibly along with the preceding blocks
+            if (!batchOpen) {
+                dbFactory.startBatch();
+                batchOpen = true;
+            }
+            try {
+                // [7] flush state to disk
+                this.getAccountState().commit();
+                this.getDelegateState().commit();
+
+                // [8] add block to chain
+                this.addBlock(block);
+            } catch (RuntimeException e) {
+                dbFactory.abortBatch();
+                rollBackBatch();
+                throw e;
+            }
+            if (++batchedBlocks >= blocksPerBatch) {
+                commitBatch();
+            }
         } finally {
             writeLock.unlock();
         }
@@ -894,6 +1650,85 @@ public class BlockchainImpl implements Blockchain {
         return true;
     }
 
+    /**
+     * Sets the number of consecutive blocks whose database writes are committed
+     * in one batch. Larger batches speed up bulk imports, at the cost of losing
+     * the uncommitted blocks on a crash; {@link #flushBatch()} must be called
+     * once the import is done.
+     *
+     * @param blocksPerBatch
+     */
+    public void setBlocksPerBatch(int blocksPerBatch) {
+        ReentrantReadWriteLock.WriteLock writeLock = this.stateLock.writeLock();
+        writeLock.lock();
+        try {
+            this.blocksPerBatch = Math.max(1, blocksPerBatch);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Commits the database writes of the blocks imported since the last batch.
+     */
+    public void flushBatch() {
+        ReentrantReadWriteLock.WriteLock writeLock = this.stateLock.writeLock();
+        writeLock.lock();
+        try {
+            if (batchOpen) {
+                commitBatch();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Commits the database batches, holding off the concurrent snapshots.
+     */
+    private void commitBatch() {
+        ReentrantReadWriteLock.WriteLock writeLock = commitLock.writeLock();
+        writeLock.lock();
+        try {
+            dbFactory.commitBatch();
+            commitPoint = new CommitPoint(latestBlock, delegateState.copyRanking());
+        } finally {
+            writeLock.unlock();
+        }
+        batchOpen = false;
+        batchedBlocks = 0;
+
+        if (transactionFilterDue) {
+            saveTransactionFilter();
+            transactionFilterDue = false;
+        }
+
+        List<Block> blocks = new ArrayList<>(uncommittedBlocks);
+        uncommittedBlocks.clear();
+        for (Block block : blocks) {
+            notifyBlockAdded(block);
+        }
+    }
+
+    /**
+     * Restores the in-memory state after the database batch is aborted: the
+     * latest block is reloaded from the index, and the caches which may hold the
+     * discarded blocks and states are invalidated. The transaction filter keeps
+     * the hashes of the discarded blocks, which only yields false positives.
+     */
+    private void rollBackBatch() {
+        batchOpen = false;
+        batchedBlocks = 0;
+        transactionFilterDue = false;
+        uncommittedBlocks.clear();
+
+        accountState.invalidateCache();
+        delegateState.invalidateRanking();
+        blockCache.invalidateAll();
+        latestBlock = getBlock(Bytes.toLong(getLatestBlockNumber(indexDB)));
+        forks = new ActivatedForks(this, config, getActivatedForks());
+    }
+
     /**
      * Attempt to activate pending forks at current height.
      */
@@ -953,37 +1788,64 @@ public class BlockchainImpl implements Blockchain {
     }
 
     public static void upgrade(Config config, DatabaseFactory dbFactory, long to) {
+        upgrade(config, dbFactory, to, false);
+    }
+
+    /**
+     * Rebuilds the database by importing its blocks into a new database, which
+     * then replaces the original one once all the blocks are imported. An
+     * interrupted or incomplete upgrade leaves the original database in place,
+     * and is resumed from the last block committed to the new database.
+     *
+     * @param config
+     * @param dbFactory
+     * @param to
+     *            the last block to import
+     * @param trustSignatures
+     *            whether to trust the stored blocks and skip the verification of
+     *            their hashes and signatures
+     */
+    public static void upgrade(Config config, DatabaseFactory dbFactory, long to, boolean trustSignatures) {
         try {
             logger.info("Upgrading the database... DO NOT CLOSE THE WALLET!");
             Instant begin = Instant.now();
 
             Path dataDir = dbFactory.getDataDir();
             String dataDirName = dataDir.getFileName().toString();
+            Database indexDB = dbFactory.getDB(DatabaseName.INDEX);
+            Database blockDB = dbFactory.getDB(DatabaseName.BLOCK);
 
-            // setup temp chain
+            // setup temp chain, resuming from a previous attempt if possible
             Path tempPath = dataDir.resolveSibling(dataDirName + "-temp");
-            delete(tempPath);
-            LeveldbDatabase.LeveldbFactory tempDbFactory = new LeveldbDatabase.LeveldbFactory(tempPath.toFile());
+            DatabaseFactory tempDbFactory = openTempDatabase(config, tempPath);
             BlockchainImpl tempChain = new BlockchainImpl(config, tempDbFactory);
+            long resumed = tempChain.getLatestBlockNumber();
+            Block stored = getBlock(blockDB, resumed, true);
+            if (stored == null || !Arrays.equals(stored.getHash(), tempChain.getLatestBlockHash())) {
+                logger.info("Discarding the partially upgraded database at block #{}", resumed);
+                tempDbFactory.close();
+                delete(tempPath);
+                tempDbFactory = config.databaseEngine().createFactory(tempPath.toFile());
+                tempChain = new BlockchainImpl(config, tempDbFactory);
+                resumed = 0;
+            } else if (resumed > 0) {
+                logger.info("Resuming the database upgrade from block #{}", resumed + 1);
+            }
 
             // import all blocks
-            long imported = 0;
-            Database indexDB = dbFactory.getDB(DatabaseName.INDEX);
-            Database blockDB = dbFactory.getDB(DatabaseName.BLOCK);
             byte[] bytes = getLatestBlockNumber(indexDB);
             long latestBlockNumber = (bytes == null) ? 0 : Bytes.toLong(bytes);
             long target = Math.min(latestBlockNumber, to);
-            for (long i = 1; i <= target; i++) {
-                boolean result = tempChain.importBlock(getBlock(blockDB, i, true), false);
-                if (!result) {
-                    break;
-                }
-
-                if (i % 1000 == 0) {
-                    PubSubFactory.getDefault().publish(new BlockchainDatabaseUpgradingEvent(i, latestBlockNumber));
-                    logger.info("Loaded {} / {} blocks", i, target);
-                }
-                imported++;
+            long imported = new BlockchainReindexer(blockDB, tempChain, trustSignatures).run(target,
+                    latestBlockNumber);
+
+            // keep the original database if the import stopped early
+            long upgraded = tempChain.getLatestBlockNumber();
+            if (upgraded != target) {
+                tempDbFactory.close();
+                logger.warn("Database upgrade stopped at block #{} of #{}, keeping the original database;"
+                        + " the upgrade will resume from {}", upgraded, target, tempPath);
+                return;
             }
 
             // close both database factory
@@ -997,16 +1859,35 @@ public class BlockchainImpl implements Blockchain {
             delete(backupPath); // delete old database to save space.
 
             Instant end = Instant.now();
-            logger.info("Database upgraded: found blocks = {}, imported = {}, took = {}", latestBlockNumber, imported,
-                    TimeUtil.formatDuration(Duration.between(begin, end)));
+            logger.info("Database upgraded: found blocks = {}, resumed = {}, imported = {}, took = {}",
+                    latestBlockNumber, resumed, imported, TimeUtil.formatDuration(Duration.between(begin, end)));
         } catch (IOException e) {
             logger.error("Failed to upgrade database", e);
         }
     }
 
+    /**
+     * Opens the database of a previous upgrade attempt, or creates a new one if
+     * it's missing or in an older version.
+     */
+    private static DatabaseFactory openTempDatabase(Config config, Path tempPath) throws IOException {
+        if (tempPath.toFile().exists()) {
+            DatabaseFactory factory = config.databaseEngine().createFactory(tempPath.toFile());
+            factory.recoverBatch();
+            Database indexDB = factory.getDB(DatabaseName.INDEX);
+            if (getLatestBlockNumber(indexDB) != null && getDatabaseVersion(indexDB) == DATABASE_VERSION) {
+                return factory;
+            }
+            factory.close();
+            delete(tempPath);
+        }
+
+        return config.databaseEngine().createFactory(tempPath.toFile());
+    }
+
     // THE FOLLOWING TYPE ID SHOULD NEVER CHANGE
 
-    private static Block getBlock(Database blockDB, long number, boolean skipResults) {
+    static Block getBlock(Database blockDB, long number, boolean skipResults) {
         byte[] header = blockDB.get(Bytes.merge(TYPE_BLOCK_HEADER_BY_NUMBER, Bytes.of(number)));
         byte[] transactions = blockDB.get(Bytes.merge(TYPE_BLOCK_TRANSACTIONS_BY_NUMBER, Bytes.of(number)));
         byte[] results = skipResults ? null : blockDB.get(Bytes.merge(TYPE_BLOCK_RESULTS_BY_NUMBER, Bytes.of(number)));
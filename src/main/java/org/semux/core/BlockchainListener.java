@@ -9,7 +9,8 @@ package org.semux.core;
 public interface BlockchainListener {
 
     /**
-     * Callback when a new block was added.
+     * Callback when a new block was added, once it's committed to the database
+     * and visible in {@link Blockchain#snapshot()}.
      * 
      * @param block
      */
@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.semux.core.event.BlockchainDatabaseUpgradingEvent;
+import org.semux.db.Database;
+import org.semux.event.PubSubFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Replays the blocks of a block database into a new chain. Blocks are read,
+ * decoded and, unless the stored signatures are trusted, verified on a worker
+ * pool ahead of the import, which is done by the calling thread in database
+ * batches of {@link #BLOCKS_PER_BATCH} blocks.<br>
+ * <br>
+ * The import can be resumed from the latest block of the new chain, which is
+ * durable at the end of each batch. A failed batch leaves the chain at its
+ * last durable block.
+ */
+class BlockchainReindexer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockchainReindexer.class);
+
+    protected static final int BLOCKS_PER_BATCH = 1000;
+
+    protected static final int PROGRESS_INTERVAL = 1000;
+
+    private static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    /**
+     * Maximum number of blocks decoded ahead of the import.
+     */
+    private static final int MAX_PENDING_BLOCKS = THREADS * 64;
+
+    private final Database blockDB;
+    private final BlockchainImpl chain;
+    private final boolean trustSignatures;
+
+    /**
+     * Creates a reindexer.
+     *
+     * @param blockDB
+     *            the block database to read blocks from
+     * @param chain
+     *            the chain to import blocks into
+     * @param trustSignatures
+     *            whether to skip the verification of transaction signatures
+     */
+    BlockchainReindexer(Database blockDB, BlockchainImpl chain, boolean trustSignatures) {
+        this.blockDB = blockDB;
+        this.chain = chain;
+        this.trustSignatures = trustSignatures;
+    }
+
+    /**
+     * Imports the blocks following the latest block of the chain, until the given
+     * block number or the first missing or invalid block. If the import of a block
+     * fails, the blocks of the aborted batch are imported again one by one from the
+     * last durable block, so that only the failing block and its successors are
+     * left out. An interruption or a failure to read a block stops the import as
+     * well, so the caller has to check the latest block number of the chain.
+     *
+     * @param to
+     *            the last block number, inclusive
+     * @param total
+     *            the total number of blocks, for progress reports
+     * @return the number of imported blocks
+     */
+    long run(long to, long total) {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+            private AtomicInteger cnt = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "reindex-" + cnt.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        chain.setBlocksPerBatch(BLOCKS_PER_BATCH);
+
+        long start = chain.getLatestBlockNumber();
+        try {
+            long failed = importBlocks(pool, to, total);
+            if (failed > 0) {
+                logger.info("Importing blocks #{} to #{} one by one", chain.getLatestBlockNumber() + 1, failed);
+                chain.setBlocksPerBatch(1);
+                if (importBlocks(pool, failed, total) < 0) {
+                    chain.setBlocksPerBatch(BLOCKS_PER_BATCH);
+                    importBlocks(pool, to, total);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Reindex interrupted");
+        } catch (ExecutionException e) {
+            logger.error("Failed to read block", e.getCause());
+        } finally {
+            pool.shutdownNow();
+            chain.flushBatch();
+            chain.setBlocksPerBatch(1);
+        }
+
+        return chain.getLatestBlockNumber() - start;
+    }
+
+    /**
+     * Imports the blocks following the latest block of the chain, until the given
+     * block number or the first missing, invalid or failing block.
+     *
+     * @param pool
+     * @param to
+     *            the last block number, inclusive
+     * @param total
+     *            the total number of blocks, for progress reports
+     * @return the number of the block whose import failed, which aborted the open
+     *         batch, or -1
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    private long importBlocks(ExecutorService pool, long to, long total)
+            throws InterruptedException, ExecutionException {
+        Deque<Future<Block>> pending = new ArrayDeque<>();
+        try {
+            long next = chain.getLatestBlockNumber() + 1;
+            for (; next <= to && pending.size() < MAX_PENDING_BLOCKS; next++) {
+                pending.add(submit(pool, next));
+            }
+
+            long imported = 0;
+            long lastReport = System.nanoTime();
+            long lastReportBlocks = 0;
+            while (!pending.isEmpty()) {
+                Block block = pending.poll().get();
+                if (next <= to) {
+                    pending.add(submit(pool, next++));
+                }
+
+                try {
+                    if (block == null || !chain.importPrevalidatedBlock(block)) {
+                        return -1;
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("Failed to import block #{}, resuming from block #{}", block.getNumber(),
+                            chain.getLatestBlockNumber() + 1, e);
+                    return block.getNumber();
+                }
+                imported++;
+
+                long number = block.getNumber();
+                if (number % PROGRESS_INTERVAL == 0) {
+                    long now = System.nanoTime();
+                    long blocksPerSecond = (imported - lastReportBlocks) * 1_000_000_000L
+                            / Math.max(1, now - lastReport);
+                    lastReport = now;
+                    lastReportBlocks = imported;
+
+                    PubSubFactory.getDefault()
+                            .publish(new BlockchainDatabaseUpgradingEvent(number, total, blocksPerSecond));
+                    logger.info("Loaded {} / {} blocks, {} blocks/s", number, to, blocksPerSecond);
+                }
+            }
+            return -1;
+        } finally {
+            for (Future<Block> f : pending) {
+                f.cancel(true);
+            }
+        }
+    }
+
+    private Future<Block> submit(ExecutorService pool, long number) {
+        return pool.submit(() -> {
+            Block block = BlockchainImpl.getBlock(blockDB, number, true);
+            if (block == null) {
+                logger.info("Block #{} is missing", number);
+                return null;
+            }
+
+            return (trustSignatures || chain.prevalidateBlock(block)) ? block : null;
+        });
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import java.util.List;
+
+import org.semux.core.BlockchainImpl.ValidatorStats;
+import org.semux.core.state.AccountState;
+import org.semux.core.state.DelegateState;
+import org.semux.vm.client.SemuxInternalTransaction;
+
+/**
+ * A read-only view of the blockchain, pinned at one block. The latest block,
+ * the account and delegate states and the indexes are read from consistent
+ * snapshots of the databases, which are not affected by the blocks imported
+ * afterwards. The states must not be committed.<br>
+ * <br>
+ * NOTE: be sure to close the snapshot after use.
+ */
+public interface BlockchainSnapshot extends AutoCloseable {
+
+    /**
+     * Returns the latest block.
+     *
+     * @return
+     */
+    Block getLatestBlock();
+
+    /**
+     * Returns the hash of the latest block.
+     *
+     * @return
+     */
+    byte[] getLatestBlockHash();
+
+    /**
+     * Returns the number of the latest block.
+     *
+     * @return
+     */
+    long getLatestBlockNumber();
+
+    /**
+     * Returns block number by hash.
+     *
+     * @param hash
+     * @return
+     */
+    long getBlockNumber(byte[] hash);
+
+    /**
+     * Returns block by number.
+     *
+     * @param number
+     * @return
+     */
+    Block getBlock(long number);
+
+    /**
+     * Returns block by its hash.
+     *
+     * @param hash
+     * @return
+     */
+    Block getBlock(byte[] hash);
+
+    /**
+     * Returns block header by block number.
+     *
+     * @param number
+     * @return
+     */
+    BlockHeader getBlockHeader(long number);
+
+    /**
+     * Returns transaction by its hash.
+     *
+     * @param hash
+     * @return
+     */
+    Transaction getTransaction(byte[] hash);
+
+    /**
+     * Returns the total number of transactions from/to the given address.
+     *
+     * @param address
+     *            account address
+     * @return
+     */
+    int getTransactionCount(byte[] address);
+
+    /**
+     * Returns transactions from/to an address.
+     *
+     * @param address
+     *            account address
+     * @param from
+     *            transaction index from
+     * @param to
+     *            transaction index to
+     * @return
+     */
+    List<Transaction> getTransactions(byte[] address, int from, int to);
+
+    /**
+     * Returns the total number of internal transactions from/to the given address.
+     *
+     * @param address
+     *            account address
+     * @return
+     */
+    int getInternalTransactionCount(byte[] address);
+
+    /**
+     * Returns internal transactions from/to an address.
+     *
+     * @param address
+     *            account address
+     * @param from
+     *            transaction index from
+     * @param to
+     *            transaction index to
+     * @return
+     */
+    List<SemuxInternalTransaction> getInternalTransactions(byte[] address, int from, int to);
+
+    /**
+     * Returns the account state.
+     *
+     * @return
+     */
+    AccountState getAccountState();
+
+    /**
+     * Returns the delegate state.
+     *
+     * @return
+     */
+    DelegateState getDelegateState();
+
+    /**
+     * Returns the validator set.
+     *
+     * @return
+     */
+    List<String> getValidators();
+
+    /**
+     * Returns the statistics of a validator.
+     *
+     * @param address
+     * @return
+     */
+    ValidatorStats getValidatorStats(byte[] address);
+
+    /**
+     * Returns whether a fork is activated for the block after the latest one.
+     *
+     * @param fork
+     * @return
+     */
+    boolean isForkActivated(Fork fork);
+
+    /**
+     * Returns this snapshot, which is already consistent.
+     *
+     * @return
+     */
+    BlockchainSnapshot snapshot();
+
+    /**
+     * Releases the database snapshots.
+     */
+    @Override
+    void close();
+}
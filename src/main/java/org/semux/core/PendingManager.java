@@ -7,22 +7,34 @@
 package org.semux.core;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
 
 import org.ethereum.vm.client.BlockStore;
 import org.semux.Kernel;
+import org.semux.Network;
+import org.semux.core.state.Account;
 import org.semux.core.state.AccountState;
 import org.semux.core.state.DelegateState;
+import org.semux.crypto.Key;
+import org.semux.crypto.cache.SignatureCache;
 import org.semux.net.Channel;
 import org.semux.net.msg.p2p.TransactionMessage;
 import org.semux.util.ByteArray;
@@ -45,7 +57,17 @@ import com.github.benmanes.caffeine.cache.Caffeine;
  * transactions included by the pending manager are eligible for inclusion in
  * block proposing phase.
  *
- * TODO: sort transaction queue by fee, and other metrics
+ * Queued transactions are admitted in batches: their signatures are verified in
+ * parallel, then they are executed in nonce order against the pending state.
+ *
+ * Valid transactions are proposed by effective fee, in nonce order for each
+ * sender. A pending transaction can be replaced by one of the same sender and
+ * nonce paying a higher fee, and the lowest-priority transactions are evicted
+ * when the pool is full.
+ *
+ * New blocks are handled off the import thread, on a snapshot of the chain:
+ * included transactions are evicted and only the transactions of the touched
+ * accounts are executed again.
  */
 public class PendingManager implements Runnable, BlockchainListener {
 
@@ -68,17 +90,30 @@ public class PendingManager implements Runnable, BlockchainListener {
     private static final int LARGE_NONCE_TXS_LIMIT = 32 * 1024;
     private static final int PROCESSED_TXS_LIMIT = 128 * 1024;
 
+    /**
+     * Maximum number of queued transactions admitted at once.
+     */
+    private static final int BATCH_SIZE = 1024;
+
+    /**
+     * Interval of the queue draining, in case no new transaction triggers it.
+     */
+    private static final long DRAIN_INTERVAL = 100;
+
+    /**
+     * Minimum fee increase, in percent, for a transaction to replace a pending one.
+     */
+    private static final int REPLACEMENT_FEE_BUMP = 10;
+
     private final Kernel kernel;
     private final BlockStore blockStore;
-    private AccountState pendingAS;
-    private DelegateState pendingDS;
-    private SemuxBlock dummyBlock;
 
     // Transactions that haven't been processed
-    private final LinkedHashMap<ByteArray, Transaction> queue = new LinkedHashMap<>();
+    private final LinkedHashMap<ByteArray, QueuedTransaction> queue = new LinkedHashMap<>();
 
-    // Transactions that have been processed and are valid for block production
-    private final ArrayList<PendingTransaction> validTxs = new ArrayList<>();
+    // The pending state, with the transactions that have been processed and are
+    // valid for block production
+    private PendingState state;
 
     // Transactions whose nonce is too large, compared to the sender's nonce
     private final Cache<ByteArray, Transaction> largeNonceTxs = Caffeine.newBuilder().maximumSize(LARGE_NONCE_TXS_LIMIT)
@@ -87,10 +122,18 @@ public class PendingManager implements Runnable, BlockchainListener {
     // Transactions that have been processed, including both valid and invalid ones
     private final Cache<ByteArray, Long> processedTxs = Caffeine.newBuilder().maximumSize(PROCESSED_TXS_LIMIT).build();
 
+    // Blocks whose transactions haven't been revalidated against
+    private final ConcurrentLinkedQueue<Block> addedBlocks = new ConcurrentLinkedQueue<>();
+
     private final ScheduledExecutorService exec;
 
     private ScheduledFuture<?> validateFuture;
 
+    // Whether a drain of the queue has been submitted and not started yet
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    private final AdmissionMetrics metrics = new AdmissionMetrics();
+
     private volatile boolean isRunning;
 
     /**
@@ -100,9 +143,7 @@ public class PendingManager implements Runnable, BlockchainListener {
         this.kernel = kernel;
         this.blockStore = new SemuxBlockStore(kernel.getBlockchain());
 
-        this.pendingAS = kernel.getBlockchain().getAccountState().track();
-        this.pendingDS = kernel.getBlockchain().getDelegateState().track();
-        this.dummyBlock = kernel.createEmptyBlock();
+        this.state = new PendingState(null);
 
         this.exec = Executors.newSingleThreadScheduledExecutor(factory);
     }
@@ -113,11 +154,11 @@ public class PendingManager implements Runnable, BlockchainListener {
     public synchronized void start() {
         if (!isRunning) {
             /*
-             * NOTE: a rate smaller than the message queue sending rate should be used to
-             * prevent message queues from hitting the NET_MAX_QUEUE_SIZE, especially when
-             * the network load is heavy.
+             * The queue is drained as soon as transactions are added; this periodic run
+             * is only a fallback.
              */
-            this.validateFuture = exec.scheduleAtFixedRate(this, 2, 2, TimeUnit.MILLISECONDS);
+            this.validateFuture = exec.scheduleWithFixedDelay(this, DRAIN_INTERVAL, DRAIN_INTERVAL,
+                    TimeUnit.MILLISECONDS);
 
             kernel.getBlockchain().addListener(this);
 
@@ -133,6 +174,15 @@ public class PendingManager implements Runnable, BlockchainListener {
         if (isRunning) {
             validateFuture.cancel(true);
 
+            // release the chain snapshot, carrying over the pending state
+            if (state.snapshot != null) {
+                PendingState old = state;
+                state = new PendingState(null);
+                rebuildAffected(state, old.as, old.txs.getAll(), Collections.emptySet(), new HashSet<>(),
+                        TimeUtil.currentTimeMillis());
+                old.close();
+            }
+
             logger.debug("Pending manager stopped");
             isRunning = false;
         }
@@ -153,7 +203,20 @@ public class PendingManager implements Runnable, BlockchainListener {
      * @return
      */
     public synchronized List<Transaction> getQueue() {
-        return new ArrayList<>(queue.values());
+        List<Transaction> list = new ArrayList<>(queue.size());
+        for (QueuedTransaction qtx : queue.values()) {
+            list.add(qtx.transaction);
+        }
+        return list;
+    }
+
+    /**
+     * Returns the admission metrics.
+     *
+     * @return
+     */
+    public AdmissionMetrics getMetrics() {
+        return metrics;
     }
 
     /**
@@ -162,14 +225,20 @@ public class PendingManager implements Runnable, BlockchainListener {
      *
      * @param tx
      */
-    public synchronized void addTransaction(Transaction tx) {
+    public void addTransaction(Transaction tx) {
         ByteArray hash = ByteArray.of(tx.getHash());
 
-        if (queue.size() < QUEUE_SIZE_LIMIT
-                && processedTxs.getIfPresent(hash) == null
-                && tx.validate(kernel.getConfig().network())) {
-            // NOTE: re-insertion doesn't affect item order
-            queue.put(ByteArray.of(tx.getHash()), tx);
+        synchronized (this) {
+            if (queue.size() >= QUEUE_SIZE_LIMIT
+                    || processedTxs.getIfPresent(hash) != null
+                    || queue.containsKey(hash)) {
+                return;
+            }
+            queue.put(hash, new QueuedTransaction(tx, System.nanoTime()));
+        }
+
+        if (isRunning && drainScheduled.compareAndSet(false, true)) {
+            exec.execute(this);
         }
     }
 
@@ -182,13 +251,15 @@ public class PendingManager implements Runnable, BlockchainListener {
      */
     public synchronized ProcessingResult addTransactionSync(Transaction tx) {
         // nonce check for transactions from this client
-        if (tx.getNonce() != getNonce(tx.getFrom())) {
+        if (tx.getNonce() != getNonce(tx.getFrom()) && state.txs.get(tx.getFrom(), tx.getNonce()) == null) {
             return new ProcessingResult(0, TransactionResult.Code.INVALID_NONCE);
         }
 
         if (tx.validate(kernel.getConfig().network())) {
             // proceed with the tx, ignoring transaction queue size limit
-            return processTransaction(tx, false, true);
+            ProcessingResult result = processTransaction(state, tx, false, true);
+            evictLowestPriority();
+            return result;
         } else {
             return new ProcessingResult(0, TransactionResult.Code.INVALID_FORMAT);
         }
@@ -201,31 +272,18 @@ public class PendingManager implements Runnable, BlockchainListener {
      * @return
      */
     public synchronized long getNonce(byte[] address) {
-        return pendingAS.getAccount(address).getNonce();
+        return state.getNonce(address);
     }
 
     /**
-     * Returns pending transactions, limited by the given total size in bytes.
-     *
+     * Returns pending transactions by priority, limited by the given total gas.
+     * The transactions of a sender are always in nonce order.
      *
+     * @param blockGasLimit
      * @return
      */
     public synchronized List<PendingTransaction> getPendingTransactions(long blockGasLimit) {
-        List<PendingTransaction> txs = new ArrayList<>();
-        Iterator<PendingTransaction> it = validTxs.iterator();
-
-        while (it.hasNext() && blockGasLimit > 0) {
-            PendingTransaction tx = it.next();
-
-            long gasUsage = tx.transaction.isVMTransaction() ? tx.result.getGasUsed()
-                    : kernel.getConfig().spec().nonVMTransactionGasCost();
-            if (blockGasLimit > gasUsage) {
-                txs.add(tx);
-                blockGasLimit -= gasUsage;
-            }
-        }
-
-        return txs;
+        return state.txs.select(blockGasLimit);
     }
 
     /**
@@ -243,65 +301,334 @@ public class PendingManager implements Runnable, BlockchainListener {
      * @return
      */
     public synchronized List<PendingTransaction> reset() {
-        // reset state
-        pendingAS = kernel.getBlockchain().getAccountState().track();
-        pendingDS = kernel.getBlockchain().getDelegateState().track();
-        dummyBlock = kernel.createEmptyBlock();
+        PendingState old = state;
+        state = new PendingState(null);
+        old.close();
 
-        // clear transaction pool
-        List<PendingTransaction> txs = new ArrayList<>(validTxs);
-        validTxs.clear();
-
-        return txs;
+        return old.txs.getAll();
     }
 
+    /**
+     * Schedules the revalidation of pending transactions against the new chain
+     * state, so that the block import is not blocked.
+     */
     @Override
-    public synchronized void onBlockAdded(Block block) {
+    public void onBlockAdded(Block block) {
         if (isRunning) {
-            long t1 = TimeUtil.currentTimeMillis();
+            addedBlocks.add(block);
+            exec.execute(this::revalidate);
+        }
+    }
 
-            // clear transaction pool
-            List<PendingTransaction> txs = reset();
+    /**
+     * Revalidates pending transactions after new blocks. Included transactions are
+     * evicted and only the transactions of the accounts touched by the blocks, or
+     * by transactions depending on them, are executed again; the pending state of
+     * other accounts is carried over.
+     *
+     * The transactions are executed on a snapshot of the chain, without holding
+     * the state lock of the chain nor blocking the admission of transactions. The
+     * result is swapped in unless the pool has changed meanwhile.
+     */
+    protected void revalidate() {
+        List<Block> blocks = new ArrayList<>();
+        Block block;
+        while ((block = addedBlocks.poll()) != null) {
+            blocks.add(block);
+        }
+        if (!isRunning || blocks.isEmpty()) {
+            return;
+        }
+
+        long t1 = TimeUtil.currentTimeMillis();
+
+        PendingState old;
+        long modCount;
+        List<PendingTransaction> txs;
+        AccountState oldAS;
+        synchronized (this) {
+            old = state;
+            modCount = old.txs.getModCount();
+            txs = old.txs.getAll();
+            oldAS = old.as.clone();
+        }
 
-            // update pending state
-            long accepted = 0;
-            for (PendingTransaction tx : txs) {
-                accepted += processTransaction(tx.transaction, true, false).accepted;
+        PendingState next = new PendingState(kernel.getBlockchain().snapshot());
+        long accepted = rebuild(next, oldAS, txs, blocks, t1);
+
+        synchronized (this) {
+            if (!isRunning) {
+                next.close();
+                return;
             }
 
+            // transactions have been admitted meanwhile, execute the pool again
+            if (state != old || old.txs.getModCount() != modCount) {
+                next.close();
+                next = new PendingState(kernel.getBlockchain().snapshot());
+                txs = state.txs.getAll();
+                accepted = rebuild(next, state.as, txs, blocks, t1);
+            }
+            state.close();
+            state = next;
+
             long t2 = TimeUtil.currentTimeMillis();
-            logger.debug("Execute pending transactions: # txs = {} / {},  time = {} ms", accepted, txs.size(), t2 - t1);
+            logger.debug(
+                    "Revalidate pending transactions: # txs = {} / {}, time = {} ms, "
+                            + "pending state: depth = {}, size = {} / {}",
+                    accepted, txs.size(), t2 - t1, state.as.getDepth(), state.as.getSize(), state.ds.getSize());
+
+            evictLowestPriority();
+        }
+
+        // the pool may have room for queued transactions again
+        if (isRunning && drainScheduled.compareAndSet(false, true)) {
+            exec.execute(this);
         }
     }
 
+    /**
+     * Executes the pending transactions again on a new pending state, after new
+     * blocks.
+     *
+     * @param s
+     * @param oldAS
+     * @param txs
+     * @param blocks
+     * @param now
+     * @return the number of pending transactions
+     */
+    private long rebuild(PendingState s, AccountState oldAS, List<PendingTransaction> txs, List<Block> blocks,
+            long now) {
+        // accounts touched by the new blocks
+        Set<ByteArray> included = new HashSet<>();
+        Set<ByteArray> dirty = new HashSet<>();
+        boolean rebuild = false;
+        for (Block b : blocks) {
+            dirty.add(ByteArray.of(b.getCoinbase()));
+            for (Transaction tx : b.getTransactions()) {
+                included.add(ByteArray.of(tx.getHash()));
+                dirty.add(ByteArray.of(tx.getFrom()));
+                dirty.add(ByteArray.of(tx.getTo()));
+                rebuild |= tx.isVMTransaction();
+            }
+        }
+
+        // VM transactions may touch any account
+        for (PendingTransaction ptx : txs) {
+            rebuild |= ptx.transaction.isVMTransaction();
+        }
+
+        return rebuild ? rebuildAll(s, txs) : rebuildAffected(s, oldAS, txs, included, dirty, now);
+    }
+
+    /**
+     * Executes all the pending transactions again.
+     *
+     * @param s
+     * @param txs
+     * @return the number of pending transactions
+     */
+    private long rebuildAll(PendingState s, List<PendingTransaction> txs) {
+        s.reset();
+
+        long accepted = 0;
+        for (PendingTransaction ptx : txs) {
+            accepted += processTransaction(s, ptx.transaction, true, false).accepted;
+        }
+        return accepted;
+    }
+
+    /**
+     * Executes again the pending transactions which involve a dirty account, and
+     * keeps the others along with their pending account state.
+     *
+     * @param s
+     * @param oldAS
+     * @param txs
+     * @param included
+     * @param dirty
+     * @param now
+     * @return the number of pending transactions
+     */
+    private long rebuildAffected(PendingState s, AccountState oldAS, List<PendingTransaction> txs,
+            Set<ByteArray> included, Set<ByteArray> dirty, long now) {
+        boolean[] affected = carryOver(s, oldAS, txs, included, dirty, now);
+
+        long accepted = 0;
+        for (int i = 0; i < txs.size(); i++) {
+            PendingTransaction ptx = txs.get(i);
+            if (!affected[i]) {
+                s.txs.add(ptx);
+                accepted++;
+            } else if (!included.contains(ByteArray.of(ptx.transaction.getHash()))) {
+                accepted += processTransaction(s, ptx.transaction, true, false).accepted;
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Resets the pending state and carries over the old pending state of the
+     * accounts which are not involved in an affected transaction. A transaction is
+     * affected if it involves a dirty account, which makes the accounts it touches
+     * dirty as well.
+     *
+     * @param s
+     * @param oldAS
+     * @param txs
+     * @param included
+     * @param dirty
+     * @param now
+     * @return whether each transaction is affected and needs to be executed again
+     */
+    private boolean[] carryOver(PendingState s, AccountState oldAS, List<PendingTransaction> txs,
+            Set<ByteArray> included, Set<ByteArray> dirty, long now) {
+        long drift = kernel.getConfig().poolMaxTransactionTimeDrift();
+
+        // an affected transaction makes the accounts it touches dirty
+        boolean[] affected = new boolean[txs.size()];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < txs.size(); i++) {
+                Transaction tx = txs.get(i).transaction;
+                ByteArray from = ByteArray.of(tx.getFrom());
+                ByteArray to = ByteArray.of(tx.getTo());
+
+                if (!affected[i] && (included.contains(ByteArray.of(tx.getHash()))
+                        // the delegate state is rebuilt from the chain
+                        || tx.getType() != TransactionType.TRANSFER
+                        || tx.getTimestamp() < now - drift || tx.getTimestamp() > now + drift
+                        || dirty.contains(from) || dirty.contains(to))) {
+                    affected[i] = true;
+                    changed |= dirty.add(from) | dirty.add(to);
+                }
+            }
+        }
+
+        // carry over the pending state of unaffected accounts
+        s.reset();
+        Set<ByteArray> copied = new HashSet<>();
+        for (int i = 0; i < txs.size(); i++) {
+            if (!affected[i]) {
+                Transaction tx = txs.get(i).transaction;
+                for (byte[] address : new byte[][] { tx.getFrom(), tx.getTo() }) {
+                    if (copied.add(ByteArray.of(address))) {
+                        Account oldAcc = oldAS.getAccount(address);
+                        Account newAcc = s.as.getAccount(address);
+                        s.as.adjustAvailable(address, oldAcc.getAvailable().subtract(newAcc.getAvailable()));
+                        s.as.adjustLocked(address, oldAcc.getLocked().subtract(newAcc.getLocked()));
+                        s.as.setNonce(address, oldAcc.getNonce());
+                    }
+                }
+            }
+        }
+        return affected;
+    }
+
     @Override
-    public synchronized void run() {
-        Iterator<Map.Entry<ByteArray, Transaction>> iterator = queue.entrySet().iterator();
+    public void run() {
+        drainScheduled.set(false);
+
+        List<QueuedTransaction> batch;
+        while (isRunning && !(batch = pollBatch()).isEmpty()) {
+            long t1 = System.nanoTime();
+
+            // stateless checks and signature verification, without holding the lock
+            boolean[] valid = validate(batch);
+
+            // nonce-ordered execution against the pending state
+            int accepted = 0;
+            synchronized (this) {
+                for (int i = 0; i < batch.size(); i++) {
+                    Transaction tx = batch.get(i).transaction;
+                    ByteArray hash = ByteArray.of(tx.getHash());
+                    if (processedTxs.getIfPresent(hash) != null) {
+                        continue;
+                    }
+
+                    if (valid[i]) {
+                        accepted += processTransaction(state, tx, false, false).accepted;
+                    }
+                    processedTxs.put(hash, TimeUtil.currentTimeMillis());
+                }
+                evictLowestPriority();
+            }
+
+            long t2 = System.nanoTime();
+            metrics.record(batch, accepted, t2);
+            logger.trace("Admitted pending transactions: # txs = {} / {}, time = {} μs", accepted, batch.size(),
+                    (t2 - t1) / 1000L);
+        }
+    }
 
-        while (validTxs.size() < VALID_TXS_LIMIT && iterator.hasNext()) {
-            // the eldest entry
-            Map.Entry<ByteArray, Transaction> entry = iterator.next();
+    /**
+     * Removes the next batch of transactions from the queue, grouped by sender and
+     * ordered by nonce.
+     *
+     * @return
+     */
+    protected synchronized List<QueuedTransaction> pollBatch() {
+        // group by sender, in order of first arrival
+        Map<ByteArray, List<QueuedTransaction>> senders = new LinkedHashMap<>();
+        Iterator<QueuedTransaction> iterator = queue.values().iterator();
+        for (int i = 0; i < BATCH_SIZE && iterator.hasNext(); i++) {
+            QueuedTransaction qtx = iterator.next();
             iterator.remove();
 
-            // reject already executed transactions
-            if (processedTxs.getIfPresent(entry.getKey()) != null) {
-                continue;
-            }
+            byte[] from = qtx.transaction.getFrom();
+            senders.computeIfAbsent(ByteArray.of(from == null ? Bytes.EMPTY_BYTES : from), k -> new ArrayList<>())
+                    .add(qtx);
+        }
 
-            // process the transaction
-            int accepted = processTransaction(entry.getValue(), false, false).accepted;
-            processedTxs.put(entry.getKey(), TimeUtil.currentTimeMillis());
+        List<QueuedTransaction> batch = new ArrayList<>();
+        for (List<QueuedTransaction> list : senders.values()) {
+            list.sort(Comparator.comparingLong(qtx -> qtx.transaction.getNonce()));
+            batch.addAll(list);
+        }
+        return batch;
+    }
 
-            // include one tx per call
-            if (accepted > 0) {
-                break;
+    /**
+     * Validates the format and signature of transactions in parallel, using batch
+     * verification if available.
+     *
+     * @param batch
+     * @return whether each transaction is valid
+     */
+    protected boolean[] validate(List<QueuedTransaction> batch) {
+        Network network = kernel.getConfig().network();
+
+        boolean[] valid = new boolean[batch.size()];
+        IntStream.range(0, batch.size()).parallel()
+                .forEach(i -> valid[i] = batch.get(i).transaction.validate(network, false));
+
+        List<byte[]> hashes = new ArrayList<>();
+        List<Key.Signature> signatures = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (valid[i]) {
+                hashes.add(batch.get(i).transaction.getHash());
+                signatures.add(batch.get(i).transaction.getSignature());
             }
         }
+
+        // find the invalid signatures one by one if the batch is rejected
+        if (!SignatureCache.verifyBatch(hashes, signatures)) {
+            IntStream.range(0, batch.size()).parallel()
+                    .filter(i -> valid[i])
+                    .forEach(i -> valid[i] = SignatureCache.verify(batch.get(i).transaction.getHash(),
+                            batch.get(i).transaction.getSignature()));
+        }
+
+        return valid;
     }
 
     /**
      * Validates the given transaction and add to pool if success.
      *
+     * @param s
+     *            the pending state
      * @param tx
      *            a transaction
      * @param isIncludedBefore
@@ -310,7 +637,8 @@ public class PendingManager implements Runnable, BlockchainListener {
      *            whether the transaction is from this node
      * @return the number of transactions that have been included
      */
-    protected ProcessingResult processTransaction(Transaction tx, boolean isIncludedBefore, boolean isFromThisNode) {
+    private ProcessingResult processTransaction(PendingState s, Transaction tx, boolean isIncludedBefore,
+            boolean isFromThisNode) {
 
         int cnt = 0;
         long now = TimeUtil.currentTimeMillis();
@@ -338,22 +666,26 @@ public class PendingManager implements Runnable, BlockchainListener {
         }
 
         // report INVALID_NONCE error to prevent the transaction from being
-        // silently ignored due to a low nonce
-        if (tx.getNonce() < getNonce(tx.getFrom())) {
+        // silently ignored due to a low nonce, unless it replaces a pending one
+        if (tx.getNonce() < s.getNonce(tx.getFrom())) {
+            PendingTransaction old = s.txs.get(tx.getFrom(), tx.getNonce());
+            if (old != null && !Arrays.equals(old.transaction.getHash(), tx.getHash())) {
+                return replaceTransaction(s, old, tx, isFromThisNode);
+            }
             return new ProcessingResult(0, TransactionResult.Code.INVALID_NONCE);
         }
 
         // Check transaction nonce: pending transactions must be executed sequentially
         // by nonce in ascending order. In case of a nonce jump, the transaction is
         // delayed for the next event loop of PendingManager.
-        while (tx != null && tx.getNonce() == getNonce(tx.getFrom())) {
+        while (tx != null && tx.getNonce() == s.getNonce(tx.getFrom())) {
 
             // execute transactions
-            AccountState as = pendingAS.track();
-            DelegateState ds = pendingDS.track();
+            AccountState as = s.as.track();
+            DelegateState ds = s.ds.track();
             TransactionResult result = new TransactionExecutor(kernel.getConfig(), blockStore,
                     kernel.getBlockchain().isVMEnabled(), kernel.getBlockchain().isVotingPrecompiledUpgraded())
-                            .execute(tx, as, ds, dummyBlock, 0);
+                            .execute(tx, as, ds, s.dummyBlock, 0);
 
             if (result.getCode().isAcceptable()) {
                 // commit state updates
@@ -363,7 +695,7 @@ public class PendingManager implements Runnable, BlockchainListener {
                 // Add the successfully processed transaction into the pool of transactions
                 // which are ready to be proposed to the network.
                 PendingTransaction pendingTransaction = new PendingTransaction(tx, result);
-                validTxs.add(pendingTransaction);
+                s.txs.add(pendingTransaction);
                 cnt++;
 
                 // If a transaction is not included before, send it to the network now
@@ -376,20 +708,117 @@ public class PendingManager implements Runnable, BlockchainListener {
                 return new ProcessingResult(cnt, result.getCode());
             }
 
-            tx = largeNonceTxs.getIfPresent(createKey(tx.getFrom(), getNonce(tx.getFrom())));
+            tx = largeNonceTxs.getIfPresent(createKey(tx.getFrom(), s.getNonce(tx.getFrom())));
             isIncludedBefore = false; // A large-nonce transaction is not included before
         }
 
         // Delay the transaction for the next event loop of PendingManager. The delayed
         // transaction is expected to be processed once PendingManager has received
         // all of its preceding transactions from the same address.
-        if (tx != null && tx.getNonce() > getNonce(tx.getFrom())) {
+        if (tx != null && tx.getNonce() > s.getNonce(tx.getFrom())) {
             largeNonceTxs.put(createKey(tx), tx);
         }
 
         return new ProcessingResult(cnt);
     }
 
+    /**
+     * Replaces a pending transaction with one of the same sender and nonce. Only
+     * the pending transactions depending on the replaced one, i.e. the following
+     * transactions of the sender and of the involved accounts, are executed again.
+     *
+     * @param s
+     *            the pending state
+     * @param old
+     *            the pending transaction
+     * @param tx
+     *            the replacement, which must pay a higher fee
+     * @param isFromThisNode
+     *            whether the replacement is from this node
+     * @return
+     */
+    private ProcessingResult replaceTransaction(PendingState s, PendingTransaction old, Transaction tx,
+            boolean isFromThisNode) {
+        if (s.txs.getPrice(tx) * 100 < s.txs.getPrice(old.transaction) * (100 + REPLACEMENT_FEE_BUMP)) {
+            return new ProcessingResult(0, TransactionResult.Code.INVALID_FEE);
+        }
+
+        List<PendingTransaction> txs = s.txs.getAll();
+        long now = TimeUtil.currentTimeMillis();
+
+        // VM transactions may touch any account
+        boolean rebuild = tx.isVMTransaction();
+        for (PendingTransaction ptx : txs) {
+            rebuild |= ptx.transaction.isVMTransaction();
+        }
+
+        Set<ByteArray> dirty = new HashSet<>();
+        dirty.add(ByteArray.of(tx.getFrom()));
+        dirty.add(ByteArray.of(tx.getTo()));
+        dirty.add(ByteArray.of(old.transaction.getTo()));
+
+        // the replacement takes the place of the old transaction
+        AccountState oldAS = s.as;
+        boolean[] affected = rebuild ? null : carryOver(s, oldAS, txs, Collections.emptySet(), dirty, now);
+        if (rebuild) {
+            s.reset();
+        }
+        TransactionResult.Code error = null;
+        for (int i = 0; i < txs.size(); i++) {
+            PendingTransaction ptx = txs.get(i);
+            if (ptx == old) {
+                error = processTransaction(s, tx, false, isFromThisNode).error;
+            } else if (affected == null || affected[i]) {
+                processTransaction(s, ptx.transaction, true, false);
+            } else {
+                s.txs.add(ptx);
+            }
+        }
+        if (s.txs.contains(tx.getHash())) {
+            return new ProcessingResult(1);
+        }
+
+        // restore the old transaction if the replacement is invalid
+        if (rebuild) {
+            rebuildAll(s, txs);
+        } else {
+            rebuildAffected(s, oldAS, txs, Collections.emptySet(), dirty, now);
+        }
+        return new ProcessingResult(0, error == null ? TransactionResult.Code.INVALID : error);
+    }
+
+    /**
+     * Evicts the lowest-priority transactions if the pool is full. Only the
+     * pending transactions involving the accounts of the evicted ones are executed
+     * again.
+     */
+    private void evictLowestPriority() {
+        if (state.txs.size() > VALID_TXS_LIMIT) {
+            List<PendingTransaction> evicted = state.txs.evict(VALID_TXS_LIMIT);
+            List<PendingTransaction> txs = state.txs.getAll();
+
+            Set<ByteArray> dirty = new HashSet<>();
+            boolean rebuild = false;
+            for (PendingTransaction ptx : evicted) {
+                dirty.add(ByteArray.of(ptx.transaction.getFrom()));
+                dirty.add(ByteArray.of(ptx.transaction.getTo()));
+                rebuild |= ptx.transaction.isVMTransaction();
+            }
+
+            // VM transactions may touch any account
+            for (PendingTransaction ptx : txs) {
+                rebuild |= ptx.transaction.isVMTransaction();
+            }
+
+            if (rebuild) {
+                rebuildAll(state, txs);
+            } else {
+                rebuildAffected(state, state.as, txs, Collections.emptySet(), dirty, TimeUtil.currentTimeMillis());
+            }
+            logger.debug("Evicted pending transactions: # txs = {}, full = {}", evicted.size(), rebuild);
+        }
+    }
+
     private void broadcastTransaction(Transaction tx, boolean toAllPeers) {
         List<Channel> channels = kernel.getChannelManager().getActiveChannels();
 
@@ -417,6 +846,140 @@ public class PendingManager implements Runnable, BlockchainListener {
         return ByteArray.of(Bytes.merge(acc, Bytes.of(nonce)));
     }
 
+    /**
+     * The pending state and the transactions executed against it, based on the
+     * latest state of the chain or on a snapshot of it.
+     */
+    private class PendingState {
+
+        private final BlockchainSnapshot snapshot;
+        private final PendingTransactionPool txs;
+        private AccountState as;
+        private DelegateState ds;
+        private SemuxBlock dummyBlock;
+
+        private PendingState(BlockchainSnapshot snapshot) {
+            this.snapshot = snapshot;
+            this.txs = new PendingTransactionPool(kernel.getConfig().spec().nonVMTransactionGasCost());
+            reset();
+        }
+
+        /**
+         * Resets the state to its base and clears the transaction pool.
+         */
+        private void reset() {
+            if (snapshot == null) {
+                as = kernel.getBlockchain().getAccountState().track();
+                ds = kernel.getBlockchain().getDelegateState().track();
+            } else {
+                as = snapshot.getAccountState().track();
+                ds = snapshot.getDelegateState().track();
+            }
+            dummyBlock = kernel.createEmptyBlock();
+            txs.clear();
+        }
+
+        private long getNonce(byte[] address) {
+            return as.getAccount(address).getNonce();
+        }
+
+        /**
+         * Releases the chain snapshot, if any.
+         */
+        private void close() {
+            if (snapshot != null) {
+                snapshot.close();
+            }
+        }
+    }
+
+    /**
+     * A transaction waiting in the queue, with the time it was queued at.
+     */
+    protected static class QueuedTransaction {
+
+        public final Transaction transaction;
+
+        public final long queuedAt;
+
+        public QueuedTransaction(Transaction transaction, long queuedAt) {
+            this.transaction = transaction;
+            this.queuedAt = queuedAt;
+        }
+    }
+
+    /**
+     * Metrics of the transactions admitted from the queue.
+     */
+    public static class AdmissionMetrics {
+
+        private final long startedAt = System.nanoTime();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong accepted = new AtomicLong();
+        private final AtomicLong totalQueueNanos = new AtomicLong();
+        private final AtomicLong lastQueueNanos = new AtomicLong();
+
+        protected void record(List<QueuedTransaction> batch, int accepted, long now) {
+            long queueNanos = 0;
+            for (QueuedTransaction qtx : batch) {
+                queueNanos += now - qtx.queuedAt;
+            }
+
+            this.processed.addAndGet(batch.size());
+            this.accepted.addAndGet(accepted);
+            this.totalQueueNanos.addAndGet(queueNanos);
+            this.lastQueueNanos.set(queueNanos / batch.size());
+        }
+
+        /**
+         * Returns the number of transactions taken from the queue.
+         *
+         * @return
+         */
+        public long getProcessed() {
+            return processed.get();
+        }
+
+        /**
+         * Returns the number of transactions accepted into the pool.
+         *
+         * @return
+         */
+        public long getAccepted() {
+            return accepted.get();
+        }
+
+        /**
+         * Returns the number of transactions accepted per second, on average.
+         *
+         * @return
+         */
+        public long getIntakeRate() {
+            long nanos = System.nanoTime() - startedAt;
+            return nanos == 0 ? 0 : accepted.get() * 1_000_000_000L / nanos;
+        }
+
+        /**
+         * Returns the average time spent in the queue, in milliseconds.
+         *
+         * @return
+         */
+        public long getAverageQueueLatency() {
+            long n = processed.get();
+            return n == 0 ? 0 : totalQueueNanos.get() / n / 1_000_000L;
+        }
+
+        /**
+         * Returns the average time spent in the queue by the last batch, in
+         * milliseconds.
+         *
+         * @return
+         */
+        public long getLastQueueLatency() {
+            return lastQueueNanos.get() / 1_000_000L;
+        }
+    }
+
     /**
      * This object represents a transaction and its execution result against a
      * snapshot of local state that is not yet confirmed by the network.
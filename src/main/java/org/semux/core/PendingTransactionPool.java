@@ -0,0 +1,236 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+import org.semux.core.PendingManager.PendingTransaction;
+import org.semux.util.ByteArray;
+
+/**
+ * The valid pending transactions, kept in execution order and in per-sender
+ * nonce chains. Transactions are selected by effective gas price while
+ * respecting the nonce order of each sender.<br>
+ * <br>
+ * This class is not thread-safe.
+ */
+class PendingTransactionPool {
+
+    /**
+     * Higher price first, then earlier arrival.
+     */
+    private static final Comparator<Entry> PRIORITY = (e1, e2) -> {
+        int cmp = Long.compare(e2.price, e1.price);
+        return (cmp != 0) ? cmp : Long.compare(e1.seq, e2.seq);
+    };
+
+    private final long nonVMTransactionGasCost;
+
+    private final LinkedHashMap<ByteArray, Entry> byHash = new LinkedHashMap<>();
+    private final Map<ByteArray, TreeMap<Long, Entry>> bySender = new HashMap<>();
+    private long seq = 0;
+    private long modCount = 0;
+
+    /**
+     * Creates a pool.
+     *
+     * @param nonVMTransactionGasCost
+     *            the gas charged to non-VM transactions
+     */
+    PendingTransactionPool(long nonVMTransactionGasCost) {
+        this.nonVMTransactionGasCost = nonVMTransactionGasCost;
+    }
+
+    /**
+     * Returns the effective gas price of a transaction: the gas price of VM
+     * transactions, or the fee divided by the gas cost of other transactions.
+     *
+     * @param tx
+     * @return the price in nano SEM per gas
+     */
+    long getPrice(Transaction tx) {
+        return tx.isVMTransaction() ? tx.getGasPrice().toLong() : tx.getFee().toLong() / nonVMTransactionGasCost;
+    }
+
+    int size() {
+        return byHash.size();
+    }
+
+    /**
+     * Returns the number of modifications of this pool, which tells whether it has
+     * changed since a previous call.
+     *
+     * @return
+     */
+    long getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Appends a transaction, which has been executed after all the transactions
+     * of this pool.
+     *
+     * @param ptx
+     */
+    void add(PendingTransaction ptx) {
+        Transaction tx = ptx.transaction;
+        Entry e = new Entry(ptx, getPrice(tx), seq++);
+        modCount++;
+
+        byHash.put(ByteArray.of(tx.getHash()), e);
+        bySender.computeIfAbsent(ByteArray.of(tx.getFrom()), k -> new TreeMap<>()).put(tx.getNonce(), e);
+    }
+
+    /**
+     * Returns the transaction of a sender with the given nonce.
+     *
+     * @param from
+     * @param nonce
+     * @return the pending transaction, or null if not found
+     */
+    PendingTransaction get(byte[] from, long nonce) {
+        TreeMap<Long, Entry> chain = bySender.get(ByteArray.of(from));
+        Entry e = (chain == null) ? null : chain.get(nonce);
+        return (e == null) ? null : e.ptx;
+    }
+
+    /**
+     * Returns whether the pool contains a transaction.
+     *
+     * @param hash
+     * @return
+     */
+    boolean contains(byte[] hash) {
+        return byHash.containsKey(ByteArray.of(hash));
+    }
+
+    /**
+     * Returns all the transactions in execution order.
+     *
+     * @return
+     */
+    List<PendingTransaction> getAll() {
+        List<PendingTransaction> list = new ArrayList<>(byHash.size());
+        for (Entry e : byHash.values()) {
+            list.add(e.ptx);
+        }
+        return list;
+    }
+
+    /**
+     * Removes all the transactions.
+     *
+     * @return the removed transactions, in execution order
+     */
+    List<PendingTransaction> clear() {
+        List<PendingTransaction> list = getAll();
+        byHash.clear();
+        bySender.clear();
+        modCount++;
+        return list;
+    }
+
+    /**
+     * Selects transactions by priority, in nonce order for each sender, until the
+     * gas limit is reached. A sender whose next transaction doesn't fit is
+     * skipped.
+     *
+     * @param gasLimit
+     * @return
+     */
+    List<PendingTransaction> select(long gasLimit) {
+        List<PendingTransaction> result = new ArrayList<>();
+
+        // the lowest nonce of each sender
+        PriorityQueue<Entry> heads = new PriorityQueue<>(Math.max(1, bySender.size()), PRIORITY);
+        Map<Entry, Iterator<Entry>> chains = new HashMap<>();
+        for (TreeMap<Long, Entry> chain : bySender.values()) {
+            Iterator<Entry> it = chain.values().iterator();
+            Entry head = it.next();
+            heads.add(head);
+            chains.put(head, it);
+        }
+
+        while (!heads.isEmpty() && gasLimit > 0) {
+            Entry e = heads.poll();
+            Iterator<Entry> it = chains.remove(e);
+
+            Transaction tx = e.ptx.transaction;
+            long gasUsage = tx.isVMTransaction() ? e.ptx.result.getGasUsed() : nonVMTransactionGasCost;
+            if (gasLimit > gasUsage) {
+                result.add(e.ptx);
+                gasLimit -= gasUsage;
+
+                if (it.hasNext()) {
+                    Entry next = it.next();
+                    heads.add(next);
+                    chains.put(next, it);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Evicts the lowest-priority transactions until the pool size is within the
+     * limit. Only the last transaction of a sender's chain can be evicted.
+     *
+     * @param limit
+     * @return the evicted transactions
+     */
+    List<PendingTransaction> evict(int limit) {
+        List<PendingTransaction> evicted = new ArrayList<>();
+        if (byHash.size() <= limit) {
+            return evicted;
+        }
+
+        PriorityQueue<Entry> tails = new PriorityQueue<>(bySender.size(), PRIORITY.reversed());
+        for (TreeMap<Long, Entry> chain : bySender.values()) {
+            tails.add(chain.lastEntry().getValue());
+        }
+
+        while (byHash.size() > limit) {
+            Entry e = tails.poll();
+            Transaction tx = e.ptx.transaction;
+            ByteArray from = ByteArray.of(tx.getFrom());
+
+            byHash.remove(ByteArray.of(tx.getHash()));
+            TreeMap<Long, Entry> chain = bySender.get(from);
+            chain.remove(tx.getNonce());
+            if (chain.isEmpty()) {
+                bySender.remove(from);
+            } else {
+                tails.add(chain.lastEntry().getValue());
+            }
+            evicted.add(e.ptx);
+            modCount++;
+        }
+
+        return evicted;
+    }
+
+    private static class Entry {
+        final PendingTransaction ptx;
+        final long price;
+        final long seq;
+
+        Entry(PendingTransaction ptx, long price, long seq) {
+            this.ptx = ptx;
+            this.price = price;
+            this.seq = seq;
+        }
+    }
+}
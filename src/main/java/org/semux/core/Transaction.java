@@ -18,6 +18,7 @@ import org.semux.crypto.Hash;
 import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
 import org.semux.crypto.Key.Signature;
+import org.semux.crypto.cache.SignatureCache;
 import org.semux.util.SimpleDecoder;
 import org.semux.util.SimpleEncoder;
 
@@ -75,49 +76,27 @@ public class Transaction {
         this.gas = gas;
         this.gasPrice = gasPrice;
 
-        SimpleEncoder enc = new SimpleEncoder();
-        enc.writeByte(networkId);
-        enc.writeByte(type.toByte());
-        enc.writeBytes(to);
-        enc.writeAmount(value);
-        enc.writeAmount(fee);
-        enc.writeLong(nonce);
-        enc.writeLong(timestamp);
-        enc.writeBytes(data);
-
-        if (TransactionType.CALL == type || TransactionType.CREATE == type) {
-            enc.writeLong(gas);
-            enc.writeAmount(gasPrice);
-        }
-        this.encoded = enc.toBytes();
+        this.encoded = encode(networkId, type, to, value, fee, nonce, timestamp, data, gas, gasPrice);
         this.hash = Hash.h256(encoded);
     }
 
     /**
-     * Create a signed transaction from raw bytes
-     *
-     * @param hash
-     * @param encoded
-     * @param signature
+     * Create a transaction from decoded fields, without encoding it again.
      */
-    private Transaction(byte[] hash, byte[] encoded, byte[] signature) {
-        this.hash = hash;
-
-        Transaction decodedTx = fromEncoded(encoded);
-        this.networkId = decodedTx.networkId;
-        this.type = decodedTx.type;
-        this.to = decodedTx.to;
-        this.value = decodedTx.value;
-        this.fee = decodedTx.fee;
-        this.nonce = decodedTx.nonce;
-        this.timestamp = decodedTx.timestamp;
-        this.data = decodedTx.data;
-
-        this.gas = decodedTx.gas;
-        this.gasPrice = decodedTx.gasPrice;
-
+    private Transaction(byte networkId, TransactionType type, byte[] to, Amount value, Amount fee, long nonce,
+            long timestamp, byte[] data, long gas, Amount gasPrice, byte[] encoded, byte[] hash) {
+        this.networkId = networkId;
+        this.type = type;
+        this.to = to;
+        this.value = value;
+        this.fee = fee;
+        this.nonce = nonce;
+        this.timestamp = timestamp;
+        this.data = data;
+        this.gas = gas;
+        this.gasPrice = gasPrice;
         this.encoded = encoded;
-        this.signature = Signature.fromBytes(signature);
+        this.hash = hash;
     }
 
     public Transaction(Network network, TransactionType type, byte[] toAddress, Amount value, Amount fee, long nonce,
@@ -172,7 +151,7 @@ public class Transaction {
                 && signature != null && !Arrays.equals(signature.getAddress(), EMPTY_ADDRESS)
 
                 && Arrays.equals(Hash.h256(encoded), hash)
-                && (!verifySignature || Key.verify(hash, signature))
+                && (!verifySignature || SignatureCache.verify(hash, signature))
 
                 // The coinbase key is publicly available. People can use it for transactions.
                 // It won't introduce any fundamental loss to the system but could potentially
@@ -296,6 +275,43 @@ public class Transaction {
      * @return the decoded transaction
      */
     public static Transaction fromEncoded(byte[] encoded) {
+        return decode(encoded, null);
+    }
+
+    /**
+     * Encodes the fields of a transaction into an exactly sized array.
+     */
+    private static byte[] encode(byte networkId, TransactionType type, byte[] to, Amount value, Amount fee,
+            long nonce, long timestamp, byte[] data, long gas, Amount gasPrice) {
+        boolean isVM = TransactionType.CALL == type || TransactionType.CREATE == type;
+        int size = 1 + 1 + SimpleEncoder.sizeOf(to) + 8 + 8 + 8 + 8 + SimpleEncoder.sizeOf(data) + (isVM ? 16 : 0);
+
+        SimpleEncoder enc = new SimpleEncoder(size);
+        enc.writeByte(networkId);
+        enc.writeByte(type.toByte());
+        enc.writeBytes(to);
+        enc.writeAmount(value);
+        enc.writeAmount(fee);
+        enc.writeLong(nonce);
+        enc.writeLong(timestamp);
+        enc.writeBytes(data);
+
+        if (isVM) {
+            enc.writeLong(gas);
+            enc.writeAmount(gasPrice);
+        }
+        return enc.toBytes();
+    }
+
+    /**
+     * Parses the fields of an encoded transaction, without encoding it again.
+     *
+     * @param encoded
+     * @param hash
+     *            the transaction hash, or null to compute it
+     * @return
+     */
+    private static Transaction decode(byte[] encoded, byte[] hash) {
         SimpleDecoder decoder = new SimpleDecoder(encoded);
 
         byte networkId = decoder.readByte();
@@ -316,8 +332,16 @@ public class Transaction {
             gasPrice = decoder.readAmount();
         }
 
-        return new Transaction(Network.of(networkId), transactionType, to, value, fee, nonce, timestamp, data,
-                gas, gasPrice);
+        if (hash == null) {
+            // trailing bytes are not part of the transaction
+            if (decoder.getReadIndex() != encoded.length) {
+                encoded = Arrays.copyOf(encoded, decoder.getReadIndex());
+            }
+            hash = Hash.h256(encoded);
+        }
+
+        return new Transaction(networkId, transactionType, to, value, fee, nonce, timestamp, data, gas, gasPrice,
+                encoded, hash);
     }
 
     /**
@@ -335,10 +359,12 @@ public class Transaction {
      * @return
      */
     public byte[] toBytes() {
-        SimpleEncoder enc = new SimpleEncoder();
+        byte[] sig = signature.toBytes();
+        SimpleEncoder enc = new SimpleEncoder(
+                SimpleEncoder.sizeOf(hash) + SimpleEncoder.sizeOf(encoded) + SimpleEncoder.sizeOf(sig));
         enc.writeBytes(hash);
         enc.writeBytes(encoded);
-        enc.writeBytes(signature.toBytes());
+        enc.writeBytes(sig);
 
         return enc.toBytes();
     }
@@ -355,7 +381,9 @@ public class Transaction {
         byte[] encoded = dec.readBytes();
         byte[] signature = dec.readBytes();
 
-        return new Transaction(hash, encoded, signature);
+        Transaction tx = decode(encoded, hash);
+        tx.signature = Signature.fromBytes(signature);
+        return tx;
     }
 
     /**
@@ -13,8 +13,11 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.ethereum.vm.DataWord;
 import org.ethereum.vm.LogInfo;
@@ -29,7 +32,10 @@ import org.semux.core.TransactionResult.Code;
 import org.semux.core.state.Account;
 import org.semux.core.state.AccountState;
 import org.semux.core.state.DelegateState;
+import org.semux.core.state.RecordingAccountState;
+import org.semux.core.state.RecordingDelegateState;
 import org.semux.crypto.Hex;
+import org.semux.util.ByteArray;
 import org.semux.util.Bytes;
 import org.semux.util.SystemUtil;
 import org.semux.vm.client.SemuxBlock;
@@ -84,6 +90,11 @@ public class TransactionExecutor {
         return true;
     }
 
+    /**
+     * The minimum number of transactions to execute in parallel.
+     */
+    private static final int MIN_PARALLEL_TRANSACTIONS = 4;
+
     private ChainSpec spec;
     private BlockStore blockStore;
     private boolean isVMEnabled;
@@ -298,6 +309,103 @@ public class TransactionExecutor {
         return results;
     }
 
+    /**
+     * Execute a list of transactions in parallel, with the same results and state
+     * changes as {@link #execute(List, AccountState, DelegateState, SemuxBlock, long)}.
+     * <br>
+     * <br>
+     * Each transaction is first executed speculatively on its own track of the
+     * given states, recording the keys it reads and writes. The speculative
+     * executions are then committed in the block order; a transaction which read
+     * a key written by a preceding transaction is executed again on top of the
+     * committed states.<br>
+     * <br>
+     * Lists with VM transactions, or which may exceed the block gas limit, are
+     * executed sequentially, since the result of a transaction then depends on
+     * the gas used by the preceding ones.
+     *
+     * NOTE: transaction format and signature are assumed to be success.
+     *
+     * @param txs
+     *            transactions
+     * @param as
+     *            account state
+     * @param ds
+     *            delegate state
+     * @param block
+     *            the block context
+     * @param gasUsedInBlock
+     *            the amount of gas that has been consumed by previous transaction
+     *            in the block
+     * @return
+     */
+    public List<TransactionResult> executeParallel(List<Transaction> txs, AccountState as, DelegateState ds,
+            SemuxBlock block, long gasUsedInBlock) {
+        if (txs.size() < MIN_PARALLEL_TRANSACTIONS
+                || txs.stream().anyMatch(Transaction::isVMTransaction)
+                || gasUsedInBlock + spec.nonVMTransactionGasCost() * txs.size() > block.getGasLimit()) {
+            return execute(txs, as, ds, block, gasUsedInBlock);
+        }
+
+        // [1] speculative execution, against the initial states
+        List<SpeculativeExecution> executions = IntStream.range(0, txs.size())
+                .parallel()
+                .mapToObj(i -> new SpeculativeExecution(txs.get(i), as, ds, block, gasUsedInBlock))
+                .collect(Collectors.toList());
+
+        // [2] validation and commit, in the block order
+        List<TransactionResult> results = new ArrayList<>(txs.size());
+        Set<ByteArray> accountWrites = new HashSet<>();
+        Set<ByteArray> delegateWrites = new HashSet<>();
+        int reexecuted = 0;
+        for (int i = 0; i < txs.size(); i++) {
+            SpeculativeExecution e = executions.get(i);
+            if (e.conflictsWith(accountWrites, delegateWrites)) {
+                e = new SpeculativeExecution(txs.get(i), as, ds, block, gasUsedInBlock);
+                reexecuted++;
+            }
+
+            e.commit();
+            accountWrites.addAll(e.as.getWrites());
+            delegateWrites.addAll(e.ds.getWrites());
+            results.add(e.result);
+        }
+        logger.trace("Parallel execution: # txs = {}, # re-executed = {}", txs.size(), reexecuted);
+
+        return results;
+    }
+
+    /**
+     * The execution of a single transaction on its own tracks of the states.
+     */
+    private class SpeculativeExecution {
+        private final RecordingAccountState as;
+        private final RecordingDelegateState ds;
+        private final TransactionResult result;
+
+        SpeculativeExecution(Transaction tx, AccountState as, DelegateState ds, SemuxBlock block,
+                long gasUsedInBlock) {
+            this.as = new RecordingAccountState(as.track());
+            this.ds = new RecordingDelegateState(ds.track());
+            this.result = execute(Collections.singletonList(tx), this.as, this.ds, block, gasUsedInBlock).get(0);
+        }
+
+        /**
+         * Returns whether this execution read any of the given writes, in which
+         * case it may have observed a stale state.
+         */
+        boolean conflictsWith(Set<ByteArray> accountWrites, Set<ByteArray> delegateWrites) {
+            return (ds.isRangeRead() && !delegateWrites.isEmpty())
+                    || as.getReads().stream().anyMatch(accountWrites::contains)
+                    || ds.getReads().stream().anyMatch(delegateWrites::contains);
+        }
+
+        void commit() {
+            as.commit();
+            ds.commit();
+        }
+    }
+
     private void executeVmTransaction(Transaction tx, AccountState as, DelegateState ds,
             SemuxBlock block, long gasUsedInBlock, TransactionResult result) {
 
@@ -14,8 +14,18 @@ public class BlockchainDatabaseUpgradingEvent implements PubSubEvent {
 
     public final Long total;
 
+    /**
+     * The current import speed, in blocks per second.
+     */
+    public final Long blocksPerSecond;
+
     public BlockchainDatabaseUpgradingEvent(Long loaded, Long total) {
+        this(loaded, total, 0L);
+    }
+
+    public BlockchainDatabaseUpgradingEvent(Long loaded, Long total, Long blocksPerSecond) {
         this.loaded = loaded;
         this.total = total;
+        this.blocksPerSecond = blocksPerSecond;
     }
 }
@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core.state;
+
+import java.util.function.Function;
+
+import org.semux.util.ByteArray;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Write-through cache of the account database, used by the root
+ * {@link AccountStateImpl}. It holds decoded accounts, contract code and
+ * storage slots by their database key, including the keys known to be absent,
+ * and is bounded by the approximate size of the entries in bytes.<br>
+ * <br>
+ * Cached objects are shared between callers and must not be modified.
+ */
+public class AccountCache {
+
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * Approximate memory overhead of an entry: key, value holder and cache node.
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    /**
+     * Approximate memory size of a decoded account.
+     */
+    private static final int ACCOUNT_SIZE = 64;
+
+    private final Cache<ByteArray, Value> cache;
+
+    public AccountCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates an account cache.
+     *
+     * @param maxBytes
+     *            the maximum approximate size of the cached entries
+     */
+    public AccountCache(long maxBytes) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((ByteArray k, Value v) -> ENTRY_OVERHEAD + k.length() + v.size)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the account of a key, loading it on a miss.
+     *
+     * @param key
+     *            the database key
+     * @param loader
+     *            reads the account from the database, or returns null if absent
+     * @return the account, or null if absent
+     */
+    public Account getAccount(ByteArray key, Function<ByteArray, Account> loader) {
+        return (Account) cache.get(key, k -> new Value(loader.apply(k))).value;
+    }
+
+    /**
+     * Returns the code or storage value of a key, loading it on a miss.
+     *
+     * @param key
+     *            the database key
+     * @param loader
+     *            reads the value from the database, or returns null if absent
+     * @return the value, or null if absent
+     */
+    public byte[] getBytes(ByteArray key, Function<ByteArray, byte[]> loader) {
+        return (byte[]) cache.get(key, k -> new Value(loader.apply(k))).value;
+    }
+
+    /**
+     * Updates an account.
+     *
+     * @param key
+     * @param account
+     */
+    public void putAccount(ByteArray key, Account account) {
+        cache.put(key, new Value(account));
+    }
+
+    /**
+     * Updates a code or storage value; null means deleted.
+     *
+     * @param key
+     * @param value
+     */
+    public void putBytes(ByteArray key, byte[] value) {
+        cache.put(key, new Value(value));
+    }
+
+    /**
+     * Discards all the entries, after the database has been modified outside of
+     * the root state, or its writes have been aborted.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Returns the hit/miss statistics of lookups.
+     *
+     * @return
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Returns the ratio of lookups that were cache hits.
+     *
+     * @return
+     */
+    public double getHitRate() {
+        return cache.stats().hitRate();
+    }
+
+    /**
+     * Returns the approximate number of cached entries.
+     *
+     * @return
+     */
+    public long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    private static class Value {
+        final Object value;
+        final int size;
+
+        Value(Account account) {
+            this.value = account;
+            this.size = ACCOUNT_SIZE;
+        }
+
+        Value(byte[] bytes) {
+            this.value = bytes;
+            this.size = bytes == null ? 0 : bytes.length;
+        }
+    }
+}
@@ -121,4 +121,18 @@ public interface AccountState {
      * Clone this AccountState, including all the uncommitted changes.
      */
     AccountState clone();
+
+    /**
+     * Returns the number of tracked states down to the root.
+     *
+     * @return
+     */
+    int getDepth();
+
+    /**
+     * Returns the number of entries updated in this state, since last snapshot.
+     *
+     * @return
+     */
+    int getSize();
 }
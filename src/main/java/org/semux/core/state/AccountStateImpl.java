@@ -6,14 +6,17 @@
  */
 package org.semux.core.state;
 
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.semux.core.Amount;
 import org.semux.db.Database;
 import org.semux.util.ByteArray;
 import org.semux.util.Bytes;
+import org.semux.util.PersistentMap;
 
 /**
  * Account state implementation.
@@ -25,6 +28,28 @@ import org.semux.util.Bytes;
  * [1, address] => [code]
  * [2, address, storage_key] = [storage_value]
  * </pre>
+ *
+ * Accounts are kept in memory as {@link Account} objects, and only serialized
+ * when the root state is committed to the database. The updates of a state are
+ * held in {@link PersistentMap}s, and the account objects in them are never
+ * modified, so that {@link #clone()} shares them with the clone.<br>
+ * <br>
+ * Besides its own updates, a state tracked on top of another tracked state
+ * keeps a view of all the updates above the root, taken from its parent when it
+ * is created, committed or rolled back. Reads therefore probe that view once
+ * and then fall back to the root, whatever the depth of the state; the updates
+ * that the parent receives afterwards are not visible to it.<br>
+ * <br>
+ * The root state is shared among threads. A tracked state may be read, and
+ * tracked, by multiple threads at the same time, as long as no thread writes,
+ * commits or rolls it back meanwhile: the updates are published through
+ * volatile persistent maps, which concurrent reads never modify. This is what
+ * {@link org.semux.core.TransactionExecutor#executeParallel} relies on to run
+ * the transactions of a block against the same track. Concurrent writes are
+ * not safe.<br>
+ * <br>
+ * The root state may read the database through an {@link AccountCache}, which
+ * is updated on every commit.
  */
 public class AccountStateImpl implements Cloneable, AccountState {
 
@@ -32,13 +57,40 @@ public class AccountStateImpl implements Cloneable, AccountState {
     protected static final byte TYPE_CODE = 1;
     protected static final byte TYPE_STORAGE = 2;
 
+    /**
+     * Marks the keys without updates, as null values are deletes.
+     */
+    private static final byte[] MISSING = new byte[0];
+
     protected Database accountDB;
+    protected AccountCache cache;
     protected AccountStateImpl prev;
+    protected AccountStateImpl root;
+
+    /**
+     * Number of tracked states down to the root.
+     */
+    protected int depth;
+
+    /**
+     * Updated accounts of this state, by address.
+     */
+    protected volatile PersistentMap<ByteArray, Account> accounts = PersistentMap.empty();
+
+    /**
+     * All the other updates of this state, or deletes if the value is null.
+     */
+    protected volatile PersistentMap<ByteArray, byte[]> updates = PersistentMap.empty();
+
+    /**
+     * Updated accounts visible to this state above the root, including its own.
+     */
+    protected volatile PersistentMap<ByteArray, Account> accountView = PersistentMap.empty();
 
     /**
-     * All updates, or deletes if the value is null.
+     * Other updates visible to this state above the root, including its own.
      */
-    protected final Map<ByteArray, byte[]> updates = new ConcurrentHashMap<>();
+    protected volatile PersistentMap<ByteArray, byte[]> updateView = PersistentMap.empty();
 
     /**
      * Create an {@link AccountState} that work directly on a database.
@@ -46,7 +98,21 @@ public class AccountStateImpl implements Cloneable, AccountState {
      * @param accountDB
      */
     public AccountStateImpl(Database accountDB) {
+        this(accountDB, null);
+    }
+
+    /**
+     * Create an {@link AccountState} that work directly on a database, through a
+     * cache.
+     *
+     * @param accountDB
+     * @param cache
+     *            the cache of the database, or null
+     */
+    public AccountStateImpl(Database accountDB, AccountCache cache) {
         this.accountDB = accountDB;
+        this.cache = cache;
+        this.root = this;
     }
 
     /**
@@ -56,95 +122,55 @@ public class AccountStateImpl implements Cloneable, AccountState {
      */
     public AccountStateImpl(AccountStateImpl prev) {
         this.prev = prev;
+        this.root = prev.root;
+        this.depth = prev.depth + 1;
+        resetView();
     }
 
     @Override
     public Account getAccount(byte[] address) {
-        ByteArray k = getKey(TYPE_ACCOUNT, address);
-        Amount noAmount = Amount.ZERO;
-
-        if (updates.containsKey(k)) {
-            byte[] v = updates.get(k);
-            return v == null ? new Account(address, noAmount, noAmount, 0) : Account.fromBytes(address, v);
-        } else if (prev != null) {
-            return prev.getAccount(address);
-        } else {
-            byte[] v = accountDB.get(k.getData());
-            return v == null ? new Account(address, noAmount, noAmount, 0) : Account.fromBytes(address, v);
-        }
+        Account acc = readAccount(ByteArray.of(address));
+        return acc == null ? emptyAccount(address) : copyAccount(acc);
     }
 
     @Override
     public long increaseNonce(byte[] address) {
-        ByteArray k = getKey(TYPE_ACCOUNT, address);
-
-        Account acc = getAccount(address);
-        long nonce = acc.getNonce() + 1;
-        acc.setNonce(nonce);
-        updates.put(k, acc.toBytes());
-        return nonce;
+        return updateAccount(address, acc -> acc.setNonce(acc.getNonce() + 1)).getNonce();
     }
 
     @Override
     public void adjustAvailable(byte[] address, Amount delta) {
-        ByteArray k = getKey(TYPE_ACCOUNT, address);
-
-        Account acc = getAccount(address);
-        acc.setAvailable(acc.getAvailable().add(delta));
-        updates.put(k, acc.toBytes());
+        updateAccount(address, acc -> acc.setAvailable(acc.getAvailable().add(delta)));
     }
 
     @Override
     public void adjustLocked(byte[] address, Amount delta) {
-        ByteArray k = getKey(TYPE_ACCOUNT, address);
-
-        Account acc = getAccount(address);
-        acc.setLocked(acc.getLocked().add(delta));
-        updates.put(k, acc.toBytes());
+        updateAccount(address, acc -> acc.setLocked(acc.getLocked().add(delta)));
     }
 
     @Override
     public byte[] getCode(byte[] address) {
-        ByteArray k = getKey(TYPE_CODE, address);
-
-        if (updates.containsKey(k)) {
-            return updates.get(k);
-        } else if (prev != null) {
-            return prev.getCode(address);
-        } else {
-            return accountDB.get(k.getData());
-        }
+        return readBytes(getKey(TYPE_CODE, address));
     }
 
     @Override
     public void setCode(byte[] address, byte[] code) {
-        ByteArray k = getKey(TYPE_CODE, address);
-        updates.put(k, code);
+        putBytes(getKey(TYPE_CODE, address), code);
     }
 
     @Override
     public byte[] getStorage(byte[] address, byte[] key) {
-        ByteArray k = getStorageKey(address, key);
-
-        if (updates.containsKey(k)) {
-            return updates.get(k);
-        } else if (prev != null) {
-            return prev.getStorage(address, key);
-        } else {
-            return accountDB.get(k.getData());
-        }
+        return readBytes(getStorageKey(address, key));
     }
 
     @Override
     public void putStorage(byte[] address, byte[] key, byte[] value) {
-        ByteArray storeKey = getStorageKey(address, key);
-        updates.put(storeKey, value);
+        putBytes(getStorageKey(address, key), value);
     }
 
     @Override
     public void removeStorage(byte[] address, byte[] key) {
-        ByteArray storeKey = getStorageKey(address, key);
-        updates.put(storeKey, null);
+        putBytes(getStorageKey(address, key), null);
     }
 
     @Override
@@ -154,63 +180,237 @@ public class AccountStateImpl implements Cloneable, AccountState {
 
     @Override
     public void commit() {
-        synchronized (updates) {
-            if (prev == null) {
-                for (Entry<ByteArray, byte[]> entry : updates.entrySet()) {
-                    if (entry.getValue() == null) {
-                        accountDB.delete(entry.getKey().getData());
-                    } else {
-                        accountDB.put(entry.getKey().getData(), entry.getValue());
-                    }
+        if (prev == null) {
+            synchronized (this) {
+                List<Pair<byte[], byte[]>> pairs = new ArrayList<>(accounts.size() + updates.size());
+                accounts.forEach(
+                        (k, v) -> pairs.add(Pair.of(getKey(TYPE_ACCOUNT, k.getData()).getData(), v.toBytes())));
+                updates.forEach((k, v) -> pairs.add(Pair.of(k.getData(), v)));
+                accountDB.updateBatch(pairs);
+
+                if (cache != null) {
+                    accounts.forEach((k, v) -> cache.putAccount(getKey(TYPE_ACCOUNT, k.getData()), v));
+                    updates.forEach(cache::putBytes);
                 }
-            } else {
-                for (Entry<ByteArray, byte[]> e : updates.entrySet()) {
-                    prev.updates.put(e.getKey(), e.getValue());
-                }
-            }
 
-            updates.clear();
+                rollback();
+            }
+        } else {
+            prev.merge(accounts, updates);
+            rollback();
         }
     }
 
     @Override
     public void rollback() {
-        updates.clear();
+        accounts = PersistentMap.empty();
+        updates = PersistentMap.empty();
+        resetView();
     }
 
     @Override
     public boolean exists(byte[] address) {
-        ByteArray k = getKey(TYPE_ACCOUNT, address);
-
-        if (updates.containsKey(k)) {
-            return true;
-        } else if (prev != null) {
-            return prev.exists(address);
-        } else {
-            byte[] v = accountDB.get(k.getData());
-            return v != null;
-        }
+        return readAccount(ByteArray.of(address)) != null;
     }
 
     @Override
     public long setNonce(byte[] address, long nonce) {
-        ByteArray k = getKey(TYPE_ACCOUNT, address);
-
-        Account acc = getAccount(address);
-        acc.setNonce(nonce);
-        updates.put(k, acc.toBytes());
+        updateAccount(address, acc -> acc.setNonce(nonce));
         return nonce;
     }
 
     @Override
     public AccountState clone() {
-        AccountStateImpl clone = new AccountStateImpl(accountDB);
-        clone.prev = prev;
-        clone.updates.putAll(updates);
+        AccountStateImpl clone = (prev == null) ? new AccountStateImpl(accountDB, cache) : new AccountStateImpl(prev);
+        clone.accounts = accounts;
+        clone.updates = updates;
+        clone.accountView = accountView;
+        clone.updateView = updateView;
 
         return clone;
     }
 
+    /**
+     * Returns the number of tracked states down to the root, which is zero for
+     * the root itself.
+     *
+     * @return
+     */
+    @Override
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the number of accounts, code and storage entries updated in this
+     * state.
+     *
+     * @return
+     */
+    @Override
+    public int getSize() {
+        return accounts.size() + updates.size();
+    }
+
+    /**
+     * Returns the number of accounts, code and storage entries updated above the
+     * root, as seen by this state.
+     *
+     * @return
+     */
+    public int getViewSize() {
+        return accountView.size() + updateView.size();
+    }
+
+    /**
+     * Returns the account of an address, without copying it, or null if it
+     * doesn't exist. The returned object must not be modified.
+     *
+     * @param address
+     * @return
+     */
+    protected Account readAccount(ByteArray address) {
+        Account acc = accountView.get(address);
+        if (acc != null) {
+            return acc;
+        } else if (prev != null) {
+            return root.readAccount(address);
+        } else if (cache != null) {
+            return cache.getAccount(getKey(TYPE_ACCOUNT, address.getData()), this::loadAccount);
+        } else {
+            return loadAccount(getKey(TYPE_ACCOUNT, address.getData()));
+        }
+    }
+
+    /**
+     * Returns the cache of the database, or null.
+     *
+     * @return
+     */
+    public AccountCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Discards the cached entries, after the database has been modified outside
+     * of {@link #commit()}.
+     */
+    public void invalidateCache() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Reads an account from the database.
+     *
+     * @param key
+     *            the database key of the account
+     * @return the account, or null if it doesn't exist
+     */
+    protected Account loadAccount(ByteArray key) {
+        byte[] v = accountDB.get(key.getData());
+        return v == null ? null : Account.fromBytes(Arrays.copyOfRange(key.getData(), 1, key.length()), v);
+    }
+
+    /**
+     * Reads code or storage, down to the database.
+     *
+     * @param key
+     *            the database key
+     * @return the value, or null if it doesn't exist
+     */
+    protected byte[] readBytes(ByteArray key) {
+        byte[] v = updateView.getOrDefault(key, MISSING);
+        if (v != MISSING) {
+            return v;
+        } else if (prev != null) {
+            return root.readBytes(key);
+        } else if (cache != null) {
+            return cache.getBytes(key, k -> accountDB.get(k.getData()));
+        } else {
+            return accountDB.get(key.getData());
+        }
+    }
+
+    /**
+     * Updates the account of an address in this state.
+     *
+     * @param address
+     * @param update
+     *            the modification of the account
+     * @return the updated account
+     */
+    protected Account updateAccount(byte[] address, Consumer<Account> update) {
+        ByteArray k = ByteArray.of(address);
+
+        // the account objects may be shared with clones and other threads, so
+        // they are replaced by updated copies instead of being modified in place
+        Account current = readAccount(k);
+        Account acc = (current == null) ? emptyAccount(address) : copyAccount(current);
+        update.accept(acc);
+
+        synchronized (this) {
+            boolean shared = (accountView == accounts);
+            accounts = accounts.put(k, acc);
+            accountView = shared ? accounts : accountView.put(k, acc);
+        }
+        return acc;
+    }
+
+    /**
+     * Updates code or storage in this state.
+     *
+     * @param key
+     * @param value
+     *            the new value, or null if deleted
+     */
+    protected synchronized void putBytes(ByteArray key, byte[] value) {
+        boolean shared = (updateView == updates);
+        updates = updates.put(key, value);
+        updateView = shared ? updates : updateView.put(key, value);
+    }
+
+    /**
+     * Applies the updates committed by a state tracked on top of this one.
+     *
+     * @param accounts
+     * @param updates
+     */
+    protected synchronized void merge(PersistentMap<ByteArray, Account> accounts,
+            PersistentMap<ByteArray, byte[]> updates) {
+        boolean shared = (accountView == this.accounts);
+        this.accounts = this.accounts.putAll(accounts);
+        this.accountView = shared ? this.accounts : accountView.putAll(accounts);
+
+        shared = (updateView == this.updates);
+        this.updates = this.updates.putAll(updates);
+        this.updateView = shared ? this.updates : updateView.putAll(updates);
+    }
+
+    /**
+     * Takes the view of the updates above the root from the parent state. The
+     * view of a state on top of the root only holds its own updates, and is the
+     * same map as them.
+     */
+    private void resetView() {
+        if (prev == null || prev.prev == null) {
+            accountView = accounts;
+            updateView = updates;
+        } else {
+            accountView = prev.accountView;
+            updateView = prev.updateView;
+        }
+    }
+
+    private static Account emptyAccount(byte[] address) {
+        return new Account(address, Amount.ZERO, Amount.ZERO, 0);
+    }
+
+    private static Account copyAccount(Account acc) {
+        return new Account(acc.getAddress(), acc.getAvailable(), acc.getLocked(), acc.getNonce());
+    }
+
     protected ByteArray getKey(byte type, byte[] address) {
         return ByteArray.of(Bytes.merge(type, address));
     }
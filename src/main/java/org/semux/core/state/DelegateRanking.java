@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core.state;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeSet;
+
+import org.semux.db.Database;
+import org.semux.util.ByteArray;
+import org.semux.util.ClosableIterator;
+
+/**
+ * In-memory index of the delegates stored in the delegate database, ordered by
+ * votes (descending) and name. It's loaded on first use and then updated
+ * incrementally with the committed delegates. A read-only copy can be taken
+ * with {@link #copy()}, for the states which read database snapshots.<br>
+ * <br>
+ * This class is thread-safe.
+ */
+public class DelegateRanking {
+
+    /**
+     * The delegate order: votes descending, then name ascending.
+     */
+    static final Comparator<Delegate> ORDER = (d1, d2) -> {
+        int cmp = d2.getVotes().compareTo(d1.getVotes());
+        return (cmp != 0) ? cmp : d1.getNameString().compareTo(d2.getNameString());
+    };
+
+    private final Database delegateDB;
+    private final int addressLength;
+
+    private Map<ByteArray, Delegate> delegates;
+    private TreeSet<Delegate> ranking;
+
+    /**
+     * Whether this is a read-only copy, which is never updated nor reloaded.
+     */
+    private boolean frozen;
+
+    /**
+     * Creates a ranking of the delegates in the given database.
+     *
+     * @param delegateDB
+     * @param addressLength
+     *            the key length of delegate entries
+     */
+    DelegateRanking(Database delegateDB, int addressLength) {
+        this.delegateDB = delegateDB;
+        this.addressLength = addressLength;
+    }
+
+    /**
+     * Updates the ranking with the delegate entries just written to the database.
+     * Other entries are ignored.
+     *
+     * @param updates
+     */
+    synchronized void update(Map<ByteArray, byte[]> updates) {
+        if (frozen) {
+            throw new UnsupportedOperationException("Delegate ranking copies are read-only");
+        }
+        if (ranking == null) {
+            return; // not loaded yet
+        }
+
+        for (Entry<ByteArray, byte[]> e : updates.entrySet()) {
+            if (e.getKey().length() == addressLength) {
+                Delegate old = delegates.remove(e.getKey());
+                if (old != null) {
+                    ranking.remove(old);
+                }
+                if (e.getValue() != null) {
+                    Delegate d = Delegate.fromBytes(e.getKey().getData(), e.getValue());
+                    delegates.put(e.getKey(), d);
+                    ranking.add(d);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the top delegates, with the given delegates replacing the stored
+     * ones of the same address.
+     *
+     * @param overlay
+     *            the updated delegates by address; a null value hides the stored
+     *            delegate
+     * @param limit
+     *            the maximum number of delegates
+     * @return
+     */
+    synchronized List<Delegate> getDelegates(Map<ByteArray, Delegate> overlay, int limit) {
+        load();
+
+        List<Delegate> updated = new ArrayList<>(overlay.size());
+        for (Delegate d : overlay.values()) {
+            if (d != null) {
+                updated.add(d);
+            }
+        }
+        updated.sort(ORDER);
+
+        // merge the updated delegates into the stored ones
+        List<Delegate> result = new ArrayList<>(Math.min(limit, delegates.size() + updated.size()));
+        Iterator<Delegate> itr = ranking.iterator();
+        Delegate stored = nextStored(itr, overlay);
+        int i = 0;
+        while (result.size() < limit && (stored != null || i < updated.size())) {
+            if (stored == null || (i < updated.size() && ORDER.compare(updated.get(i), stored) <= 0)) {
+                result.add(updated.get(i++));
+            } else {
+                result.add(stored);
+                stored = nextStored(itr, overlay);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Discards the ranking; it will be reloaded from the database on next use.
+     */
+    synchronized void invalidate() {
+        if (!frozen) {
+            delegates = null;
+            ranking = null;
+        }
+    }
+
+    /**
+     * Returns a read-only copy of the ranking, which isn't affected by the later
+     * updates.
+     *
+     * @return the copy, or null if the ranking isn't loaded
+     */
+    synchronized DelegateRanking copy() {
+        if (ranking == null) {
+            return null;
+        }
+
+        DelegateRanking copy = new DelegateRanking(delegateDB, addressLength);
+        copy.delegates = new HashMap<>(delegates);
+        copy.ranking = new TreeSet<>(ranking);
+        copy.frozen = true;
+        return copy;
+    }
+
+    private Delegate nextStored(Iterator<Delegate> itr, Map<ByteArray, Delegate> overlay) {
+        while (itr.hasNext()) {
+            Delegate d = itr.next();
+            if (!overlay.containsKey(ByteArray.of(d.getAddress()))) {
+                return d;
+            }
+        }
+        return null;
+    }
+
+    private void load() {
+        if (ranking != null) {
+            return;
+        }
+
+        delegates = new HashMap<>();
+        ranking = new TreeSet<>(ORDER);
+        ClosableIterator<Entry<byte[], byte[]>> itr = delegateDB.iterator();
+        try {
+            while (itr.hasNext()) {
+                Entry<byte[], byte[]> entry = itr.next();
+                if (entry.getKey().length == addressLength) {
+                    Delegate d = Delegate.fromBytes(entry.getKey(), entry.getValue());
+                    delegates.put(ByteArray.of(entry.getKey()), d);
+                    ranking.add(d);
+                }
+            }
+        } finally {
+            itr.close();
+        }
+    }
+}
@@ -71,6 +71,14 @@ public interface DelegateState {
      */
     Map<ByteArray, Amount> getVotes(byte[] delegate);
 
+    /**
+     * Returns all the votes of a voter.
+     *
+     * @param voter
+     * @return the non-zero votes, by delegate address
+     */
+    Map<ByteArray, Amount> getVotesByVoter(byte[] voter);
+
     /**
      * Retrieves delegate by its name.
      * 
@@ -94,6 +102,15 @@ public interface DelegateState {
      */
     List<Delegate> getDelegates();
 
+    /**
+     * Returns the top delegates, ordered by votes.
+     *
+     * @param limit
+     *            the maximum number of delegates
+     * @return
+     */
+    List<Delegate> getDelegates(int limit);
+
     /**
      * Returns a snapshot and starts tracking updates.
      */
@@ -113,4 +130,18 @@ public interface DelegateState {
      * Reverts all updates since last snapshot.
      */
     void rollback();
+
+    /**
+     * Returns the number of tracked states down to the root.
+     *
+     * @return
+     */
+    int getDepth();
+
+    /**
+     * Returns the number of entries updated in this state, since last snapshot.
+     *
+     * @return
+     */
+    int getSize();
 }
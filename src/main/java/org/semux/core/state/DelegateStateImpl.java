@@ -14,14 +14,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.semux.core.Amount;
 import org.semux.core.Blockchain;
 import org.semux.db.Database;
 import org.semux.util.ByteArray;
 import org.semux.util.Bytes;
 import org.semux.util.ClosableIterator;
+import org.semux.util.PersistentMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,6 +43,18 @@ import org.slf4j.LoggerFactory;
  * [delegate, voter] => vote
  * </pre>
  *
+ * <pre>
+ * voter DB structure:
+ * 
+ * [voter, delegate] => vote
+ * </pre>
+ *
+ * Delegates are kept in memory as {@link Delegate} objects, and only
+ * serialized when the root state is committed to the database. As with
+ * {@link AccountStateImpl}, the updates are held in {@link PersistentMap}s of
+ * objects that are never modified, and a state tracked on top of another
+ * tracked state keeps a view of all the updates above the root, taken from its
+ * parent when it is created, committed or rolled back.
  */
 public class DelegateStateImpl implements Cloneable, DelegateState {
 
@@ -48,32 +62,91 @@ public class DelegateStateImpl implements Cloneable, DelegateState {
 
     private static final int ADDRESS_LEN = 20;
 
+    /**
+     * Marks the keys without updates, as null values are deletes.
+     */
+    private static final byte[] MISSING = new byte[0];
+
     protected final Blockchain chain;
 
     protected Database delegateDB;
     protected Database voteDB;
+    protected Database voterDB;
     protected DelegateStateImpl prev;
+    protected DelegateStateImpl root;
+
+    /**
+     * Number of tracked states down to the root.
+     */
+    protected int depth;
+
+    /**
+     * Ranking of the delegates in database, shared by all the tracked states
+     */
+    protected DelegateRanking ranking;
+
+    /**
+     * Updated delegates of this state, by address
+     */
+    protected volatile PersistentMap<ByteArray, Delegate> delegates = PersistentMap.empty();
+
+    /**
+     * Delegate name updates of this state
+     */
+    protected volatile PersistentMap<ByteArray, byte[]> delegateUpdates = PersistentMap.empty();
+
+    /**
+     * Vote updates of this state
+     */
+    protected volatile PersistentMap<ByteArray, byte[]> voteUpdates = PersistentMap.empty();
+
+    /**
+     * Updated delegates visible to this state above the root, including its own
+     */
+    protected volatile PersistentMap<ByteArray, Delegate> delegateView = PersistentMap.empty();
 
     /**
-     * Delegate updates
+     * Delegate name updates visible to this state above the root, including its
+     * own
      */
-    protected final Map<ByteArray, byte[]> delegateUpdates = new ConcurrentHashMap<>();
+    protected volatile PersistentMap<ByteArray, byte[]> delegateUpdateView = PersistentMap.empty();
 
     /**
-     * Vote updates
+     * Vote updates visible to this state above the root, including its own
      */
-    protected final Map<ByteArray, byte[]> voteUpdates = new ConcurrentHashMap<>();
+    protected volatile PersistentMap<ByteArray, byte[]> voteView = PersistentMap.empty();
 
     /**
      * Create a DelegateState that work directly on a database.
      * 
      * @param delegateDB
      * @param voteDB
+     * @param voterDB
      */
-    public DelegateStateImpl(Blockchain chain, Database delegateDB, Database voteDB) {
+    public DelegateStateImpl(Blockchain chain, Database delegateDB, Database voteDB, Database voterDB) {
+        this(chain, delegateDB, voteDB, voterDB, null);
+    }
+
+    /**
+     * Create a DelegateState that work directly on a database, ranking the
+     * delegates with a copy taken when the database was at the same state.
+     *
+     * @param chain
+     * @param delegateDB
+     * @param voteDB
+     * @param voterDB
+     * @param ranking
+     *            a copy of the ranking, see {@link #copyRanking()}, or null to
+     *            load it from the database
+     */
+    public DelegateStateImpl(Blockchain chain, Database delegateDB, Database voteDB, Database voterDB,
+            DelegateRanking ranking) {
         this.chain = chain;
         this.delegateDB = delegateDB;
         this.voteDB = voteDB;
+        this.voterDB = voterDB;
+        this.ranking = (ranking != null) ? ranking : new DelegateRanking(delegateDB, ADDRESS_LEN);
+        this.root = this;
     }
 
     /**
@@ -84,6 +157,10 @@ public class DelegateStateImpl implements Cloneable, DelegateState {
     public DelegateStateImpl(DelegateStateImpl prev) {
         this.chain = prev.chain;
         this.prev = prev;
+        this.root = prev.root;
+        this.depth = prev.depth + 1;
+        this.ranking = prev.ranking;
+        resetView();
     }
 
     @Override
@@ -92,8 +169,8 @@ public class DelegateStateImpl implements Cloneable, DelegateState {
             return false;
         } else {
             Delegate d = new Delegate(address, name, registeredAt, ZERO);
-            delegateUpdates.put(ByteArray.of(name), address);
-            delegateUpdates.put(ByteArray.of(address), d.toBytes());
+            putName(ByteArray.of(name), address);
+            putDelegate(ByteArray.of(address), d);
 
             return true;
         }
@@ -108,14 +185,12 @@ public class DelegateStateImpl implements Cloneable, DelegateState {
     public boolean vote(byte[] voter, byte[] delegate, Amount v) {
         ByteArray key = ByteArray.of(Bytes.merge(delegate, voter));
         Amount value = getVote(key);
-        Delegate d = getDelegateByAddress(delegate);
 
-        if (d == null) {
+        if (readDelegate(ByteArray.of(delegate)) == null) {
             return false;
         } else {
-            voteUpdates.put(key, encodeAmount(value.add(v)));
-            d.setVotes(d.getVotes().add(v));
-            delegateUpdates.put(ByteArray.of(delegate), d.toBytes());
+            putVote(key, encodeAmount(value.add(v)));
+            updateDelegate(delegate, d -> d.setVotes(d.getVotes().add(v)));
             return true;
         }
     }
@@ -128,11 +203,8 @@ public class DelegateStateImpl implements Cloneable, DelegateState {
         if (v.greaterThan(value)) {
             return false;
         } else {
-            voteUpdates.put(key, encodeAmount(value.subtract(v)));
-
-            Delegate d = getDelegateByAddress(delegate);
-            d.setVotes(d.getVotes().subtract(v));
-            delegateUpdates.put(ByteArray.of(delegate), d.toBytes());
+            putVote(key, encodeAmount(value.subtract(v)));
+            updateDelegate(delegate, d -> d.setVotes(d.getVotes().subtract(v)));
 
             return true;
         }
@@ -145,54 +217,53 @@ public class DelegateStateImpl implements Cloneable, DelegateState {
 
     @Override
     public Delegate getDelegateByName(byte[] name) {
-        ByteArray k = ByteArray.of(name);
-
-        if (delegateUpdates.containsKey(k)) {
-            byte[] v = delegateUpdates.get(k);
-            return v == null ? null : getDelegateByAddress(v);
-        } else if (prev != null) {
-            return prev.getDelegateByName(name);
-        } else {
-            byte[] v = delegateDB.get(k.getData());
-            return v == null ? null : getDelegateByAddress(v);
-        }
+        byte[] v = readName(ByteArray.of(name));
+        return v == null ? null : getDelegateByAddress(v);
     }
 
     @Override
     public Delegate getDelegateByAddress(byte[] address) {
-        ByteArray k = ByteArray.of(address);
-
-        if (delegateUpdates.containsKey(k)) {
-            byte[] v = delegateUpdates.get(k);
-            return v == null ? null : Delegate.fromBytes(k.getData(), v);
-        } else if (prev != null) {
-            return prev.getDelegateByAddress(address);
-        } else {
-            byte[] v = delegateDB.get(k.getData());
-            return v == null ? null : Delegate.fromBytes(k.getData(), v);
-        }
+        Delegate d = readDelegate(ByteArray.of(address));
+        return d == null ? null : copyDelegate(d);
     }
 
     @Override
     public List<Delegate> getDelegates() {
+        return getDelegates(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Delegate> getDelegates(int limit) {
         long t1 = System.nanoTime();
 
-        // traverse all cached update, all the way to database.
+        // collect the cached updates, which override the ranking of the database
         Map<ByteArray, Delegate> map = new HashMap<>();
         getDelegates(map);
-
-        // sort the results
-        List<Delegate> list = new ArrayList<>(map.values());
-        list.sort((d1, d2) -> {
-            int cmp = d2.getVotes().compareTo(d1.getVotes());
-            return (cmp != 0) ? cmp : d1.getNameString().compareTo(d2.getNameString());
-        });
+        List<Delegate> list = ranking.getDelegates(map, limit);
 
         long t2 = System.nanoTime();
         logger.trace("Get delegates duration: {} μs", (t2 - t1) / 1000L);
         return list;
     }
 
+    /**
+     * Discards the in-memory delegate ranking, after the database has been
+     * modified outside of {@link #commit()}.
+     */
+    public void invalidateRanking() {
+        ranking.invalidate();
+    }
+
+    /**
+     * Returns a read-only copy of the ranking of the delegates in database, which
+     * isn't affected by the later commits.
+     *
+     * @return the copy, or null if the ranking hasn't been loaded yet
+     */
+    public DelegateRanking copyRanking() {
+        return ranking.copy();
+    }
+
     @Override
     public DelegateState track() {
         return new DelegateStateImpl(this);
@@ -200,89 +271,210 @@ public class DelegateStateImpl implements Cloneable, DelegateState {
 
     @Override
     public void commit() {
-        synchronized (delegateUpdates) {
-            if (prev == null) {
-                for (Entry<ByteArray, byte[]> entry : delegateUpdates.entrySet()) {
-                    if (entry.getValue() == null) {
-                        delegateDB.delete(entry.getKey().getData());
-                    } else {
-                        delegateDB.put(entry.getKey().getData(), entry.getValue());
-                    }
-                }
-            } else {
-                for (Entry<ByteArray, byte[]> e : delegateUpdates.entrySet()) {
-                    prev.delegateUpdates.put(e.getKey(), e.getValue());
+        if (prev == null) {
+            synchronized (this) {
+                Map<ByteArray, byte[]> encoded = new HashMap<>(delegateUpdates.size() + delegates.size());
+                delegateUpdates.forEach(encoded::put);
+                delegates.forEach((k, v) -> encoded.put(k, v.toBytes()));
+
+                List<Pair<byte[], byte[]>> pairs = new ArrayList<>(encoded.size());
+                for (Entry<ByteArray, byte[]> entry : encoded.entrySet()) {
+                    pairs.add(Pair.of(entry.getKey().getData(), entry.getValue()));
                 }
-            }
+                delegateDB.updateBatch(pairs);
+                ranking.update(encoded);
 
-            delegateUpdates.clear();
-        }
+                List<Pair<byte[], byte[]>> votes = new ArrayList<>(voteUpdates.size());
+                voteUpdates.forEach((k, v) -> votes.add(Pair.of(k.getData(), v)));
+                voteDB.updateBatch(votes);
+                voterDB.updateBatch(toVoterIndex(votes));
 
-        synchronized (voteUpdates) {
-            if (prev == null) {
-                for (Entry<ByteArray, byte[]> entry : voteUpdates.entrySet()) {
-                    if (entry.getValue() == null) {
-                        voteDB.delete(entry.getKey().getData());
-                    } else {
-                        voteDB.put(entry.getKey().getData(), entry.getValue());
-                    }
-                }
-            } else {
-                for (Entry<ByteArray, byte[]> e : voteUpdates.entrySet()) {
-                    prev.voteUpdates.put(e.getKey(), e.getValue());
-                }
+                rollback();
             }
-
-            voteUpdates.clear();
+        } else {
+            prev.merge(delegates, delegateUpdates, voteUpdates);
+            rollback();
         }
     }
 
     @Override
     public DelegateState clone() {
-        DelegateStateImpl clone = new DelegateStateImpl(this.chain, this.delegateDB, this.voteDB);
-        clone.prev = this.prev;
-        clone.voteUpdates.putAll(this.voteUpdates);
-        clone.delegateUpdates.putAll(this.delegateUpdates);
+        DelegateStateImpl clone = (prev == null)
+                ? new DelegateStateImpl(this.chain, this.delegateDB, this.voteDB, this.voterDB)
+                : new DelegateStateImpl(this.prev);
+        clone.ranking = this.ranking;
+        clone.delegates = this.delegates;
+        clone.delegateUpdates = this.delegateUpdates;
+        clone.voteUpdates = this.voteUpdates;
+        clone.delegateView = this.delegateView;
+        clone.delegateUpdateView = this.delegateUpdateView;
+        clone.voteView = this.voteView;
         return clone;
     }
 
     @Override
     public void rollback() {
-        delegateUpdates.clear();
-        voteUpdates.clear();
+        delegates = PersistentMap.empty();
+        delegateUpdates = PersistentMap.empty();
+        voteUpdates = PersistentMap.empty();
+        resetView();
+    }
+
+    /**
+     * Returns the number of tracked states down to the root, which is zero for
+     * the root itself.
+     *
+     * @return
+     */
+    @Override
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the number of delegates, names and votes updated in this state.
+     *
+     * @return
+     */
+    @Override
+    public int getSize() {
+        return delegates.size() + delegateUpdates.size() + voteUpdates.size();
+    }
+
+    /**
+     * Returns the number of delegates, names and votes updated above the root, as
+     * seen by this state.
+     *
+     * @return
+     */
+    public int getViewSize() {
+        return delegateView.size() + delegateUpdateView.size() + voteView.size();
+    }
+
+    /**
+     * Returns the delegate of an address, without copying it, or null if it
+     * doesn't exist. The returned object must not be modified.
+     *
+     * @param address
+     * @return
+     */
+    protected Delegate readDelegate(ByteArray address) {
+        Delegate d = delegateView.get(address);
+        if (d != null) {
+            return d;
+        } else if (prev != null) {
+            return root.readDelegate(address);
+        } else {
+            byte[] v = delegateDB.get(address.getData());
+            return v == null ? null : Delegate.fromBytes(address.getData(), v);
+        }
+    }
+
+    /**
+     * Returns the address registered with a name, or null if it doesn't exist.
+     *
+     * @param name
+     * @return
+     */
+    protected byte[] readName(ByteArray name) {
+        byte[] v = delegateUpdateView.getOrDefault(name, MISSING);
+        if (v != MISSING) {
+            return v;
+        } else if (prev != null) {
+            return root.readName(name);
+        } else {
+            return delegateDB.get(name.getData());
+        }
+    }
+
+    /**
+     * Updates an existing delegate in this state.
+     *
+     * @param address
+     * @param update
+     *            the modification of the delegate
+     */
+    protected void updateDelegate(byte[] address, Consumer<Delegate> update) {
+        ByteArray k = ByteArray.of(address);
+
+        // the delegate objects may be shared with clones and other threads, so
+        // they are replaced by updated copies instead of being modified in place
+        Delegate d = copyDelegate(readDelegate(k));
+        update.accept(d);
+        putDelegate(k, d);
+    }
+
+    protected synchronized void putDelegate(ByteArray address, Delegate d) {
+        boolean shared = (delegateView == delegates);
+        delegates = delegates.put(address, d);
+        delegateView = shared ? delegates : delegateView.put(address, d);
+    }
+
+    protected synchronized void putName(ByteArray name, byte[] address) {
+        boolean shared = (delegateUpdateView == delegateUpdates);
+        delegateUpdates = delegateUpdates.put(name, address);
+        delegateUpdateView = shared ? delegateUpdates : delegateUpdateView.put(name, address);
+    }
+
+    protected synchronized void putVote(ByteArray key, byte[] vote) {
+        boolean shared = (voteView == voteUpdates);
+        voteUpdates = voteUpdates.put(key, vote);
+        voteView = shared ? voteUpdates : voteView.put(key, vote);
+    }
+
+    /**
+     * Applies the updates committed by a state tracked on top of this one.
+     *
+     * @param delegates
+     * @param delegateUpdates
+     * @param voteUpdates
+     */
+    protected synchronized void merge(PersistentMap<ByteArray, Delegate> delegates,
+            PersistentMap<ByteArray, byte[]> delegateUpdates, PersistentMap<ByteArray, byte[]> voteUpdates) {
+        boolean shared = (delegateView == this.delegates);
+        this.delegates = this.delegates.putAll(delegates);
+        this.delegateView = shared ? this.delegates : delegateView.putAll(delegates);
+
+        shared = (delegateUpdateView == this.delegateUpdates);
+        this.delegateUpdates = this.delegateUpdates.putAll(delegateUpdates);
+        this.delegateUpdateView = shared ? this.delegateUpdates : delegateUpdateView.putAll(delegateUpdates);
+
+        shared = (voteView == this.voteUpdates);
+        this.voteUpdates = this.voteUpdates.putAll(voteUpdates);
+        this.voteView = shared ? this.voteUpdates : voteView.putAll(voteUpdates);
     }
 
     /**
-     * Recursively compute the delegates.
+     * Takes the view of the updates above the root from the parent state. The
+     * view of a state on top of the root only holds its own updates, and is the
+     * same map as them.
+     */
+    private void resetView() {
+        if (prev == null || prev.prev == null) {
+            delegateView = delegates;
+            delegateUpdateView = delegateUpdates;
+            voteView = voteUpdates;
+        } else {
+            delegateView = prev.delegateView;
+            delegateUpdateView = prev.delegateUpdateView;
+            voteView = prev.voteView;
+        }
+    }
+
+    private static Delegate copyDelegate(Delegate d) {
+        return new Delegate(d.getAddress(), d.getName(), d.getRegisteredAt(), d.getVotes());
+    }
+
+    /**
+     * Collect the updated delegates, down to the root.
      * 
      * @param map
      */
     protected void getDelegates(Map<ByteArray, Delegate> map) {
-        for (Entry<ByteArray, byte[]> entry : delegateUpdates.entrySet()) {
-            /* filter address */
-            if (entry.getKey().length() == ADDRESS_LEN && !map.containsKey(entry.getKey())) {
-                if (entry.getValue() == null) {
-                    map.put(entry.getKey(), null);
-                } else {
-                    map.put(entry.getKey(), Delegate.fromBytes(entry.getKey().getData(), entry.getValue()));
-                }
-            }
-        }
+        delegateView.forEach((k, v) -> map.putIfAbsent(k, copyDelegate(v)));
 
         if (prev != null) {
-            prev.getDelegates(map);
-        } else {
-            ClosableIterator<Entry<byte[], byte[]>> itr = delegateDB.iterator();
-            while (itr.hasNext()) {
-                Entry<byte[], byte[]> entry = itr.next();
-                ByteArray k = ByteArray.of(entry.getKey());
-                byte[] v = entry.getValue();
-
-                if (k.length() == ADDRESS_LEN && !map.containsKey(k)) {
-                    map.put(k, Delegate.fromBytes(k.getData(), v));
-                }
-            }
-            itr.close();
+            root.getDelegates(map);
         }
     }
 
@@ -294,13 +486,13 @@ public class DelegateStateImpl implements Cloneable, DelegateState {
      * @return
      */
     protected Amount getVote(ByteArray key) {
-        if (voteUpdates.containsKey(key)) {
-            byte[] bytes = voteUpdates.get(key);
-            return decodeAmount(bytes);
+        byte[] v = voteView.getOrDefault(key, MISSING);
+        if (v != MISSING) {
+            return decodeAmount(v);
         }
 
         if (prev != null) {
-            return prev.getVote(key);
+            return root.getVote(key);
         } else {
             byte[] bytes = voteDB.get(key.getData());
             return decodeAmount(bytes);
@@ -328,6 +520,91 @@ public class DelegateStateImpl implements Cloneable, DelegateState {
         return result;
     }
 
+    @Override
+    public Map<ByteArray, Amount> getVotesByVoter(byte[] voter) {
+        Map<ByteArray, Amount> result = new HashMap<>();
+        getVotesByVoter(voter, result);
+        result.values().removeIf(ZERO::equals);
+
+        return result;
+    }
+
+    /**
+     * Builds the voter index from the vote database, for databases created before
+     * the index was introduced.
+     *
+     * @return the number of indexed votes
+     */
+    public long backfillVoterIndex() {
+        long indexed = 0;
+        List<Pair<byte[], byte[]>> pairs = new ArrayList<>();
+
+        ClosableIterator<Entry<byte[], byte[]>> itr = voteDB.iterator();
+        while (itr.hasNext()) {
+            Entry<byte[], byte[]> e = itr.next();
+            pairs.add(Pair.of(e.getKey(), e.getValue()));
+            if (pairs.size() >= 10_000) {
+                voterDB.updateBatch(toVoterIndex(pairs));
+                indexed += pairs.size();
+                pairs.clear();
+            }
+        }
+        itr.close();
+
+        voterDB.updateBatch(toVoterIndex(pairs));
+        indexed += pairs.size();
+        return indexed;
+    }
+
+    /**
+     * Collect the votes of a voter, down to the database.
+     *
+     * @param voter
+     * @param map
+     */
+    protected void getVotesByVoter(byte[] voter, Map<ByteArray, Amount> map) {
+        voteView.forEach((k, v) -> {
+            byte[] key = k.getData();
+            if (Arrays.equals(voter, Arrays.copyOfRange(key, ADDRESS_LEN, ADDRESS_LEN * 2))) {
+                map.putIfAbsent(ByteArray.of(Arrays.copyOf(key, ADDRESS_LEN)), decodeAmount(v));
+            }
+        });
+
+        if (prev != null) {
+            root.getVotesByVoter(voter, map);
+        } else {
+            ClosableIterator<Entry<byte[], byte[]>> itr = voterDB.iterator(voter);
+            while (itr.hasNext()) {
+                Entry<byte[], byte[]> e = itr.next();
+                byte[] v = Arrays.copyOf(e.getKey(), ADDRESS_LEN);
+                byte[] d = Arrays.copyOfRange(e.getKey(), ADDRESS_LEN, ADDRESS_LEN * 2);
+
+                if (!Arrays.equals(voter, v)) {
+                    break;
+                }
+                map.putIfAbsent(ByteArray.of(d), decodeAmount(e.getValue()));
+            }
+            itr.close();
+        }
+    }
+
+    /**
+     * Converts vote entries, keyed by [delegate, voter], into voter index entries.
+     *
+     * @param pairs
+     * @return
+     */
+    protected static List<Pair<byte[], byte[]>> toVoterIndex(List<Pair<byte[], byte[]>> pairs) {
+        List<Pair<byte[], byte[]>> result = new ArrayList<>(pairs.size());
+        for (Pair<byte[], byte[]> p : pairs) {
+            byte[] key = p.getKey();
+            byte[] delegate = Arrays.copyOf(key, ADDRESS_LEN);
+            byte[] voter = Arrays.copyOfRange(key, ADDRESS_LEN, ADDRESS_LEN * 2);
+            result.add(Pair.of(Bytes.merge(voter, delegate), p.getValue()));
+        }
+        return result;
+    }
+
     protected byte[] encodeAmount(Amount a) {
         return Bytes.of(a.toLong());
     }
@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core.state;
+
+import static org.semux.core.state.AccountStateImpl.TYPE_ACCOUNT;
+import static org.semux.core.state.AccountStateImpl.TYPE_CODE;
+import static org.semux.core.state.AccountStateImpl.TYPE_STORAGE;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.semux.core.Amount;
+import org.semux.util.ByteArray;
+import org.semux.util.Bytes;
+
+/**
+ * An {@link AccountState} which records the keys being read and written, so
+ * that transactions executed speculatively can be checked for conflicts.<br>
+ * <br>
+ * This class is not thread-safe.
+ */
+public class RecordingAccountState implements AccountState {
+
+    private final AccountState state;
+    private final Set<ByteArray> reads;
+    private final Set<ByteArray> writes;
+
+    /**
+     * Creates a recording account state.
+     *
+     * @param state
+     *            the underlying account state
+     */
+    public RecordingAccountState(AccountState state) {
+        this(state, new HashSet<>(), new HashSet<>());
+    }
+
+    private RecordingAccountState(AccountState state, Set<ByteArray> reads, Set<ByteArray> writes) {
+        this.state = state;
+        this.reads = reads;
+        this.writes = writes;
+    }
+
+    /**
+     * Returns the keys that have been read.
+     *
+     * @return
+     */
+    public Set<ByteArray> getReads() {
+        return reads;
+    }
+
+    /**
+     * Returns the keys that have been written.
+     *
+     * @return
+     */
+    public Set<ByteArray> getWrites() {
+        return writes;
+    }
+
+    @Override
+    public Account getAccount(byte[] address) {
+        reads.add(key(TYPE_ACCOUNT, address));
+        return state.getAccount(address);
+    }
+
+    @Override
+    public long increaseNonce(byte[] address) {
+        readWrite(key(TYPE_ACCOUNT, address));
+        return state.increaseNonce(address);
+    }
+
+    @Override
+    public void adjustAvailable(byte[] address, Amount delta) {
+        readWrite(key(TYPE_ACCOUNT, address));
+        state.adjustAvailable(address, delta);
+    }
+
+    @Override
+    public void adjustLocked(byte[] address, Amount delta) {
+        readWrite(key(TYPE_ACCOUNT, address));
+        state.adjustLocked(address, delta);
+    }
+
+    @Override
+    public byte[] getCode(byte[] address) {
+        reads.add(key(TYPE_CODE, address));
+        return state.getCode(address);
+    }
+
+    @Override
+    public void setCode(byte[] address, byte[] code) {
+        writes.add(key(TYPE_CODE, address));
+        state.setCode(address, code);
+    }
+
+    @Override
+    public byte[] getStorage(byte[] address, byte[] key) {
+        reads.add(storageKey(address, key));
+        return state.getStorage(address, key);
+    }
+
+    @Override
+    public void putStorage(byte[] address, byte[] key, byte[] value) {
+        writes.add(storageKey(address, key));
+        state.putStorage(address, key, value);
+    }
+
+    @Override
+    public void removeStorage(byte[] address, byte[] key) {
+        writes.add(storageKey(address, key));
+        state.removeStorage(address, key);
+    }
+
+    @Override
+    public AccountState track() {
+        return new RecordingAccountState(state.track(), reads, writes);
+    }
+
+    @Override
+    public void commit() {
+        state.commit();
+    }
+
+    @Override
+    public void rollback() {
+        state.rollback();
+    }
+
+    @Override
+    public boolean exists(byte[] address) {
+        reads.add(key(TYPE_ACCOUNT, address));
+        return state.exists(address);
+    }
+
+    @Override
+    public long setNonce(byte[] address, long nonce) {
+        readWrite(key(TYPE_ACCOUNT, address));
+        return state.setNonce(address, nonce);
+    }
+
+    @Override
+    public AccountState clone() {
+        return new RecordingAccountState(state.clone(), reads, writes);
+    }
+
+    @Override
+    public int getDepth() {
+        return state.getDepth();
+    }
+
+    @Override
+    public int getSize() {
+        return state.getSize();
+    }
+
+    private void readWrite(ByteArray key) {
+        reads.add(key);
+        writes.add(key);
+    }
+
+    private static ByteArray key(byte type, byte[] address) {
+        return ByteArray.of(Bytes.merge(type, address));
+    }
+
+    private static ByteArray storageKey(byte[] address, byte[] key) {
+        return ByteArray.of(Bytes.merge(new byte[] { TYPE_STORAGE }, address, key));
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core.state;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.semux.core.Amount;
+import org.semux.util.ByteArray;
+import org.semux.util.Bytes;
+
+/**
+ * A {@link DelegateState} which records the keys being read and written, so
+ * that transactions executed speculatively can be checked for conflicts.
+ * Queries over all delegates or all the votes of a delegate are recorded as a
+ * range read, which conflicts with any write.<br>
+ * <br>
+ * This class is not thread-safe.
+ */
+public class RecordingDelegateState implements DelegateState {
+
+    private static final byte TYPE_DELEGATE = 0;
+    private static final byte TYPE_VOTE = 1;
+
+    private final DelegateState state;
+    private final Set<ByteArray> reads;
+    private final Set<ByteArray> writes;
+    private final AtomicBoolean rangeRead;
+
+    /**
+     * Creates a recording delegate state.
+     *
+     * @param state
+     *            the underlying delegate state
+     */
+    public RecordingDelegateState(DelegateState state) {
+        this(state, new HashSet<>(), new HashSet<>(), new AtomicBoolean());
+    }
+
+    private RecordingDelegateState(DelegateState state, Set<ByteArray> reads, Set<ByteArray> writes,
+            AtomicBoolean rangeRead) {
+        this.state = state;
+        this.reads = reads;
+        this.writes = writes;
+        this.rangeRead = rangeRead;
+    }
+
+    /**
+     * Returns the keys that have been read.
+     *
+     * @return
+     */
+    public Set<ByteArray> getReads() {
+        return reads;
+    }
+
+    /**
+     * Returns the keys that have been written.
+     *
+     * @return
+     */
+    public Set<ByteArray> getWrites() {
+        return writes;
+    }
+
+    /**
+     * Returns whether a range of keys has been read.
+     *
+     * @return
+     */
+    public boolean isRangeRead() {
+        return rangeRead.get();
+    }
+
+    @Override
+    public boolean register(byte[] address, byte[] name, long registeredAt) {
+        readWrite(delegateKey(address));
+        readWrite(delegateKey(name));
+        return state.register(address, name, registeredAt);
+    }
+
+    @Override
+    public boolean register(byte[] address, byte[] name) {
+        readWrite(delegateKey(address));
+        readWrite(delegateKey(name));
+        return state.register(address, name);
+    }
+
+    @Override
+    public boolean vote(byte[] voter, byte[] delegate, Amount value) {
+        readWrite(voteKey(voter, delegate));
+        readWrite(delegateKey(delegate));
+        return state.vote(voter, delegate, value);
+    }
+
+    @Override
+    public boolean unvote(byte[] voter, byte[] delegate, Amount value) {
+        readWrite(voteKey(voter, delegate));
+        readWrite(delegateKey(delegate));
+        return state.unvote(voter, delegate, value);
+    }
+
+    @Override
+    public Amount getVote(byte[] voter, byte[] delegate) {
+        reads.add(voteKey(voter, delegate));
+        return state.getVote(voter, delegate);
+    }
+
+    @Override
+    public Map<ByteArray, Amount> getVotes(byte[] delegate) {
+        rangeRead.set(true);
+        return state.getVotes(delegate);
+    }
+
+    @Override
+    public Map<ByteArray, Amount> getVotesByVoter(byte[] voter) {
+        rangeRead.set(true);
+        return state.getVotesByVoter(voter);
+    }
+
+    @Override
+    public Delegate getDelegateByName(byte[] name) {
+        reads.add(delegateKey(name));
+        Delegate d = state.getDelegateByName(name);
+        if (d != null) {
+            reads.add(delegateKey(d.getAddress()));
+        }
+        return d;
+    }
+
+    @Override
+    public Delegate getDelegateByAddress(byte[] address) {
+        reads.add(delegateKey(address));
+        return state.getDelegateByAddress(address);
+    }
+
+    @Override
+    public List<Delegate> getDelegates() {
+        rangeRead.set(true);
+        return state.getDelegates();
+    }
+
+    @Override
+    public List<Delegate> getDelegates(int limit) {
+        rangeRead.set(true);
+        return state.getDelegates(limit);
+    }
+
+    @Override
+    public DelegateState track() {
+        return new RecordingDelegateState(state.track(), reads, writes, rangeRead);
+    }
+
+    @Override
+    public void commit() {
+        state.commit();
+    }
+
+    @Override
+    public DelegateState clone() {
+        return new RecordingDelegateState(state.clone(), reads, writes, rangeRead);
+    }
+
+    @Override
+    public void rollback() {
+        state.rollback();
+    }
+
+    @Override
+    public int getDepth() {
+        return state.getDepth();
+    }
+
+    @Override
+    public int getSize() {
+        return state.getSize();
+    }
+
+    private void readWrite(ByteArray key) {
+        reads.add(key);
+        writes.add(key);
+    }
+
+    private static ByteArray delegateKey(byte[] key) {
+        return ByteArray.of(Bytes.merge(TYPE_DELEGATE, key));
+    }
+
+    private static ByteArray voteKey(byte[] voter, byte[] delegate) {
+        return ByteArray.of(Bytes.merge(new byte[] { TYPE_VOTE }, delegate, voter));
+    }
+}
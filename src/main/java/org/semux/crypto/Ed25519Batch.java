@@ -0,0 +1,297 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.crypto;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.List;
+
+import org.semux.crypto.Key.Signature;
+import org.semux.crypto.cache.PublicKeyCache;
+import org.semux.util.ByteArray;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import net.i2p.crypto.eddsa.math.Curve;
+import net.i2p.crypto.eddsa.math.GroupElement;
+import net.i2p.crypto.eddsa.math.GroupElement.Representation;
+import net.i2p.crypto.eddsa.spec.EdDSANamedCurveTable;
+import net.i2p.crypto.eddsa.spec.EdDSAParameterSpec;
+
+/**
+ * Batch verification of ED25519 signatures on the JVM, used by
+ * {@link Key#verifyBatch(java.util.Collection, java.util.Collection)} when the
+ * native library is not available. It's not used by the signature cache, as the
+ * torsion check of R costs a scalar multiplication per signature, which makes
+ * it slower than the parallel single verification, see
+ * {@link Key#isVerifyBatchSupported()}.
+ * <p>
+ * The signatures are checked together with a random linear combination of the
+ * verification equations: $\sum z_i R_i + \sum (z_i h_i) A_i - (\sum z_i s_i) B
+ * = 0$, where $z_i$ are random 128-bit scalars. The left side is computed with
+ * one multi-scalar multiplication (Straus' method over width-5 NAFs), which
+ * shares the point doublings among all the signatures.
+ * <p>
+ * The equation is not multiplied by the cofactor, so it only matches the single
+ * verification when no point has a torsion component: otherwise a small-order
+ * term would be cancelled by $z_i$ with a non-negligible probability. An R that
+ * is not canonically encoded is rejected, as the single verification compares
+ * the encodings, and a signature whose R or A has a torsion component is
+ * verified alone with {@link Key#verify(byte[], Signature)}. Hence the batch
+ * accepts exactly what the single verification accepts.
+ */
+public final class Ed25519Batch {
+
+    private static final EdDSAParameterSpec ED25519SPEC = EdDSANamedCurveTable.getByName("ed25519");
+    private static final Curve CURVE = ED25519SPEC.getCurve();
+    private static final byte[] IDENTITY = CURVE.getZero(Representation.P3).toByteArray();
+
+    private static final BigInteger L = BigInteger.ONE.shiftLeft(252)
+            .add(new BigInteger("27742317777372353535851937790883648493"));
+    private static final byte[] L_DIGITS = slide(toBytes(L));
+    private static final int Z_BITS = 128;
+
+    private static final int MAX_CACHE_SIZE = 16 * 1024;
+
+    /**
+     * Whether the point A of a public key is torsion-free, as the public keys of
+     * validators and active accounts are checked again and again.
+     */
+    private static final Cache<ByteArray, Boolean> torsionFreeKeys = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHE_SIZE).build();
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private Ed25519Batch() {
+    }
+
+    /**
+     * Verifies signatures in a batch.
+     *
+     * @param messages
+     * @param signatures
+     * @return true if all the signatures are valid, otherwise false
+     */
+    public static boolean verify(List<byte[]> messages, List<Signature> signatures) {
+        int n = messages.size();
+        if (n != signatures.size()) {
+            return false;
+        }
+
+        GroupElement[] points = new GroupElement[2 * n + 1];
+        byte[][] digits = new byte[2 * n + 1][];
+        BigInteger sum = BigInteger.ZERO;
+        int m = 0;
+
+        MessageDigest sha512 = sha512();
+        for (int i = 0; i < n; i++) {
+            byte[] message = messages.get(i);
+            Signature signature = signatures.get(i);
+            if (message == null || signature == null) {
+                return false;
+            }
+
+            byte[] sig = signature.getS();
+            byte[] r = Arrays.copyOfRange(sig, 0, 32);
+            BigInteger s = toBigInteger(Arrays.copyOfRange(sig, 32, 64));
+            if (s.compareTo(L) >= 0) {
+                return false;
+            }
+
+            GroupElement pointR;
+            GroupElement pointA;
+            try {
+                pointR = new GroupElement(CURVE, r);
+                pointA = PublicKeyCache.computeIfAbsent(signature.getPublicKey()).getA();
+            } catch (RuntimeException e) {
+                return false;
+            }
+
+            // the single verification compares R with a canonical encoding
+            if (!Arrays.equals(pointR.toByteArray(), r)) {
+                return false;
+            }
+            // a torsion component may be cancelled by z, check such signature alone
+            if (!isTorsionFree(pointR) || !torsionFreeKeys.get(ByteArray.of(signature.getA()),
+                    input -> isTorsionFree(pointA))) {
+                if (!Key.verify(message, signature)) {
+                    return false;
+                }
+                continue;
+            }
+
+            // h = SHA-512(R || A || M) mod l
+            sha512.reset();
+            sha512.update(r);
+            sha512.update(signature.getA());
+            sha512.update(message);
+            BigInteger h = toBigInteger(sha512.digest()).mod(L);
+
+            BigInteger z = new BigInteger(Z_BITS, random);
+            sum = sum.add(z.multiply(s));
+
+            points[2 * m] = pointR;
+            digits[2 * m] = slide(toBytes(z));
+            points[2 * m + 1] = pointA;
+            digits[2 * m + 1] = slide(toBytes(z.multiply(h).mod(L)));
+            m++;
+        }
+
+        // -(sum z_i s_i) B
+        points[2 * m] = ED25519SPEC.getB();
+        digits[2 * m] = slide(toBytes(sum.mod(L)));
+        for (int i = 0; i < digits[2 * m].length; i++) {
+            digits[2 * m][i] = (byte) -digits[2 * m][i];
+        }
+
+        return Arrays.equals(multiScalarMultiply(Arrays.copyOf(points, 2 * m + 1),
+                Arrays.copyOf(digits, 2 * m + 1)).toByteArray(), IDENTITY);
+    }
+
+    /**
+     * Returns whether a point has no torsion component, i.e. $l P = 0$.
+     *
+     * @param p
+     *            a point in P3 representation
+     * @return
+     */
+    protected static boolean isTorsionFree(GroupElement p) {
+        return Arrays.equals(multiScalarMultiply(new GroupElement[] { p }, new byte[][] { L_DIGITS }).toByteArray(),
+                IDENTITY);
+    }
+
+    /**
+     * Computes $\sum d_i P_i$, with the scalars in signed sliding window form.
+     *
+     * @param points
+     *            points in P3 representation
+     * @param digits
+     *            the scalars, as returned by {@link #slide(byte[])}
+     * @return the sum, in P2 representation
+     */
+    protected static GroupElement multiScalarMultiply(GroupElement[] points, byte[][] digits) {
+        // odd multiples: P, 3P, 5P, ..., 15P
+        GroupElement[][] tables = new GroupElement[points.length][];
+        for (int j = 0; j < points.length; j++) {
+            GroupElement p = points[j];
+            GroupElement p2 = p.dbl().toP3();
+            GroupElement[] table = new GroupElement[8];
+            table[0] = p.toCached();
+            for (int k = 1; k < table.length; k++) {
+                table[k] = p2.add(table[k - 1]).toP3().toCached();
+            }
+            tables[j] = table;
+        }
+
+        int top = 255;
+        while (top >= 0 && allZero(digits, top)) {
+            top--;
+        }
+
+        GroupElement r = CURVE.getZero(Representation.P2);
+        for (int i = top; i >= 0; i--) {
+            GroupElement t = r.dbl();
+            for (int j = 0; j < points.length; j++) {
+                byte d = digits[j][i];
+                if (d > 0) {
+                    t = t.toP3().add(tables[j][d / 2]);
+                } else if (d < 0) {
+                    t = t.toP3().sub(tables[j][-d / 2]);
+                }
+            }
+            r = t.toP2();
+        }
+        return r;
+    }
+
+    /**
+     * Converts a scalar into signed digits of a width-5 non-adjacent form: each
+     * non-zero digit is odd and within [-15, 15].
+     *
+     * @param a
+     *            a 32-byte little-endian scalar, less than 2^255
+     * @return 256 digits, least significant first
+     */
+    protected static byte[] slide(byte[] a) {
+        byte[] r = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            r[i] = (byte) (1 & (a[i >> 3] >> (i & 7)));
+        }
+
+        for (int i = 0; i < 256; i++) {
+            if (r[i] == 0) {
+                continue;
+            }
+            for (int b = 1; b <= 6 && i + b < 256; b++) {
+                if (r[i + b] == 0) {
+                    continue;
+                }
+                if (r[i] + (r[i + b] << b) <= 15) {
+                    r[i] += r[i + b] << b;
+                    r[i + b] = 0;
+                } else if (r[i] - (r[i + b] << b) >= -15) {
+                    r[i] -= r[i + b] << b;
+                    for (int k = i + b; k < 256; k++) {
+                        if (r[k] == 0) {
+                            r[k] = 1;
+                            break;
+                        }
+                        r[k] = 0;
+                    }
+                } else {
+                    break;
+                }
+            }
+        }
+
+        return r;
+    }
+
+    private static boolean allZero(byte[][] digits, int i) {
+        for (byte[] d : digits) {
+            if (d[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static MessageDigest sha512() {
+        try {
+            return MessageDigest.getInstance(ED25519SPEC.getHashAlgorithm());
+        } catch (NoSuchAlgorithmException e) {
+            throw new CryptoException(e);
+        }
+    }
+
+    /**
+     * Decodes a little-endian unsigned integer.
+     */
+    private static BigInteger toBigInteger(byte[] le) {
+        byte[] be = new byte[le.length];
+        for (int i = 0; i < le.length; i++) {
+            be[i] = le[le.length - 1 - i];
+        }
+        return new BigInteger(1, be);
+    }
+
+    /**
+     * Encodes a non-negative integer less than 2^256 in 32 bytes, little-endian.
+     */
+    private static byte[] toBytes(BigInteger n) {
+        byte[] be = n.toByteArray();
+        byte[] le = new byte[32];
+        for (int i = 0; i < be.length && i < 32; i++) {
+            le[i] = be[be.length - 1 - i];
+        }
+        return le;
+    }
+}
@@ -13,6 +13,7 @@ import java.security.SecureRandom;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 
@@ -200,13 +201,29 @@ public class Key {
         return false;
     }
 
+    /**
+     * Returns whether batch verification is faster than verifying the signatures
+     * one by one, which is only the case with the native library. The JVM
+     * fallback, {@link Ed25519Batch}, checks every R for a torsion component and
+     * is slower per signature than the parallel single verification.
+     *
+     * @return
+     */
     public static boolean isVerifyBatchSupported() {
         return Native.isEnabled();
     }
 
+    /**
+     * Verifies signatures in a batch, with the native library if enabled,
+     * otherwise with {@link Ed25519Batch}.
+     *
+     * @param messages
+     * @param signatures
+     * @return true if all the signatures are valid, otherwise false
+     */
     public static boolean verifyBatch(Collection<byte[]> messages, Collection<Signature> signatures) {
-        if (!isVerifyBatchSupported()) {
-            throw new UnsupportedOperationException("Key#verifyBatch is only implemented in the native library.");
+        if (!Native.isEnabled()) {
+            return Ed25519Batch.verify(new ArrayList<>(messages), new ArrayList<>(signatures));
         }
 
         return Native.verifyBatch(
@@ -257,8 +274,17 @@ public class Key {
         private static final int S_LEN = 64;
         private static final int A_LEN = 32;
 
-        private byte[] s;
-        private byte[] a;
+        private final byte[] s;
+        private final byte[] a;
+
+        /**
+         * The public key, address and hex address of the signer, derived from A on
+         * first use. Concurrent first calls may both compute them, with equal
+         * results.
+         */
+        private volatile byte[] publicKey;
+        private volatile byte[] address;
+        private volatile String addressString;
 
         /**
          * Creates a Signature instance.
@@ -293,21 +319,44 @@ public class Key {
         }
 
         /**
-         * Returns the public key of the signer.
+         * Returns the public key of the signer. The returned array is shared and
+         * must not be modified.
          * 
          * @return
          */
         public byte[] getPublicKey() {
-            return Bytes.merge(X509, a);
+            byte[] pk = publicKey;
+            if (pk == null) {
+                publicKey = pk = Bytes.merge(X509, a);
+            }
+            return pk;
         }
 
         /**
-         * Returns the address of signer.
+         * Returns the address of signer. The returned array is shared and must not
+         * be modified.
          * 
          * @return
          */
         public byte[] getAddress() {
-            return Hash.h160(getPublicKey());
+            byte[] addr = address;
+            if (addr == null) {
+                address = addr = Hash.h160(getPublicKey());
+            }
+            return addr;
+        }
+
+        /**
+         * Returns the address of signer, in hex.
+         *
+         * @return
+         */
+        public String getAddressString() {
+            String str = addressString;
+            if (str == null) {
+                addressString = str = Hex.encode(getAddress());
+            }
+            return str;
         }
 
         /**
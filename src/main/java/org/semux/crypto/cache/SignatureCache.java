@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.crypto.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+import org.semux.crypto.Hash;
+import org.semux.crypto.Key;
+import org.semux.crypto.Key.Signature;
+import org.semux.util.ByteArray;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+public final class SignatureCache {
+
+    private static final int MAX_CACHE_SIZE = 128 * 1024;
+
+    /**
+     * A transaction signature is verified when the transaction enters the pending
+     * manager, then again when a block proposal and the block itself are
+     * validated. Remembering the valid signatures avoids all but the first
+     * verification.
+     * <p>
+     * The cache is a concurrent set of h256(message || S || A). Only valid
+     * signatures are cached.
+     */
+    private static final Cache<ByteArray, Boolean> verified = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHE_SIZE).build();
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    private SignatureCache() {
+    }
+
+    /**
+     * Verifies a signature, skipping the verification if it's known to be valid.
+     *
+     * @param message
+     * @param signature
+     * @return
+     */
+    public static boolean verify(byte[] message, Signature signature) {
+        if (message == null || signature == null) {
+            return false;
+        }
+
+        ByteArray key = key(message, signature);
+        if (verified.getIfPresent(key) != null) {
+            hits.increment();
+            return true;
+        }
+        misses.increment();
+
+        if (Key.verify(message, signature)) {
+            verified.put(key, Boolean.TRUE);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Verifies signatures, skipping the ones known to be valid. The others are
+     * verified in a batch if supported, otherwise one by one.
+     *
+     * @param messages
+     * @param signatures
+     * @return whether all the signatures are valid
+     */
+    public static boolean verifyBatch(List<byte[]> messages, List<Signature> signatures) {
+        List<byte[]> unknownMessages = new ArrayList<>();
+        List<Signature> unknownSignatures = new ArrayList<>();
+        List<ByteArray> keys = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            byte[] message = messages.get(i);
+            Signature signature = signatures.get(i);
+            if (message == null || signature == null) {
+                return false;
+            }
+
+            ByteArray key = key(message, signature);
+            if (verified.getIfPresent(key) != null) {
+                hits.increment();
+            } else {
+                misses.increment();
+                unknownMessages.add(message);
+                unknownSignatures.add(signature);
+                keys.add(key);
+            }
+        }
+
+        if (unknownMessages.isEmpty()) {
+            return true;
+        }
+
+        boolean valid;
+        if (Key.isVerifyBatchSupported() && unknownMessages.size() >= 3) {
+            valid = Key.verifyBatch(unknownMessages, unknownSignatures);
+        } else {
+            valid = IntStream.range(0, unknownMessages.size()).parallel()
+                    .allMatch(i -> Key.verify(unknownMessages.get(i), unknownSignatures.get(i)));
+        }
+
+        if (valid) {
+            for (ByteArray key : keys) {
+                verified.put(key, Boolean.TRUE);
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Returns whether a signature is known to be valid.
+     *
+     * @param message
+     * @param signature
+     * @return
+     */
+    public static boolean contains(byte[] message, Signature signature) {
+        return verified.getIfPresent(key(message, signature)) != null;
+    }
+
+    /**
+     * Returns the number of verifications skipped.
+     *
+     * @return
+     */
+    public static long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of signatures verified.
+     *
+     * @return
+     */
+    public static long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the ratio of verifications skipped.
+     *
+     * @return a ratio between 0 and 1
+     */
+    public static double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * Removes all the cached signatures and resets the metrics.
+     */
+    public static void clear() {
+        verified.invalidateAll();
+        hits.reset();
+        misses.reset();
+    }
+
+    private static ByteArray key(byte[] message, Signature signature) {
+        return ByteArray.of(Hash.h256(message, signature.toBytes()));
+    }
+}
@@ -54,6 +54,34 @@ public interface Database {
      */
     void updateBatch(List<Pair<byte[], byte[]>> pairs);
 
+    /**
+     * Starts buffering all the subsequent writes in memory, until
+     * {@link #commitBatch(boolean)} or {@link #abortBatch()} is called. Reads and
+     * iterators observe the buffered writes.
+     */
+    void startBatch();
+
+    /**
+     * Writes all the buffered updates to disk, as one batch.
+     *
+     * @param sync
+     *            whether to flush the write-ahead log to disk before returning
+     */
+    void commitBatch(boolean sync);
+
+    /**
+     * Discards all the buffered updates.
+     */
+    void abortBatch();
+
+    /**
+     * Returns the buffered updates of the ongoing batch, in key order.
+     *
+     * @return key value pairs; pair with null value is a delete. The list is empty
+     *         if no batch is in progress.
+     */
+    List<Pair<byte[], byte[]>> getBatch();
+
     /**
      * Returns all the keys.<br>
      * <br>
@@ -72,6 +100,17 @@ public interface Database {
      */
     ClosableIterator<Entry<byte[], byte[]>> iterator(byte[] prefix);
 
+    /**
+     * Returns a read-only view of the data written to disk so far. The view
+     * ignores the buffered writes of the ongoing batch and all the subsequent
+     * writes.<br>
+     * <br>
+     * NOTE: be sure to close the snapshot after use.
+     *
+     * @return
+     */
+    Database snapshot();
+
     /**
      * Closes the database.
      */
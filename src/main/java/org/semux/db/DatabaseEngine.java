@@ -0,0 +1,42 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import java.io.File;
+
+import org.semux.db.LeveldbDatabase.LeveldbFactory;
+import org.semux.db.RocksdbDatabase.RocksdbFactory;
+
+public enum DatabaseEngine {
+
+    /**
+     * One LevelDB instance per {@link DatabaseName}.
+     */
+    LEVELDB,
+
+    /**
+     * One RocksDB instance, with a column family per {@link DatabaseName}.
+     */
+    ROCKSDB;
+
+    /**
+     * Creates a database factory of this engine.
+     *
+     * @param dataDir
+     *            the database directory
+     * @return
+     */
+    public DatabaseFactory createFactory(File dataDir) {
+        switch (this) {
+        case ROCKSDB:
+            return new RocksdbFactory(dataDir);
+        case LEVELDB:
+        default:
+            return new LeveldbFactory(dataDir);
+        }
+    }
+}
@@ -12,8 +12,17 @@ import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.EnumMap;
 
 public interface DatabaseFactory {
+
+    /**
+     * The order in which write batches are committed. The index database goes
+     * first, since it holds the redo log of the others.
+     */
+    DatabaseName[] BATCH_COMMIT_ORDER = { DatabaseName.INDEX, DatabaseName.BLOCK, DatabaseName.ACCOUNT,
+            DatabaseName.DELEGATE, DatabaseName.VOTE, DatabaseName.VOTER };
+
     /**
      * Returns a KVDB instance for the specified database.
      * 
@@ -34,6 +43,79 @@ public interface DatabaseFactory {
      */
     Path getDataDir();
 
+    /**
+     * Starts a write batch on all the databases, so that the mutations of one
+     * block can be committed together.
+     */
+    default void startBatch() {
+        for (DatabaseName name : BATCH_COMMIT_ORDER) {
+            getDB(name).startBatch();
+        }
+    }
+
+    /**
+     * Commits the write batch of all the databases. As the databases are not
+     * written atomically, the index database is written first and synchronously,
+     * along with a redo log of the writes of the others, which are then written
+     * without waiting for the disk. The others are synced periodically.
+     */
+    default void commitBatch() {
+        RedoLog.commit(this);
+    }
+
+    /**
+     * Replays the redo log of the last batch commits, so that all the databases
+     * catch up with the index database after a crash. Must be called before
+     * reading the databases.
+     *
+     * @return the number of replayed commits
+     */
+    default long recoverBatch() {
+        return RedoLog.recover(this);
+    }
+
+    /**
+     * Discards the write batch of all the databases.
+     */
+    default void abortBatch() {
+        for (DatabaseName name : BATCH_COMMIT_ORDER) {
+            getDB(name).abortBatch();
+        }
+    }
+
+    /**
+     * Takes a snapshot of all the databases, see {@link Database#snapshot()}. The
+     * returned factory is read-only, and closing it releases the snapshots.
+     *
+     * @return
+     */
+    default DatabaseFactory snapshot() {
+        EnumMap<DatabaseName, Database> snapshots = new EnumMap<>(DatabaseName.class);
+        for (DatabaseName name : DatabaseName.values()) {
+            snapshots.put(name, getDB(name).snapshot());
+        }
+        Path dataDir = getDataDir();
+
+        return new DatabaseFactory() {
+            @Override
+            public Database getDB(DatabaseName name) {
+                return snapshots.get(name);
+            }
+
+            @Override
+            public void close() {
+                for (Database db : snapshots.values()) {
+                    db.close();
+                }
+            }
+
+            @Override
+            public Path getDataDir() {
+                return dataDir;
+            }
+        };
+    }
+
     /**
      * @param path
      *            the destination path.
@@ -31,5 +31,10 @@ public enum DatabaseName {
     /**
      * Delegate vote data.
      */
-    VOTE
+    VOTE,
+
+    /**
+     * Delegate vote data, indexed by voter.
+     */
+    VOTER
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.semux.util.ClosableIterator;
+
+/**
+ * A read-only view of a database, as returned by {@link Database#snapshot()}.
+ * All the write operations throw {@link UnsupportedOperationException}, and
+ * {@link #close()} releases the snapshot.
+ */
+public abstract class DatabaseSnapshot implements Database {
+
+    @Override
+    public void put(byte[] key, byte[] value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void delete(byte[] key) {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateBatch(List<Pair<byte[], byte[]>> pairs) {
+        throw readOnly();
+    }
+
+    @Override
+    public void startBatch() {
+        throw readOnly();
+    }
+
+    @Override
+    public void commitBatch(boolean sync) {
+        throw readOnly();
+    }
+
+    @Override
+    public void abortBatch() {
+        throw readOnly();
+    }
+
+    @Override
+    public List<Pair<byte[], byte[]>> getBatch() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public ClosableIterator<Entry<byte[], byte[]>> iterator() {
+        return iterator(null);
+    }
+
+    @Override
+    public Database snapshot() {
+        throw readOnly();
+    }
+
+    @Override
+    public void destroy() {
+        throw readOnly();
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Database snapshots are read-only");
+    }
+}
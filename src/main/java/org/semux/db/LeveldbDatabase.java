@@ -11,6 +11,7 @@ import static org.fusesource.leveldbjni.JniDBFactory.factory;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Locale;
@@ -22,8 +23,12 @@ import org.iq80.leveldb.CompressionType;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBIterator;
 import org.iq80.leveldb.Options;
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.Snapshot;
 import org.iq80.leveldb.WriteBatch;
+import org.iq80.leveldb.WriteOptions;
 import org.semux.db.exception.DatabaseException;
+import org.semux.util.ByteArray;
 import org.semux.util.ClosableIterator;
 import org.semux.util.FileUtil;
 import org.semux.util.SystemUtil;
@@ -38,6 +43,11 @@ public class LeveldbDatabase implements Database {
     private DB db;
     private boolean isOpened;
 
+    /**
+     * Buffered writes of the ongoing batch, or null if not in batch mode.
+     */
+    private volatile WriteBuffer batch;
+
     /**
      * Creates an LevelDB instance and opens it.
      *
@@ -120,21 +130,45 @@ public class LeveldbDatabase implements Database {
 
     @Override
     public byte[] get(byte[] key) {
+        WriteBuffer b = batch;
+        if (b != null) {
+            byte[] v = b.get(key);
+            if (v != null) {
+                return v == WriteBuffer.DELETED ? null : v;
+            }
+        }
+
         return db.get(key);
     }
 
     @Override
     public void put(byte[] key, byte[] value) {
-        db.put(key, value);
+        WriteBuffer b = batch;
+        if (b != null) {
+            b.put(key, value);
+        } else {
+            db.put(key, value);
+        }
     }
 
     @Override
     public void delete(byte[] key) {
-        db.delete(key);
+        WriteBuffer b = batch;
+        if (b != null) {
+            b.delete(key);
+        } else {
+            db.delete(key);
+        }
     }
 
     @Override
     public void updateBatch(List<Pair<byte[], byte[]>> pairs) {
+        WriteBuffer b = this.batch;
+        if (b != null) {
+            b.update(pairs);
+            return;
+        }
+
         try (WriteBatch batch = db.createWriteBatch()) {
             for (Pair<byte[], byte[]> p : pairs) {
                 if (p.getValue() == null) {
@@ -150,6 +184,49 @@ public class LeveldbDatabase implements Database {
         }
     }
 
+    @Override
+    public void startBatch() {
+        if (batch != null) {
+            throw new DatabaseException("A batch is already in progress: " + file);
+        }
+        batch = new WriteBuffer();
+    }
+
+    @Override
+    public void commitBatch(boolean sync) {
+        WriteBuffer b = this.batch;
+        if (b == null) {
+            return;
+        }
+
+        try (WriteBatch batch = db.createWriteBatch()) {
+            for (Entry<ByteArray, byte[]> e : b.entries()) {
+                if (e.getValue() == WriteBuffer.DELETED) {
+                    batch.delete(e.getKey().getData());
+                } else {
+                    batch.put(e.getKey().getData(), e.getValue());
+                }
+            }
+            db.write(batch, new WriteOptions().sync(sync));
+        } catch (IOException e) {
+            logger.error("Failed to commit batch", e);
+            SystemUtil.exitAsync(SystemUtil.Code.FAILED_TO_WRITE_BATCH_TO_DB);
+        } finally {
+            this.batch = null;
+        }
+    }
+
+    @Override
+    public void abortBatch() {
+        batch = null;
+    }
+
+    @Override
+    public List<Pair<byte[], byte[]>> getBatch() {
+        WriteBuffer b = batch;
+        return (b == null) ? Collections.emptyList() : b.toPairs();
+    }
+
     @Override
     public void close() {
         try {
@@ -180,9 +257,18 @@ public class LeveldbDatabase implements Database {
 
     @Override
     public ClosableIterator<Entry<byte[], byte[]>> iterator(byte[] prefix) {
+        WriteBuffer b = batch;
+        return (b == null) ? rawIterator(prefix, null) : b.merge(rawIterator(prefix, null), prefix);
+    }
+
+    @Override
+    public Database snapshot() {
+        return new LeveldbSnapshot();
+    }
 
+    private ClosableIterator<Entry<byte[], byte[]>> rawIterator(byte[] prefix, ReadOptions options) {
         return new ClosableIterator<Entry<byte[], byte[]>>() {
-            final DBIterator itr = db.iterator();
+            final DBIterator itr = (options == null) ? db.iterator() : db.iterator(options);
 
             private ClosableIterator<Entry<byte[], byte[]>> initialize() {
                 if (prefix != null) {
@@ -214,6 +300,43 @@ public class LeveldbDatabase implements Database {
         }.initialize();
     }
 
+    /**
+     * A read-only view of the database, backed by a LevelDB snapshot.
+     */
+    private class LeveldbSnapshot extends DatabaseSnapshot {
+
+        private final Snapshot snapshot = db.getSnapshot();
+        private final ReadOptions options = new ReadOptions().snapshot(snapshot);
+        private boolean closed;
+
+        @Override
+        public byte[] get(byte[] key) {
+            return db.get(key, options);
+        }
+
+        @Override
+        public ClosableIterator<Entry<byte[], byte[]>> iterator(byte[] prefix) {
+            return rawIterator(prefix, options);
+        }
+
+        @Override
+        public synchronized void close() {
+            try {
+                if (!closed) {
+                    snapshot.close();
+                    closed = true;
+                }
+            } catch (IOException e) {
+                logger.error("Failed to release database snapshot: {}", file, e);
+            }
+        }
+
+        @Override
+        public Path getDataDir() {
+            return file.toPath();
+        }
+    }
+
     public static class LeveldbFactory implements DatabaseFactory {
 
         private final EnumMap<DatabaseName, Database> databases = new EnumMap<>(DatabaseName.class);
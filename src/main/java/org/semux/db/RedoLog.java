@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.semux.db.exception.DatabaseException;
+import org.semux.util.Bytes;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+/**
+ * The redo log of the batch commits, for databases which can't be written
+ * atomically together.<br>
+ * <br>
+ * A commit writes the index database first and synchronously, along with a
+ * record of the writes of all the other databases, which are then written
+ * without waiting for the disk. On startup, the records are replayed, so that
+ * the other databases catch up with the index database whatever they lost.
+ * Every {@link #CHECKPOINT_INTERVAL} commits, the other databases are written
+ * synchronously as well and the records are dropped.
+ *
+ * <pre>
+ * index DB structure:
+ *
+ * [0xfe] => [first record, next record]
+ * [0xfe, record] => [writes of the other databases]
+ * </pre>
+ */
+final class RedoLog {
+
+    static final byte TYPE_REDO_LOG = (byte) 0xfe;
+
+    /**
+     * Maximum number of records before the databases are synced.
+     */
+    static final int CHECKPOINT_INTERVAL = 64;
+
+    /**
+     * Size of a record, in bytes, above which the databases are synced at once,
+     * e.g. for the multi-block batches of the reindex.
+     */
+    static final int CHECKPOINT_RECORD_SIZE = 1024 * 1024;
+
+    private RedoLog() {
+    }
+
+    /**
+     * Commits the write batches of all the databases, with a single synchronous
+     * write unless a checkpoint is due.
+     *
+     * @param factory
+     */
+    static void commit(DatabaseFactory factory) {
+        Database indexDB = factory.getDB(DatabaseName.INDEX);
+        long[] range = getRange(indexDB);
+        byte[] record = append(factory, range);
+
+        boolean checkpoint = range[1] + 1 - range[0] >= CHECKPOINT_INTERVAL
+                || record.length >= CHECKPOINT_RECORD_SIZE;
+        for (DatabaseName name : DatabaseFactory.BATCH_COMMIT_ORDER) {
+            if (name != DatabaseName.INDEX) {
+                factory.getDB(name).commitBatch(checkpoint);
+            }
+        }
+
+        if (checkpoint) {
+            truncate(indexDB, range[0], range[1] + 1);
+        }
+    }
+
+    /**
+     * Writes the index database synchronously, along with the record of the
+     * writes of the other databases.
+     *
+     * @param factory
+     * @param range
+     *            the records in the log, which is extended by one
+     * @return the record
+     */
+    static byte[] append(DatabaseFactory factory, long[] range) {
+        SimpleEncoder enc = new SimpleEncoder();
+        for (DatabaseName name : DatabaseFactory.BATCH_COMMIT_ORDER) {
+            if (name != DatabaseName.INDEX) {
+                List<Pair<byte[], byte[]>> pairs = factory.getDB(name).getBatch();
+                enc.writeString(name.name());
+                enc.writeInt(pairs.size());
+                for (Pair<byte[], byte[]> p : pairs) {
+                    enc.writeBytes(p.getLeft());
+                    enc.writeBoolean(p.getRight() != null);
+                    if (p.getRight() != null) {
+                        enc.writeBytes(p.getRight());
+                    }
+                }
+            }
+        }
+        byte[] record = enc.toBytes();
+
+        Database indexDB = factory.getDB(DatabaseName.INDEX);
+        indexDB.put(getRecordKey(range[1]), record);
+        indexDB.put(Bytes.of(TYPE_REDO_LOG), encodeRange(range[0], range[1] + 1));
+        indexDB.commitBatch(true);
+
+        return record;
+    }
+
+    /**
+     * Replays the records onto the databases other than the index database, then
+     * syncs them and drops the records.
+     *
+     * @param factory
+     * @return the number of replayed records
+     */
+    static long recover(DatabaseFactory factory) {
+        Database indexDB = factory.getDB(DatabaseName.INDEX);
+        long[] range = getRange(indexDB);
+        if (range[0] == range[1]) {
+            return 0;
+        }
+
+        for (DatabaseName name : DatabaseFactory.BATCH_COMMIT_ORDER) {
+            if (name != DatabaseName.INDEX) {
+                factory.getDB(name).startBatch();
+            }
+        }
+        for (long i = range[0]; i < range[1]; i++) {
+            byte[] record = indexDB.get(getRecordKey(i));
+            if (record == null) {
+                factory.abortBatch();
+                throw new DatabaseException("Missing redo record: " + i);
+            }
+
+            SimpleDecoder dec = new SimpleDecoder(record);
+            while (dec.getReadIndex() < record.length) {
+                Database db = factory.getDB(DatabaseName.valueOf(dec.readString()));
+                int size = dec.readInt();
+                List<Pair<byte[], byte[]>> pairs = new ArrayList<>(size);
+                for (int j = 0; j < size; j++) {
+                    byte[] key = dec.readBytes();
+                    pairs.add(Pair.of(key, dec.readBoolean() ? dec.readBytes() : null));
+                }
+                db.updateBatch(pairs);
+            }
+        }
+        for (DatabaseName name : DatabaseFactory.BATCH_COMMIT_ORDER) {
+            if (name != DatabaseName.INDEX) {
+                factory.getDB(name).commitBatch(true);
+            }
+        }
+
+        truncate(indexDB, range[0], range[1]);
+        return range[1] - range[0];
+    }
+
+    /**
+     * Returns the first record and the next record of the log.
+     *
+     * @param indexDB
+     * @return
+     */
+    static long[] getRange(Database indexDB) {
+        byte[] bytes = indexDB.get(Bytes.of(TYPE_REDO_LOG));
+        if (bytes == null) {
+            return new long[] { 0, 0 };
+        }
+        SimpleDecoder dec = new SimpleDecoder(bytes);
+        return new long[] { dec.readLong(), dec.readLong() };
+    }
+
+    /**
+     * Drops the records once the other databases have been synced. The write
+     * doesn't need to be synced, since the records can be replayed again.
+     */
+    private static void truncate(Database indexDB, long from, long to) {
+        List<Pair<byte[], byte[]>> pairs = new ArrayList<>();
+        for (long i = from; i < to; i++) {
+            pairs.add(Pair.of(getRecordKey(i), null));
+        }
+        pairs.add(Pair.of(Bytes.of(TYPE_REDO_LOG), encodeRange(to, to)));
+        indexDB.updateBatch(pairs);
+    }
+
+    private static byte[] encodeRange(long first, long next) {
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeLong(first);
+        enc.writeLong(next);
+        return enc.toBytes();
+    }
+
+    private static byte[] getRecordKey(long i) {
+        return Bytes.merge(TYPE_REDO_LOG, Bytes.of(i));
+    }
+}
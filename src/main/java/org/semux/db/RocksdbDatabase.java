@@ -0,0 +1,548 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.Cache;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompressionType;
+import org.rocksdb.DBOptions;
+import org.rocksdb.Filter;
+import org.rocksdb.LRUCache;
+import org.rocksdb.ReadOptions;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.Snapshot;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+import org.semux.db.LeveldbDatabase.LeveldbFactory;
+import org.semux.db.exception.DatabaseException;
+import org.semux.util.ByteArray;
+import org.semux.util.ClosableIterator;
+import org.semux.util.FileUtil;
+import org.semux.util.SystemUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A column family of a RocksDB instance. All the {@link DatabaseName}s share
+ * one RocksDB instance, and thus its block cache, write-ahead log and
+ * compaction threads.
+ */
+public class RocksdbDatabase implements Database {
+
+    private static final Logger logger = LoggerFactory.getLogger(RocksdbDatabase.class);
+
+    private final RocksDB db;
+    private final ColumnFamilyHandle handle;
+    private final File file;
+
+    /**
+     * Buffered writes of the ongoing batch, or null if not in batch mode.
+     */
+    private volatile WriteBuffer batch;
+
+    protected RocksdbDatabase(RocksDB db, ColumnFamilyHandle handle, File file) {
+        this.db = db;
+        this.handle = handle;
+        this.file = file;
+    }
+
+    @Override
+    public byte[] get(byte[] key) {
+        WriteBuffer b = batch;
+        if (b != null) {
+            byte[] v = b.get(key);
+            if (v != null) {
+                return v == WriteBuffer.DELETED ? null : v;
+            }
+        }
+
+        try {
+            return db.get(handle, key);
+        } catch (RocksDBException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    @Override
+    public void put(byte[] key, byte[] value) {
+        WriteBuffer b = batch;
+        if (b != null) {
+            b.put(key, value);
+            return;
+        }
+
+        try {
+            db.put(handle, key, value);
+        } catch (RocksDBException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    @Override
+    public void delete(byte[] key) {
+        WriteBuffer b = batch;
+        if (b != null) {
+            b.delete(key);
+            return;
+        }
+
+        try {
+            db.delete(handle, key);
+        } catch (RocksDBException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    @Override
+    public void updateBatch(List<Pair<byte[], byte[]>> pairs) {
+        WriteBuffer b = this.batch;
+        if (b != null) {
+            b.update(pairs);
+            return;
+        }
+
+        try (WriteBatch batch = new WriteBatch(); WriteOptions options = new WriteOptions()) {
+            for (Pair<byte[], byte[]> p : pairs) {
+                if (p.getValue() == null) {
+                    batch.delete(handle, p.getLeft());
+                } else {
+                    batch.put(handle, p.getLeft(), p.getRight());
+                }
+            }
+            db.write(options, batch);
+        } catch (RocksDBException e) {
+            logger.error("Failed to update batch", e);
+            SystemUtil.exitAsync(SystemUtil.Code.FAILED_TO_WRITE_BATCH_TO_DB);
+        }
+    }
+
+    @Override
+    public void startBatch() {
+        if (batch != null) {
+            throw new DatabaseException("A batch is already in progress: " + file);
+        }
+        batch = new WriteBuffer();
+    }
+
+    @Override
+    public void commitBatch(boolean sync) {
+        if (batch == null) {
+            return;
+        }
+
+        try (WriteBatch wb = new WriteBatch(); WriteOptions options = new WriteOptions().setSync(sync)) {
+            appendBatch(wb);
+            db.write(options, wb);
+        } catch (RocksDBException e) {
+            logger.error("Failed to commit batch", e);
+            SystemUtil.exitAsync(SystemUtil.Code.FAILED_TO_WRITE_BATCH_TO_DB);
+        } finally {
+            batch = null;
+        }
+    }
+
+    @Override
+    public void abortBatch() {
+        batch = null;
+    }
+
+    @Override
+    public List<Pair<byte[], byte[]>> getBatch() {
+        WriteBuffer b = batch;
+        return (b == null) ? Collections.emptyList() : b.toPairs();
+    }
+
+    /**
+     * Appends the buffered writes of this column family to the given write batch.
+     *
+     * @param wb
+     * @throws RocksDBException
+     */
+    protected void appendBatch(WriteBatch wb) throws RocksDBException {
+        WriteBuffer b = batch;
+        if (b == null) {
+            return;
+        }
+
+        for (Entry<ByteArray, byte[]> e : b.entries()) {
+            if (e.getValue() == WriteBuffer.DELETED) {
+                wb.delete(handle, e.getKey().getData());
+            } else {
+                wb.put(handle, e.getKey().getData(), e.getValue());
+            }
+        }
+    }
+
+    @Override
+    public ClosableIterator<Entry<byte[], byte[]>> iterator() {
+        return iterator(null);
+    }
+
+    @Override
+    public ClosableIterator<Entry<byte[], byte[]>> iterator(byte[] prefix) {
+        WriteBuffer b = batch;
+        return (b == null) ? rawIterator(prefix, null) : b.merge(rawIterator(prefix, null), prefix);
+    }
+
+    @Override
+    public Database snapshot() {
+        return new RocksdbSnapshot();
+    }
+
+    private ClosableIterator<Entry<byte[], byte[]>> rawIterator(byte[] prefix, ReadOptions options) {
+        return new ClosableIterator<Entry<byte[], byte[]>>() {
+            final RocksIterator itr = (options == null) ? db.newIterator(handle) : db.newIterator(handle, options);
+
+            private ClosableIterator<Entry<byte[], byte[]>> initialize() {
+                if (prefix != null) {
+                    itr.seek(prefix);
+                } else {
+                    itr.seekToFirst();
+                }
+                return this;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return itr.isValid();
+            }
+
+            @Override
+            public Entry<byte[], byte[]> next() {
+                if (!itr.isValid()) {
+                    throw new NoSuchElementException();
+                }
+                Entry<byte[], byte[]> e = new SimpleImmutableEntry<>(itr.key(), itr.value());
+                itr.next();
+                return e;
+            }
+
+            @Override
+            public void close() {
+                itr.close();
+            }
+        }.initialize();
+    }
+
+    /**
+     * Column families are closed together with the RocksDB instance, by
+     * {@link RocksdbFactory#close()}.
+     */
+    @Override
+    public void close() {
+        // do nothing
+    }
+
+    /**
+     * Deletes all the data of this column family.
+     */
+    @Override
+    public void destroy() {
+        List<Pair<byte[], byte[]>> pairs = new ArrayList<>();
+        ClosableIterator<Entry<byte[], byte[]>> itr = rawIterator(null, null);
+        while (itr.hasNext()) {
+            pairs.add(Pair.of(itr.next().getKey(), null));
+        }
+        itr.close();
+        updateBatch(pairs);
+    }
+
+    @Override
+    public Path getDataDir() {
+        return file.toPath();
+    }
+
+    /**
+     * A read-only view of the column family, backed by a RocksDB snapshot.
+     */
+    private class RocksdbSnapshot extends DatabaseSnapshot {
+
+        private final Snapshot snapshot = db.getSnapshot();
+        private final ReadOptions options = new ReadOptions().setSnapshot(snapshot);
+        private boolean closed;
+
+        @Override
+        public byte[] get(byte[] key) {
+            try {
+                return db.get(handle, options, key);
+            } catch (RocksDBException e) {
+                throw new DatabaseException(e);
+            }
+        }
+
+        @Override
+        public ClosableIterator<Entry<byte[], byte[]>> iterator(byte[] prefix) {
+            return rawIterator(prefix, options);
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                db.releaseSnapshot(snapshot);
+                options.close();
+                closed = true;
+            }
+        }
+
+        @Override
+        public Path getDataDir() {
+            return file.toPath();
+        }
+    }
+
+    public static class RocksdbFactory implements DatabaseFactory {
+
+        /**
+         * Name of the RocksDB directory, under the data directory.
+         */
+        public static final String DIR_NAME = "rocksdb";
+
+        private static final long BLOCK_CACHE_SIZE = 256L * 1024L * 1024L;
+        private static final int BLOOM_FILTER_BITS_PER_KEY = 10;
+
+        static {
+            RocksDB.loadLibrary();
+        }
+
+        private final EnumMap<DatabaseName, RocksdbDatabase> databases = new EnumMap<>(DatabaseName.class);
+        private final List<ColumnFamilyHandle> handles = new ArrayList<>();
+        private final List<ColumnFamilyOptions> columnFamilyOptions = new ArrayList<>();
+
+        private final File dataDir;
+        private final Cache blockCache;
+        private final Filter bloomFilter;
+        private final DBOptions options;
+        private RocksDB db;
+
+        public RocksdbFactory(File dataDir) {
+            this.dataDir = dataDir;
+
+            File file = new File(dataDir, DIR_NAME);
+            if (!file.exists() && !file.mkdirs()) {
+                logger.error("Failed to create directory: {}", file);
+            }
+
+            this.blockCache = new LRUCache(BLOCK_CACHE_SIZE);
+            this.bloomFilter = new BloomFilter(BLOOM_FILTER_BITS_PER_KEY, false);
+            this.options = createOptions();
+
+            List<ColumnFamilyDescriptor> descriptors = new ArrayList<>();
+            descriptors.add(new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY, createColumnFamilyOptions(null)));
+            for (DatabaseName name : DatabaseName.values()) {
+                descriptors.add(new ColumnFamilyDescriptor(
+                        name.toString().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8),
+                        createColumnFamilyOptions(name)));
+            }
+
+            try {
+                db = RocksDB.open(options, file.getAbsolutePath(), descriptors, handles);
+            } catch (RocksDBException e) {
+                logger.error("Failed to open database", e);
+                SystemUtil.exitAsync(SystemUtil.Code.FAILED_TO_OPEN_DB);
+                throw new DatabaseException(e);
+            }
+
+            // handles are in the same order as the descriptors, the default one first
+            for (DatabaseName name : DatabaseName.values()) {
+                databases.put(name, new RocksdbDatabase(db, handles.get(name.ordinal() + 1), file));
+            }
+        }
+
+        /**
+         * Creates the database-wide options.
+         *
+         * @return
+         */
+        protected DBOptions createOptions() {
+            int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+            return new DBOptions()
+                    .setCreateIfMissing(true)
+                    .setCreateMissingColumnFamilies(true)
+                    .setParanoidChecks(true)
+                    .setMaxOpenFiles(512)
+                    .setIncreaseParallelism(threads)
+                    .setMaxBackgroundJobs(threads);
+        }
+
+        /**
+         * Creates the options of one column family. All column families share the
+         * block cache and bloom filter policy.
+         *
+         * @param name
+         *            the database name, or null for the default column family
+         * @return
+         */
+        protected ColumnFamilyOptions createColumnFamilyOptions(DatabaseName name) {
+            BlockBasedTableConfig tableConfig = new BlockBasedTableConfig()
+                    .setBlockCache(blockCache)
+                    .setFilterPolicy(bloomFilter)
+                    .setCacheIndexAndFilterBlocks(true)
+                    .setBlockSize(name == DatabaseName.BLOCK ? 64 * 1024 : 16 * 1024);
+
+            ColumnFamilyOptions cfOptions = new ColumnFamilyOptions()
+                    .setTableFormatConfig(tableConfig)
+                    .setLevelCompactionDynamicLevelBytes(true)
+                    .setWriteBufferSize(name == DatabaseName.BLOCK ? 64L * 1024 * 1024 : 16L * 1024 * 1024)
+                    .setCompressionType(CompressionType.LZ4_COMPRESSION);
+
+            if (name == DatabaseName.BLOCK) {
+                // raw blocks are large and mostly cold; favour the compression ratio
+                cfOptions.setBottommostCompressionType(CompressionType.ZSTD_COMPRESSION);
+            }
+
+            columnFamilyOptions.add(cfOptions);
+            return cfOptions;
+        }
+
+        @Override
+        public Database getDB(DatabaseName name) {
+            return databases.get(name);
+        }
+
+        /**
+         * Starts a batch on all the column families.
+         */
+        @Override
+        public void startBatch() {
+            for (RocksdbDatabase d : databases.values()) {
+                d.startBatch();
+            }
+        }
+
+        /**
+         * Commits the buffered writes of all the column families atomically, with a
+         * single synchronous write.
+         */
+        @Override
+        public void commitBatch() {
+            try (WriteBatch wb = new WriteBatch(); WriteOptions options = new WriteOptions().setSync(true)) {
+                for (RocksdbDatabase d : databases.values()) {
+                    d.appendBatch(wb);
+                }
+                db.write(options, wb);
+            } catch (RocksDBException e) {
+                logger.error("Failed to commit batch", e);
+                SystemUtil.exitAsync(SystemUtil.Code.FAILED_TO_WRITE_BATCH_TO_DB);
+            } finally {
+                abortBatch();
+            }
+        }
+
+        @Override
+        public void abortBatch() {
+            for (RocksdbDatabase d : databases.values()) {
+                d.abortBatch();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (db == null) {
+                return;
+            }
+
+            for (ColumnFamilyHandle handle : handles) {
+                handle.close();
+            }
+            handles.clear();
+            databases.clear();
+
+            db.close();
+            db = null;
+
+            options.close();
+            for (ColumnFamilyOptions cfOptions : columnFamilyOptions) {
+                cfOptions.close();
+            }
+            bloomFilter.close();
+            blockCache.close();
+        }
+
+        @Override
+        public Path getDataDir() {
+            return dataDir.toPath();
+        }
+
+        /**
+         * Migrates the LevelDB databases in the given data directory into a RocksDB
+         * database. The new database is built in a temporary directory and moved in
+         * place once complete. The LevelDB databases are kept, so that the node can
+         * still run on them until the database engine is switched in the config.
+         *
+         * @param dataDir
+         *            the database directory
+         * @throws IOException
+         */
+        public static void migrateFromLeveldb(File dataDir) throws IOException {
+            File target = new File(dataDir, DIR_NAME);
+            if (target.exists()) {
+                logger.info("RocksDB database already exists: {}", target);
+                return;
+            }
+
+            File tempDir = new File(dataDir.getParentFile(), dataDir.getName() + "-rocksdb-temp");
+            if (tempDir.exists()) {
+                FileUtil.recursiveDelete(tempDir);
+            }
+
+            LeveldbFactory source = new LeveldbFactory(dataDir);
+            RocksdbFactory destination = new RocksdbFactory(tempDir);
+            try {
+                for (DatabaseName name : DatabaseName.values()) {
+                    long copied = 0;
+                    List<Pair<byte[], byte[]>> pairs = new ArrayList<>();
+
+                    ClosableIterator<Entry<byte[], byte[]>> itr = source.getDB(name).iterator();
+                    while (itr.hasNext()) {
+                        Entry<byte[], byte[]> e = itr.next();
+                        pairs.add(Pair.of(e.getKey(), e.getValue()));
+                        if (pairs.size() >= 10_000) {
+                            destination.getDB(name).updateBatch(pairs);
+                            copied += pairs.size();
+                            pairs.clear();
+                        }
+                    }
+                    itr.close();
+
+                    destination.getDB(name).updateBatch(pairs);
+                    copied += pairs.size();
+                    logger.info("Migrated {}: {} entries", name, copied);
+                }
+            } finally {
+                source.close();
+                destination.close();
+            }
+
+            Files.move(new File(tempDir, DIR_NAME).toPath(), target.toPath(), ATOMIC_MOVE);
+            FileUtil.recursiveDelete(tempDir);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.semux.util.ByteArray;
+import org.semux.util.ClosableIterator;
+
+/**
+ * In-memory buffer of the writes of a database batch. Keys are ordered the same
+ * way as the bytewise comparator of LevelDB and RocksDB, so that the buffer can
+ * be merged into database iterators.
+ */
+class WriteBuffer {
+
+    /**
+     * Marker of a buffered delete.
+     */
+    static final byte[] DELETED = new byte[0];
+
+    private final ConcurrentSkipListMap<ByteArray, byte[]> map = new ConcurrentSkipListMap<>();
+
+    /**
+     * Returns the buffered value of the given key, {@link #DELETED} if the key has
+     * been deleted, or null if the key is not in this buffer.
+     *
+     * @param key
+     * @return
+     */
+    byte[] get(byte[] key) {
+        return map.get(ByteArray.of(key));
+    }
+
+    void put(byte[] key, byte[] value) {
+        map.put(ByteArray.of(key), value);
+    }
+
+    void delete(byte[] key) {
+        map.put(ByteArray.of(key), DELETED);
+    }
+
+    void update(List<Pair<byte[], byte[]>> pairs) {
+        for (Pair<byte[], byte[]> p : pairs) {
+            map.put(ByteArray.of(p.getLeft()), p.getRight() == null ? DELETED : p.getRight());
+        }
+    }
+
+    /**
+     * Returns all the buffered writes, in key order.
+     *
+     * @return
+     */
+    Set<Entry<ByteArray, byte[]>> entries() {
+        return map.entrySet();
+    }
+
+    /**
+     * Returns all the buffered writes as key value pairs, in key order. Deletes
+     * have a null value.
+     *
+     * @return
+     */
+    List<Pair<byte[], byte[]>> toPairs() {
+        List<Pair<byte[], byte[]>> pairs = new ArrayList<>(map.size());
+        for (Entry<ByteArray, byte[]> e : map.entrySet()) {
+            pairs.add(Pair.of(e.getKey().getData(), e.getValue() == DELETED ? null : e.getValue()));
+        }
+        return pairs;
+    }
+
+    /**
+     * Merges the buffered writes into a database iterator which starts from the
+     * given prefix; buffered writes take precedence.
+     *
+     * @param dbItr
+     * @param prefix
+     * @return
+     */
+    ClosableIterator<Entry<byte[], byte[]>> merge(ClosableIterator<Entry<byte[], byte[]>> dbItr, byte[] prefix) {
+        return new MergedIterator(dbItr,
+                (prefix == null ? map : map.tailMap(ByteArray.of(prefix))).entrySet().iterator());
+    }
+
+    private static class MergedIterator implements ClosableIterator<Entry<byte[], byte[]>> {
+
+        private final ClosableIterator<Entry<byte[], byte[]>> dbItr;
+        private final Iterator<Entry<ByteArray, byte[]>> bufferItr;
+
+        private Entry<byte[], byte[]> dbNext;
+        private Entry<ByteArray, byte[]> bufferNext;
+        private Entry<byte[], byte[]> next;
+
+        MergedIterator(ClosableIterator<Entry<byte[], byte[]>> dbItr, Iterator<Entry<ByteArray, byte[]>> bufferItr) {
+            this.dbItr = dbItr;
+            this.bufferItr = bufferItr;
+            advance();
+        }
+
+        private void advance() {
+            while (true) {
+                if (dbNext == null && dbItr.hasNext()) {
+                    dbNext = dbItr.next();
+                }
+                if (bufferNext == null && bufferItr.hasNext()) {
+                    bufferNext = bufferItr.next();
+                }
+
+                if (dbNext == null && bufferNext == null) {
+                    next = null;
+                    return;
+                }
+
+                int cmp = (dbNext == null) ? 1
+                        : (bufferNext == null) ? -1 : ByteArray.of(dbNext.getKey()).compareTo(bufferNext.getKey());
+                if (cmp < 0) {
+                    next = dbNext;
+                    dbNext = null;
+                    return;
+                }
+
+                if (cmp == 0) {
+                    dbNext = null; // overwritten by the buffer
+                }
+                Entry<ByteArray, byte[]> e = bufferNext;
+                bufferNext = null;
+                if (e.getValue() != DELETED) {
+                    next = new SimpleImmutableEntry<>(e.getKey().getData(), e.getValue());
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<byte[], byte[]> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Entry<byte[], byte[]> e = next;
+            advance();
+            return e;
+        }
+
+        @Override
+        public void close() {
+            dbItr.close();
+        }
+    }
+}
@@ -31,7 +31,7 @@ import org.semux.config.Config;
 import org.semux.config.Constants;
 import org.semux.config.exception.ConfigException;
 import org.semux.core.Block;
-import org.semux.core.Blockchain;
+import org.semux.core.BlockchainSnapshot;
 import org.semux.core.Fork;
 import org.semux.core.Genesis;
 import org.semux.core.Transaction;
@@ -460,13 +460,24 @@ public class SemuxGui extends Launcher {
     }
 
     /**
-     * Update the model.
+     * Update the model, from a snapshot of the blockchain so that a block being
+     * imported is either fully visible or not at all.
      */
     public void updateModel() {
-        Blockchain chain = kernel.getBlockchain();
+        try (BlockchainSnapshot chain = kernel.getBlockchain().snapshot()) {
+            updateModel(chain);
+        }
+    }
+
+    /**
+     * Update the model from a blockchain.
+     *
+     * @param chain
+     */
+    protected void updateModel(BlockchainSnapshot chain) {
         AccountState as = chain.getAccountState();
         DelegateState ds = chain.getDelegateState();
-        Block block = kernel.getBlockchain().getLatestBlock();
+        Block block = chain.getLatestBlock();
 
         // update latest block and coinbase delegate status
         model.setSyncProgress(kernel.getSyncManager().getProgress());
@@ -17,6 +17,7 @@ import java.text.ParseException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.GroupLayout;
 import javax.swing.GroupLayout.Alignment;
@@ -56,6 +57,7 @@ import org.semux.gui.model.WalletAccount;
 import org.semux.gui.model.WalletDelegate;
 import org.semux.gui.model.WalletModel;
 import org.semux.message.GuiMessages;
+import org.semux.util.ByteArray;
 import org.semux.util.Bytes;
 import org.semux.util.SystemUtil;
 import org.semux.util.exception.UnreachableException;
@@ -421,9 +423,9 @@ public class DelegatesPanel extends JPanel implements ActionListener {
         if (acc != null) {
             byte[] voter = acc.getKey().toAddress();
             Blockchain chain = kernel.getBlockchain();
-            DelegateState ds = chain.getDelegateState();
+            Map<ByteArray, Amount> votes = chain.getDelegateState().getVotesByVoter(voter);
             for (WalletDelegate wd : delegates) {
-                Amount vote = ds.getVote(voter, wd.getAddress());
+                Amount vote = votes.getOrDefault(ByteArray.of(wd.getAddress()), Amount.ZERO);
                 wd.setVotesFromMe(vote);
 
                 ValidatorStats s = chain.getValidatorStats(wd.getAddress());
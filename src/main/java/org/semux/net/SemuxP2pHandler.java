@@ -28,7 +28,6 @@ import org.semux.config.Config;
 import org.semux.core.BftManager;
 import org.semux.core.Block;
 import org.semux.core.BlockHeader;
-import org.semux.core.BlockPart;
 import org.semux.core.Blockchain;
 import org.semux.core.PendingManager;
 import org.semux.core.SyncManager;
@@ -469,25 +468,11 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
             long number = m.getNumber();
             int parts = m.getParts();
 
-            List<byte[]> partsSerialized = new ArrayList<>();
-            Block block = chain.getBlock(number);
-            for (BlockPart part : BlockPart.decode(parts)) {
-                switch (part) {
-                case HEADER:
-                    partsSerialized.add(block.getEncodedHeader());
-                    break;
-                case TRANSACTIONS:
-                    partsSerialized.add(block.getEncodedTransactions());
-                    break;
-                case RESULTS:
-                    partsSerialized.add(block.getEncodedResults());
-                    break;
-                case VOTES:
-                    partsSerialized.add(block.getEncodedVotes());
-                    break;
-                default:
-                    throw new UnreachableException();
-                }
+            // the stored parts are sent as they are, without decoding the block
+            List<byte[]> partsSerialized = chain.getBlockParts(number, parts);
+            if (partsSerialized == null) {
+                logger.debug("Block parts requested for missing block: number = {}", number);
+                break;
             }
 
             channel.getMessageQueue().sendMessage(new BlockPartsMessage(number, parts, partsSerialized));
@@ -11,7 +11,6 @@ import java.util.List;
 
 import org.semux.Network;
 import org.semux.config.Config;
-import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
 import org.semux.net.Peer;
 import org.semux.net.msg.Message;
@@ -76,7 +75,7 @@ public class HandshakeMessage extends Message {
         if (peer != null && validatePeer(peer)
                 && Math.abs(TimeUtil.currentTimeMillis() - timestamp) <= config.netHandshakeExpiry()
                 && signature != null
-                && peer.getPeerId().equals(Hex.encode(signature.getAddress()))) {
+                && peer.getPeerId().equals(signature.getAddressString())) {
 
             SimpleEncoder enc = new SimpleEncoder();
             enc.writeBytes(encodePeer(peer));
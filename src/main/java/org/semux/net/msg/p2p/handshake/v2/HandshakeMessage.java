@@ -11,7 +11,6 @@ import java.util.List;
 
 import org.semux.Network;
 import org.semux.config.Config;
-import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
 import org.semux.net.Peer;
 import org.semux.net.msg.Message;
@@ -121,7 +120,7 @@ public abstract class HandshakeMessage extends Message {
                 && secret != null && secret.length == InitMessage.SECRET_LENGTH
                 && Math.abs(TimeUtil.currentTimeMillis() - timestamp) <= config.netHandshakeExpiry()
                 && signature != null
-                && peerId.equals(Hex.encode(signature.getAddress()))) {
+                && peerId.equals(signature.getAddressString())) {
 
             SimpleEncoder enc = encodeBasicInfo();
             return Key.verify(enc.toBytes(), signature);
@@ -16,6 +16,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.stream.LongStream;
 
@@ -23,9 +24,9 @@ import org.semux.core.Amount;
 import org.semux.core.state.Account;
 import org.semux.crypto.Hex;
 import org.semux.db.Database;
+import org.semux.db.DatabaseEngine;
 import org.semux.db.DatabaseFactory;
 import org.semux.db.DatabaseName;
-import org.semux.db.LeveldbDatabase;
 import org.semux.util.Bytes;
 import org.semux.util.ClosableIterator;
 
@@ -33,11 +34,14 @@ public class DatabaseIntegrityChecker {
 
     public static void main(String[] args) throws IOException {
         if (args.length < 1) {
-            System.out.println("Usage: java DatabaseIntegrityCheker.java [DATABASE_DIR]");
+            System.out.println(
+                    "Usage: java DatabaseIntegrityCheker.java [DATABASE_DIR] [OUTPUT_FILE] [DATABASE_ENGINE]");
             return;
         }
 
-        DatabaseFactory dbFactory = new LeveldbDatabase.LeveldbFactory(new File(args[0]));
+        DatabaseEngine engine = (args.length >= 3) ? DatabaseEngine.valueOf(args[2].toUpperCase(Locale.ROOT))
+                : DatabaseEngine.LEVELDB;
+        DatabaseFactory dbFactory = engine.createFactory(new File(args[0]));
         PrintStream out = System.out;
         if (args.length >= 2) {
             out = new PrintStream(new FileOutputStream(args[1]), true, StandardCharsets.UTF_8.name());
@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A blocked bloom filter for cryptographic hashes. Each key maps to one
+ * 512-bit block (a cache line), where {@link #HASH_FUNCTIONS} bits are set.
+ * <br>
+ * <br>
+ * The keys are expected to be uniformly distributed and at least 16 bytes
+ * long, e.g. transaction hashes, so the bit positions are taken from the key
+ * itself rather than rehashing it.<br>
+ * <br>
+ * This filter supports one writer and many concurrent readers.
+ */
+public class BloomFilter {
+
+    private static final int VERSION = 1;
+
+    private static final int BITS_PER_KEY = 10;
+    private static final int HASH_FUNCTIONS = 7;
+    private static final int WORDS_PER_BLOCK = 8; // 512 bits
+
+    private final long capacity;
+    private final int blocks;
+    private final AtomicLongArray words;
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * Creates an empty bloom filter.
+     *
+     * @param capacity
+     *            the expected number of keys
+     */
+    public BloomFilter(long capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.blocks = (int) Math.min(Integer.MAX_VALUE / WORDS_PER_BLOCK,
+                Math.max(1, (this.capacity * BITS_PER_KEY + 511) / 512));
+        this.words = new AtomicLongArray(blocks * WORDS_PER_BLOCK);
+    }
+
+    /**
+     * Adds a key to this filter.
+     *
+     * @param key
+     */
+    public void add(byte[] key) {
+        long h1 = Bytes.toLong(key, 0);
+        long h2 = Bytes.toLong(key, 8);
+        int base = block(h1) * WORDS_PER_BLOCK;
+
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            int pos = (int) ((h2 >>> (i * 9)) & 511);
+            int idx = base + (pos >>> 6);
+            long mask = 1L << (pos & 63);
+            words.set(idx, words.get(idx) | mask);
+        }
+        count.incrementAndGet();
+    }
+
+    /**
+     * Returns whether the key might have been added to this filter. A false
+     * return value is definite.
+     *
+     * @param key
+     * @return
+     */
+    public boolean mightContain(byte[] key) {
+        long h1 = Bytes.toLong(key, 0);
+        long h2 = Bytes.toLong(key, 8);
+        int base = block(h1) * WORDS_PER_BLOCK;
+
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            int pos = (int) ((h2 >>> (i * 9)) & 511);
+            if ((words.get(base + (pos >>> 6)) & (1L << (pos & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the expected number of keys this filter was sized for.
+     *
+     * @return
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of keys added so far.
+     *
+     * @return
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns whether more keys than the capacity have been added, in which case
+     * the false positive rate grows beyond the target.
+     *
+     * @return
+     */
+    public boolean isSaturated() {
+        return getCount() > capacity;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(VERSION);
+        out.writeLong(capacity);
+        out.writeLong(count.get());
+        out.writeInt(words.length());
+        for (int i = 0; i < words.length(); i++) {
+            out.writeLong(words.get(i));
+        }
+    }
+
+    public static BloomFilter readFrom(DataInput in) throws IOException {
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported bloom filter version: " + version);
+        }
+
+        BloomFilter filter = new BloomFilter(in.readLong());
+        filter.count.set(in.readLong());
+        int n = in.readInt();
+        if (n != filter.words.length()) {
+            throw new IOException("Bloom filter size mismatch: expected = " + filter.words.length() + ", got = " + n);
+        }
+        for (int i = 0; i < n; i++) {
+            filter.words.set(i, in.readLong());
+        }
+        return filter;
+    }
+
+    private int block(long h) {
+        return (int) Long.remainderUnsigned(h, blocks);
+    }
+}
@@ -259,13 +259,24 @@ public class Bytes {
      * @return
      */
     public static long toLong(byte[] bytes) {
-        return ((bytes[0] & 0xffL) << 56)
-                | ((bytes[1] & 0xffL) << 48)
-                | ((bytes[2] & 0xffL) << 40)
-                | ((bytes[3] & 0xffL) << 32)
-                | ((bytes[4] & 0xffL) << 24)
-                | ((bytes[5] & 0xffL) << 16)
-                | ((bytes[6] & 0xffL) << 8)
-                | (bytes[7] & 0xff);
+        return toLong(bytes, 0);
+    }
+
+    /**
+     * Covert 8 bytes, starting from the given offset, into a long integer.
+     *
+     * @param bytes
+     * @param offset
+     * @return
+     */
+    public static long toLong(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xffL) << 56)
+                | ((bytes[offset + 1] & 0xffL) << 48)
+                | ((bytes[offset + 2] & 0xffL) << 40)
+                | ((bytes[offset + 3] & 0xffL) << 32)
+                | ((bytes[offset + 4] & 0xffL) << 24)
+                | ((bytes[offset + 5] & 0xffL) << 16)
+                | ((bytes[offset + 6] & 0xffL) << 8)
+                | (bytes[offset + 7] & 0xff);
     }
 }
@@ -0,0 +1,303 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.util;
+
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable hash map, implemented as a hash array mapped trie. Updates
+ * return a new map which shares the unchanged nodes with the original one, so
+ * that taking a snapshot is free and an update copies at most one node per
+ * level of the trie.<br>
+ * <br>
+ * Null values are allowed, and are distinguished from absent keys by
+ * {@link #getOrDefault(Object, Object)}. Instances are safe to share among
+ * threads.
+ *
+ * @param <K>
+ *            the key type
+ * @param <V>
+ *            the value type
+ */
+public final class PersistentMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+
+    /**
+     * The root of the trie: null, a {@link Leaf}, a {@link Collision} or a
+     * {@link Node}.
+     */
+    private final Object root;
+    private final int size;
+
+    private PersistentMap(Object root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the empty map.
+     *
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value of a key, or null if absent.
+     *
+     * @param key
+     * @return
+     */
+    public V get(K key) {
+        return getOrDefault(key, null);
+    }
+
+    /**
+     * Returns whether a key is present, possibly with a null value.
+     *
+     * @param key
+     * @return
+     */
+    public boolean containsKey(K key) {
+        return getOrDefault(key, absent()) != absent();
+    }
+
+    /**
+     * Returns the value of a key, or a default value if absent.
+     *
+     * @param key
+     * @param notFound
+     *            the value returned if the key is absent
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(K key, V notFound) {
+        int hash = key.hashCode();
+        Object n = root;
+        for (int shift = 0; n != null; shift += BITS) {
+            if (n instanceof Node) {
+                Node node = (Node) n;
+                int bit = 1 << ((hash >>> shift) & MASK);
+                if ((node.bitmap & bit) == 0) {
+                    return notFound;
+                }
+                n = node.slots[Integer.bitCount(node.bitmap & (bit - 1))];
+            } else if (n instanceof Leaf) {
+                Leaf leaf = (Leaf) n;
+                return (leaf.hash == hash && leaf.key.equals(key)) ? (V) leaf.value : notFound;
+            } else {
+                Collision c = (Collision) n;
+                if (c.hash == hash) {
+                    for (Leaf leaf : c.leaves) {
+                        if (leaf.key.equals(key)) {
+                            return (V) leaf.value;
+                        }
+                    }
+                }
+                return notFound;
+            }
+        }
+        return notFound;
+    }
+
+    /**
+     * Returns a map with a key set to a value.
+     *
+     * @param key
+     * @param value
+     * @return
+     */
+    public PersistentMap<K, V> put(K key, V value) {
+        boolean[] added = new boolean[1];
+        Object r = put(root, new Leaf(key.hashCode(), key, value), 0, added);
+        return new PersistentMap<>(r, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Returns a map with all the entries of another map added, replacing the
+     * values of the existing keys.
+     *
+     * @param other
+     * @return
+     */
+    public PersistentMap<K, V> putAll(PersistentMap<K, V> other) {
+        if (isEmpty()) {
+            return other;
+        }
+
+        Object r = root;
+        int n = size;
+        boolean[] added = new boolean[1];
+        for (Leaf leaf : other.leaves()) {
+            added[0] = false;
+            r = put(r, leaf, 0, added);
+            n += added[0] ? 1 : 0;
+        }
+        return new PersistentMap<>(r, n);
+    }
+
+    /**
+     * Performs an action for each entry, in no particular order.
+     *
+     * @param action
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Leaf leaf : leaves()) {
+            action.accept((K) leaf.key, (V) leaf.value);
+        }
+    }
+
+    private Leaf[] leaves() {
+        Leaf[] result = new Leaf[size];
+        collect(root, result, 0);
+        return result;
+    }
+
+    private static int collect(Object n, Leaf[] result, int i) {
+        if (n instanceof Node) {
+            for (Object child : ((Node) n).slots) {
+                i = collect(child, result, i);
+            }
+        } else if (n instanceof Leaf) {
+            result[i++] = (Leaf) n;
+        } else if (n instanceof Collision) {
+            for (Leaf leaf : ((Collision) n).leaves) {
+                result[i++] = leaf;
+            }
+        }
+        return i;
+    }
+
+    private static Object put(Object n, Leaf leaf, int shift, boolean[] added) {
+        if (n == null) {
+            added[0] = true;
+            return leaf;
+        } else if (n instanceof Leaf) {
+            Leaf l = (Leaf) n;
+            if (l.hash != leaf.hash) {
+                added[0] = true;
+                return merge(l, l.hash, leaf, shift);
+            } else if (l.key.equals(leaf.key)) {
+                return leaf;
+            } else {
+                added[0] = true;
+                return new Collision(leaf.hash, new Leaf[] { l, leaf });
+            }
+        } else if (n instanceof Collision) {
+            Collision c = (Collision) n;
+            if (c.hash != leaf.hash) {
+                added[0] = true;
+                return merge(c, c.hash, leaf, shift);
+            }
+
+            for (int i = 0; i < c.leaves.length; i++) {
+                if (c.leaves[i].key.equals(leaf.key)) {
+                    Leaf[] leaves = c.leaves.clone();
+                    leaves[i] = leaf;
+                    return new Collision(c.hash, leaves);
+                }
+            }
+            Leaf[] leaves = new Leaf[c.leaves.length + 1];
+            System.arraycopy(c.leaves, 0, leaves, 0, c.leaves.length);
+            leaves[c.leaves.length] = leaf;
+            added[0] = true;
+            return new Collision(c.hash, leaves);
+        } else {
+            Node node = (Node) n;
+            int bit = 1 << ((leaf.hash >>> shift) & MASK);
+            int idx = Integer.bitCount(node.bitmap & (bit - 1));
+
+            if ((node.bitmap & bit) == 0) {
+                Object[] slots = new Object[node.slots.length + 1];
+                System.arraycopy(node.slots, 0, slots, 0, idx);
+                slots[idx] = leaf;
+                System.arraycopy(node.slots, idx, slots, idx + 1, node.slots.length - idx);
+                added[0] = true;
+                return new Node(node.bitmap | bit, slots);
+            } else {
+                Object[] slots = node.slots.clone();
+                slots[idx] = put(slots[idx], leaf, shift + BITS, added);
+                return new Node(node.bitmap, slots);
+            }
+        }
+    }
+
+    /**
+     * Creates the node holding an existing leaf or collision and a new leaf of a
+     * different hash.
+     */
+    private static Object merge(Object n, int hash, Leaf leaf, int shift) {
+        int i1 = (hash >>> shift) & MASK;
+        int i2 = (leaf.hash >>> shift) & MASK;
+        if (i1 == i2) {
+            return new Node(1 << i1, new Object[] { merge(n, hash, leaf, shift + BITS) });
+        } else {
+            return new Node((1 << i1) | (1 << i2), i1 < i2 ? new Object[] { n, leaf } : new Object[] { leaf, n });
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V absent() {
+        return (V) Absent.INSTANCE;
+    }
+
+    private enum Absent {
+        INSTANCE
+    }
+
+    private static final class Leaf {
+        final int hash;
+        final Object key;
+        final Object value;
+
+        Leaf(int hash, Object key, Object value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static final class Collision {
+        final int hash;
+        final Leaf[] leaves;
+
+        Collision(int hash, Leaf[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+    }
+
+    private static final class Node {
+        final int bitmap;
+        final Object[] slots;
+
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+    }
+}
@@ -87,6 +87,16 @@ public class SimpleDecoder {
         return readBytes(true);
     }
 
+    /**
+     * Skips a byte array, without copying it.
+     */
+    public void skipBytes() {
+        int len = readSize();
+
+        require(len);
+        index += len;
+    }
+
     public String readString() {
         try {
             return new String(readBytes(), ENCODING);
@@ -6,50 +6,55 @@
  */
 package org.semux.util;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.util.Arrays;
 
 import org.semux.core.Amount;
-import org.semux.util.exception.SimpleCodecException;
 
+/**
+ * Encoder writing into a growable byte array. When the exact size is known
+ * beforehand, {@link #SimpleEncoder(int)} avoids any resizing and copying.
+ */
 public class SimpleEncoder {
-    private final ByteArrayOutputStream out;
+    private static final int DEFAULT_SIZE = 32;
+
+    private byte[] buf;
+    private int size;
 
     public SimpleEncoder(byte[] toAppend) {
-        this.out = new ByteArrayOutputStream();
-        try {
-            out.write(toAppend);
-        } catch (IOException e) {
-            throw new SimpleCodecException(e);
-        }
+        this(Math.max(DEFAULT_SIZE, toAppend.length * 2));
+        System.arraycopy(toAppend, 0, buf, 0, toAppend.length);
+        size = toAppend.length;
     }
 
     public SimpleEncoder() {
-        this(Bytes.EMPTY_BYTES);
+        this(DEFAULT_SIZE);
     }
 
     public SimpleEncoder(int size) {
-        out = new ByteArrayOutputStream(size);
+        this.buf = new byte[size];
     }
 
     public void writeBoolean(boolean b) {
-        out.write(b ? 1 : 0);
+        writeByte(b ? (byte) 1 : (byte) 0);
     }
 
     public void writeByte(byte b) {
-        out.write(b);
+        ensureCapacity(1);
+        buf[size++] = b;
     }
 
     public void writeShort(short s) {
-        out.write(0xFF & (s >>> 8));
-        out.write(0xFF & s);
+        ensureCapacity(2);
+        buf[size++] = (byte) (s >>> 8);
+        buf[size++] = (byte) s;
     }
 
     public void writeInt(int i) {
-        out.write(0xFF & (i >>> 24));
-        out.write(0xFF & (i >>> 16));
-        out.write(0xFF & (i >>> 8));
-        out.write(0xFF & i);
+        ensureCapacity(4);
+        buf[size++] = (byte) (i >>> 24);
+        buf[size++] = (byte) (i >>> 16);
+        buf[size++] = (byte) (i >>> 8);
+        buf[size++] = (byte) i;
     }
 
     public void writeLong(long l) {
@@ -79,11 +84,9 @@ public class SimpleEncoder {
             writeInt(bytes.length);
         }
 
-        try {
-            out.write(bytes);
-        } catch (IOException e) {
-            throw new SimpleCodecException(e);
-        }
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buf, size, bytes.length);
+        size += bytes.length;
     }
 
     public void writeBytes(byte[] bytes) {
@@ -94,12 +97,42 @@ public class SimpleEncoder {
         writeBytes(Bytes.of(s));
     }
 
+    /**
+     * Returns the encoded bytes. The backing array is returned without copying if
+     * it has been filled exactly.
+     *
+     * @return
+     */
     public byte[] toBytes() {
-        return out.toByteArray();
+        return size == buf.length ? buf : Arrays.copyOf(buf, size);
     }
 
     public int getWriteIndex() {
-        return out.size();
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes written by {@link #writeBytes(byte[])}.
+     *
+     * @param bytes
+     * @return
+     */
+    public static int sizeOf(byte[] bytes) {
+        return sizeOfSize(bytes.length) + bytes.length;
+    }
+
+    /**
+     * Returns the number of bytes written by {@link #writeSize(int)}.
+     *
+     * @param size
+     * @return
+     */
+    protected static int sizeOfSize(int size) {
+        int n = 1;
+        while ((size >>>= 7) > 0) {
+            n++;
+        }
+        return n;
     }
 
     /**
@@ -116,19 +149,17 @@ public class SimpleEncoder {
             throw new IllegalArgumentException("Size can't be larger than 0x0FFFFFFF: " + size);
         }
 
-        int[] buf = new int[4];
-        int i = buf.length;
-        do {
-            buf[--i] = size & 0x7f;
-            size >>>= 7;
-        } while (size > 0);
-
-        while (i < buf.length) {
-            if (i != buf.length - 1) {
-                out.write((byte) (buf[i++] | 0x80));
-            } else {
-                out.write((byte) buf[i++]);
-            }
+        int n = sizeOfSize(size);
+        ensureCapacity(n);
+        for (int i = n - 1; i >= 0; i--) {
+            int b = (size >>> (7 * i)) & 0x7f;
+            buf[this.size++] = (byte) (i != 0 ? b | 0x80 : b);
+        }
+    }
+
+    private void ensureCapacity(int n) {
+        if (size + n > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + n));
         }
     }
 }
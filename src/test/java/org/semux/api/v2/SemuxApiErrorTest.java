@@ -104,6 +104,10 @@ public class SemuxApiErrorTest extends SemuxApiTestBase {
                         uriBuilder("getAccountTransactions").queryParam("address", randomHex()).queryParam("from", "0")
                                 .queryParam("to", "I_am_not_a_number").build() },
 
+                { GET.class,
+                        uriBuilder("getAccountTransactions").queryParam("address", randomHex())
+                                .queryParam("cursor", "0000000000000000").build() },
+
                 { GET.class, uriBuilder("getTransaction").build() },
 
                 { GET.class, uriBuilder("getTransaction").queryParam("hash", "I_am_not_a_hexadecimal_string").build() },
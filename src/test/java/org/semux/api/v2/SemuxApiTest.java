@@ -57,6 +57,7 @@ import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.security.spec.InvalidKeySpecException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -206,6 +207,7 @@ public class SemuxApiTest extends SemuxApiTestBase {
         // create an account
         Key key = new Key();
         accountState.adjustAvailable(key.toAddress(), Amount.of(1000, SEM));
+        accountState.commit();
         chain.addBlock(createBlock(
                 chain.getLatestBlockNumber() + 1,
                 Collections.singletonList(createTransaction(config, key, key, Amount.ZERO)),
@@ -234,9 +236,37 @@ public class SemuxApiTest extends SemuxApiTestBase {
                 Collections.singletonList(res));
         chain.addBlock(block);
 
-        GetAccountTransactionsResponse response = api.getAccountTransactions(Hex.encode(tx.getFrom()), "0", "1024");
+        GetAccountTransactionsResponse response = api.getAccountTransactions(Hex.encode(tx.getFrom()), "0", "1024",
+                null);
         assertTrue(response.isSuccess());
         assertNotNull(response.getResult());
+        assertNull(response.getNextCursor());
+    }
+
+    @Test
+    public void getAccountTransactionsCursorTest() {
+        Key from = new Key();
+        List<Transaction> txs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            txs.add(createTransaction(config, from, new Key(), Amount.ZERO));
+        }
+        TransactionResult res = new TransactionResult();
+        Block block = createBlock(chain.getLatestBlockNumber() + 1, txs, Collections.nCopies(txs.size(), res));
+        chain.addBlock(block);
+
+        String address = Hex.encode(from.toAddress());
+        List<String> hashes = new ArrayList<>();
+        GetAccountTransactionsResponse response = api.getAccountTransactions(address, "0", "2", null);
+        assertTrue(response.isSuccess());
+        response.getResult().forEach(t -> hashes.add(t.getHash()));
+        while (response.getNextCursor() != null) {
+            response = api.getAccountTransactions(address, null, null, response.getNextCursor());
+            assertTrue(response.isSuccess());
+            assertFalse(response.getResult().isEmpty());
+            response.getResult().forEach(t -> hashes.add(t.getHash()));
+        }
+
+        assertEquals(txs.stream().map(t -> Hex.encode0x(t.getHash())).collect(Collectors.toList()), hashes);
     }
 
     @Test
@@ -280,6 +310,7 @@ public class SemuxApiTest extends SemuxApiTestBase {
         for (int i = 0; i < delegates.size(); i++) {
             delegateState.vote(voter.toAddress(), delegates.get(i).getAddress(), Amount.of(i + 1));
         }
+        delegateState.commit();
 
         GetAccountVotesResponse resp = api.getAccountVotes(Hex.encode0x(voter.toAddress()));
         assertTrue(resp.isSuccess());
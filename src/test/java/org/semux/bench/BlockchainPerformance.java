@@ -6,7 +6,9 @@
  */
 package org.semux.bench;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.semux.Network;
@@ -21,14 +23,21 @@ import org.semux.core.Blockchain;
 import org.semux.core.BlockchainImpl;
 import org.semux.core.Genesis;
 import org.semux.core.Transaction;
+import org.semux.core.TransactionExecutor;
 import org.semux.core.TransactionResult;
 import org.semux.core.TransactionType;
+import org.semux.core.Unit;
+import org.semux.crypto.Hash;
 import org.semux.crypto.Key;
 import org.semux.crypto.Key.Signature;
+import org.semux.db.Database;
+import org.semux.db.DatabaseName;
 import org.semux.rules.TemporaryDatabaseRule;
 import org.semux.util.Bytes;
 import org.semux.util.MerkleUtil;
 import org.semux.util.TimeUtil;
+import org.semux.vm.client.SemuxBlock;
+import org.semux.vm.client.SemuxBlockStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -148,11 +157,142 @@ public class BlockchainPerformance {
         logger.info("Perf_addBlock: {} ms / {} blocks", t2 - t1, repeat);
     }
 
+    public static void testAddBlockHotAccount() throws Throwable {
+        final int repeat = 5000;
+        List<Transaction> txs = new ArrayList<>();
+        List<TransactionResult> res = new ArrayList<>();
+        for (int i = 0; i < repeat; i++) {
+            txs.add(new Transaction(config.network(), TransactionType.TRANSFER, Bytes.random(20), Amount.of(1),
+                    config.spec().minTransactionFee(), i, TimeUtil.currentTimeMillis(), Bytes.EMPTY_BYTES).sign(key));
+            res.add(new TransactionResult());
+        }
+        Block block = TestUtils.createBlock(1, txs, res);
+
+        TemporaryDatabaseRule temporaryDbRule = new TemporaryDatabaseRule();
+        temporaryDbRule.before();
+        Database indexDB = temporaryDbRule.getDB(DatabaseName.INDEX);
+        byte[] counterKey = Bytes.merge(Bytes.of((byte) 0x05), key.toAddress());
+
+        // one read-modify-write of the counter per transaction
+        temporaryDbRule.startBatch();
+        long t1 = System.nanoTime();
+        for (int i = 0; i < repeat; i++) {
+            byte[] cnt = indexDB.get(counterKey);
+            int total = (cnt == null) ? 0 : Bytes.toInt(cnt);
+            indexDB.put(Bytes.merge(counterKey, Bytes.of(total)), txs.get(i).getHash());
+            indexDB.put(counterKey, Bytes.of(total + 1));
+        }
+        temporaryDbRule.commitBatch();
+        long t2 = System.nanoTime();
+        logger.info("Perf_index_counter_per_transaction: {} μs / {} txs", (t2 - t1) / 1_000, repeat);
+
+        // the counter is aggregated and written once
+        indexDB.delete(counterKey);
+        temporaryDbRule.startBatch();
+        t1 = System.nanoTime();
+        byte[] cnt = indexDB.get(counterKey);
+        int total = (cnt == null) ? 0 : Bytes.toInt(cnt);
+        for (int i = 0; i < repeat; i++) {
+            indexDB.put(Bytes.merge(counterKey, Bytes.of(total++)), txs.get(i).getHash());
+        }
+        indexDB.put(counterKey, Bytes.of(total));
+        temporaryDbRule.commitBatch();
+        t2 = System.nanoTime();
+        logger.info("Perf_index_counter_aggregated: {} μs / {} txs", (t2 - t1) / 1_000, repeat);
+        temporaryDbRule.after();
+
+        temporaryDbRule = new TemporaryDatabaseRule();
+        temporaryDbRule.before();
+        Blockchain blockchain = new BlockchainImpl(config, temporaryDbRule);
+        temporaryDbRule.startBatch();
+        t1 = System.nanoTime();
+        blockchain.addBlock(block);
+        temporaryDbRule.commitBatch();
+        t2 = System.nanoTime();
+        temporaryDbRule.after();
+        logger.info("Perf_addBlock_hot_account: {} ms / {} txs", (t2 - t1) / 1_000_000, repeat);
+    }
+
+    public static void testImportBlockAllocation() throws Throwable {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+
+        TemporaryDatabaseRule temporaryDbRule = new TemporaryDatabaseRule();
+        temporaryDbRule.before();
+        BlockchainImpl blockchain = new BlockchainImpl(config, temporaryDbRule);
+        blockchain.getAccountState().adjustAvailable(key.toAddress(), Amount.of(1_000_000, Unit.SEM));
+        blockchain.getAccountState().commit();
+
+        List<Transaction> txs = new ArrayList<>();
+        long remainingBlockGas = config.spec().maxBlockGasLimit();
+        for (int i = 0; remainingBlockGas >= config.spec().nonVMTransactionGasCost(); i++) {
+            txs.add(new Transaction(config.network(), TransactionType.TRANSFER, Bytes.random(20), Amount.of(1),
+                    config.spec().minTransactionFee(), i, TimeUtil.currentTimeMillis(), Bytes.EMPTY_BYTES).sign(key));
+            remainingBlockGas -= config.spec().nonVMTransactionGasCost();
+        }
+
+        // execute once to get the results of the block
+        long timestamp = TimeUtil.currentTimeMillis();
+        byte[] prevHash = blockchain.getLatestBlockHash();
+        Block draft = TestUtils.createBlock(timestamp, prevHash, key, 1, txs, Collections.emptyList());
+        TransactionExecutor exec = new TransactionExecutor(config, new SemuxBlockStore(blockchain),
+                blockchain.isVMEnabled(), blockchain.isVotingPrecompiledUpgraded());
+        SemuxBlock semuxBlock = new SemuxBlock(draft.getHeader(), config.spec().maxBlockGasLimit());
+        List<TransactionResult> res = exec.execute(txs, blockchain.getAccountState().track(),
+                blockchain.getDelegateState().track(), semuxBlock, 0);
+        Block block = TestUtils.createBlock(timestamp, prevHash, key, 1, txs, res);
+
+        // the transactions are decoded again, as received from a peer
+        block = Block.fromComponents(block.getEncodedHeader(), block.getEncodedTransactions(),
+                block.getEncodedResults(), block.getEncodedVotes());
+
+        // allocations of all the threads, as the block is validated and executed in
+        // parallel
+        long b1 = sum(threads.getThreadAllocatedBytes(threads.getAllThreadIds()));
+        long t1 = System.nanoTime();
+        boolean imported = blockchain.importBlock(block, false);
+        long t2 = System.nanoTime();
+        long b2 = sum(threads.getThreadAllocatedBytes(threads.getAllThreadIds()));
+        temporaryDbRule.after();
+        logger.info("Perf_importBlock: {} ms / {} txs, imported = {}", (t2 - t1) / 1_000_000, txs.size(), imported);
+        logger.info("Perf_importBlock_allocation: {} KB / {} txs", (b2 - b1) / 1024, txs.size());
+
+        // the signer address is derived once per transaction, then shared
+        final int repeat = 100;
+        b1 = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 0; i < repeat; i++) {
+            for (Transaction tx : txs) {
+                Hash.h160(tx.getSignature().getPublicKey());
+            }
+        }
+        b2 = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        logger.info("Perf_signer_address_derived: {} B / call", (b2 - b1) / repeat / txs.size());
+
+        b1 = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 0; i < repeat; i++) {
+            for (Transaction tx : txs) {
+                tx.getFrom();
+            }
+        }
+        b2 = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        logger.info("Perf_signer_address_memoized: {} B / call", (b2 - b1) / repeat / txs.size());
+    }
+
+    private static long sum(long[] values) {
+        long sum = 0;
+        for (long v : values) {
+            sum += Math.max(v, 0);
+        }
+        return sum;
+    }
+
     public static void main(String[] args) throws Throwable {
         Block block = testBlockCreation();
         testBlockValidation(block);
         testTransactionValidation();
         testAddBlock();
+        testAddBlockHotAccount();
+        testImportBlockAllocation();
 
         System.exit(0);
     }
@@ -6,8 +6,14 @@
  */
 package org.semux.bench;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.semux.crypto.Ed25519Batch;
 import org.semux.crypto.Hash;
 import org.semux.crypto.Key;
+import org.semux.crypto.Native;
+import org.semux.util.Bytes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,6 +21,7 @@ public class CryptoPerformance {
     private static final Logger logger = LoggerFactory.getLogger(CryptoPerformance.class);
 
     private static int[] DATA_SIZES = { 1024, 1024 * 1024 };
+    private static int[] BATCH_SIZES = { 4, 64, 1024 };
     private static int REPEAT = 1000;
 
     public static void testH256() {
@@ -78,10 +85,53 @@ public class CryptoPerformance {
         }
     }
 
+    public static void testVerifyBatch() {
+        for (int size : BATCH_SIZES) {
+            List<byte[]> messages = new ArrayList<>();
+            List<Key.Signature> signatures = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                byte[] hash = Hash.h256(Bytes.random(128));
+                messages.add(hash);
+                signatures.add(new Key().sign(hash));
+            }
+            int repeat = Math.max(1, REPEAT / size);
+
+            long t1 = System.nanoTime();
+            for (int i = 0; i < repeat; i++) {
+                for (int j = 0; j < size; j++) {
+                    Key.verify(messages.get(j), signatures.get(j));
+                }
+            }
+            long t2 = System.nanoTime();
+            logger.info("Perf_verify_single_{}: {} μs/sig", size, (t2 - t1) / 1_000 / repeat / size);
+
+            t1 = System.nanoTime();
+            for (int i = 0; i < repeat; i++) {
+                Ed25519Batch.verify(messages, signatures);
+            }
+            t2 = System.nanoTime();
+            logger.info("Perf_verify_batch_jvm_{}: {} μs/sig", size, (t2 - t1) / 1_000 / repeat / size);
+
+            if (Native.isEnabled()) {
+                byte[][] msgs = messages.toArray(new byte[size][]);
+                byte[][] sigs = signatures.stream().map(Key.Signature::getS).toArray(byte[][]::new);
+                byte[][] pks = signatures.stream().map(Key.Signature::getA).toArray(byte[][]::new);
+
+                t1 = System.nanoTime();
+                for (int i = 0; i < repeat; i++) {
+                    Native.verifyBatch(msgs, sigs, pks);
+                }
+                t2 = System.nanoTime();
+                logger.info("Perf_verify_batch_native_{}: {} μs/sig", size, (t2 - t1) / 1_000 / repeat / size);
+            }
+        }
+    }
+
     public static void main(String[] args) throws Exception {
         testH256();
         testH160();
         testSign();
         testVerify();
+        testVerifyBatch();
     }
 }
@@ -9,7 +9,6 @@ package org.semux.consensus;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
-import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -35,7 +34,6 @@ import org.semux.core.Amount;
 import org.semux.core.Block;
 import org.semux.core.Blockchain;
 import org.semux.core.BlockchainImpl;
-import org.semux.core.PendingManager;
 import org.semux.core.Transaction;
 import org.semux.core.TransactionResult;
 import org.semux.core.TransactionType;
@@ -153,38 +151,6 @@ public class SemuxBftTest {
         assertFalse(semuxBFT.validateBlockProposal(block2.getHeader(), block2.getTransactions()));
     }
 
-    @Test
-    public void testFilterPendingTransactions() {
-        Key to = new Key();
-        Key from = new Key();
-        long time = TimeUtil.currentTimeMillis();
-        Transaction tx1 = createTransaction(to, from, time, 0);
-        Transaction tx2 = createTransaction(to, from, time, 1);
-
-        kernelRule.getKernel().setBlockchain(new BlockchainImpl(kernelRule.getKernel().getConfig(), temporaryDBRule));
-
-        // pending manager has only tx1 (validated)
-        PendingManager.PendingTransaction pending = new PendingManager.PendingTransaction(tx1,
-                new TransactionResult());
-        when(kernelRule.getKernel().getPendingManager().getPendingTransactions())
-                .thenReturn(Collections.singletonList(pending));
-
-        SemuxBft semuxBFT = new SemuxBft(kernelRule.getKernel());
-
-        // tx1 should filter out
-        assertTrue(semuxBFT.getUnvalidatedTransactions(Collections.singletonList(tx1)).isEmpty());
-
-        // other transactions should remain
-        assertFalse(semuxBFT.getUnvalidatedTransactions(Collections.singletonList(tx2)).isEmpty());
-
-        // test that invalid pending are not filtered
-        when(kernelRule.getKernel().getPendingManager().getPendingTransactions(anyInt()))
-                .thenReturn(Collections.singletonList(new PendingManager.PendingTransaction(tx2,
-                        new TransactionResult(TransactionResult.Code.INVALID_FORMAT))));
-
-        assertFalse(semuxBFT.getUnvalidatedTransactions(Collections.singletonList(tx2)).isEmpty());
-    }
-
     @Test
     public void testValidateBlockCoinbaseMagic() {
         kernelRule.getKernel().setBlockchain(new BlockchainImpl(kernelRule.getKernel().getConfig(), temporaryDBRule));
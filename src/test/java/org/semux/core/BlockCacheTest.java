@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.semux.TestUtils.createEmptyBlock;
+
+import org.junit.Test;
+
+public class BlockCacheTest {
+
+    @Test
+    public void testBlock() {
+        BlockCache cache = new BlockCache();
+        Block block = createEmptyBlock(1);
+
+        assertNull(cache.getBlock(1));
+        cache.put(block, 100);
+        assertSame(block, cache.getBlock(1));
+        assertSame(block.getHeader(), cache.getHeader(1));
+        assertEquals(1, cache.getNumber(block.getHash()));
+
+        assertEquals(1, cache.getBlockStats().hitCount());
+        assertEquals(1, cache.getBlockStats().missCount());
+    }
+
+    @Test
+    public void testHeader() {
+        BlockCache cache = new BlockCache();
+        BlockHeader header = createEmptyBlock(2).getHeader();
+
+        cache.put(header, 100);
+        assertSame(header, cache.getHeader(2));
+        assertNull(cache.getBlock(2));
+        assertEquals(2, cache.getNumber(header.getHash()));
+        assertEquals(-1, cache.getNumber(new byte[32]));
+    }
+}
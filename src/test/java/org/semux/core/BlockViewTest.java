@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.semux.core.Amount.ZERO;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.semux.Network;
+import org.semux.config.Config;
+import org.semux.config.Constants;
+import org.semux.config.UnitTestnetConfig;
+import org.semux.crypto.Key;
+import org.semux.crypto.Key.Signature;
+import org.semux.util.Bytes;
+import org.semux.util.MerkleUtil;
+import org.semux.util.TimeUtil;
+
+public class BlockViewTest {
+
+    private Config config = new UnitTestnetConfig(Constants.DEFAULT_DATA_DIR);
+
+    private List<Transaction> transactions = new ArrayList<>();
+    private List<TransactionResult> results = new ArrayList<>();
+    private List<Signature> votes = new ArrayList<>();
+    private Block block;
+
+    @Before
+    public void setUp() {
+        Key key = new Key();
+        for (int i = 0; i < 5; i++) {
+            transactions.add(new Transaction(Network.DEVNET, TransactionType.TRANSFER, Bytes.random(20), ZERO,
+                    config.spec().minTransactionFee(), i, TimeUtil.currentTimeMillis(), Bytes.random(i * 100))
+                            .sign(key));
+            TransactionResult result = new TransactionResult();
+            result.setReturnData(Bytes.random(i));
+            results.add(result);
+        }
+        votes.add(key.sign(Bytes.random(32)));
+
+        BlockHeader header = new BlockHeader(5, Bytes.random(20), Bytes.random(32), TimeUtil.currentTimeMillis(),
+                MerkleUtil.computeTransactionsRoot(transactions), MerkleUtil.computeResultsRoot(results),
+                Bytes.EMPTY_HASH, Bytes.EMPTY_BYTES);
+        block = new Block(header, transactions, results, 3, votes);
+    }
+
+    @Test
+    public void testLazyDecoding() {
+        BlockView view = BlockView.fromComponents(block.getEncodedHeader(), block.getEncodedTransactions(),
+                block.getEncodedResults(), block.getEncodedVotes());
+
+        assertArrayEquals(block.getHash(), view.getHash());
+        assertEquals(5, view.getNumber());
+        assertEquals(3, view.getView());
+        assertEquals(5, view.getTransactionCount());
+        assertEquals(5, view.getResultCount());
+
+        for (int i = 0; i < transactions.size(); i++) {
+            assertEquals(transactions.get(i), view.getTransaction(i));
+            assertArrayEquals(results.get(i).toBytes(), view.getResult(i).toBytes());
+        }
+        assertEquals(1, view.getVotes().size());
+        assertArrayEquals(votes.get(0).toBytes(), view.getVotes().get(0).toBytes());
+    }
+
+    @Test
+    public void testOffsets() {
+        BlockView view = BlockView.fromComponents(block.getEncodedHeader(), block.getEncodedTransactions(),
+                block.getEncodedResults(), block.getEncodedVotes());
+
+        // the offsets are the ones of the transaction index
+        List<Integer> indices = block.getEncodedTransactionsAndIndices().getRight();
+        for (int i = 0; i < indices.size(); i++) {
+            assertEquals((int) indices.get(i), view.getTransactionOffset(i));
+            assertEquals(transactions.get(i),
+                    BlockView.decodeTransaction(block.getEncodedTransactions(), indices.get(i)));
+        }
+    }
+
+    @Test
+    public void testToBlock() {
+        BlockView view = BlockView.fromComponents(block.getEncodedHeader(), block.getEncodedTransactions(),
+                block.getEncodedResults(), block.getEncodedVotes());
+
+        Block decoded = view.toBlock();
+        assertArrayEquals(block.toBytes(), decoded.toBytes());
+    }
+
+    @Test
+    public void testMissingComponents() {
+        Block empty = new Block(block.getHeader(), Collections.emptyList());
+        BlockView view = BlockView.fromComponents(empty.getEncodedHeader(), empty.getEncodedTransactions(), null,
+                null);
+
+        assertEquals(0, view.getTransactionCount());
+        assertEquals(0, view.getResultCount());
+        assertEquals(0, view.getView());
+        assertTrue(view.getVotes().isEmpty());
+    }
+}
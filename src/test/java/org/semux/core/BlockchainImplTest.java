@@ -12,8 +12,11 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -27,6 +30,7 @@ import org.semux.config.Config;
 import org.semux.config.Constants;
 import org.semux.config.UnitTestnetConfig;
 import org.semux.core.BlockchainImpl.StatsType;
+import org.semux.core.exception.BlockchainException;
 import org.semux.crypto.Key;
 import org.semux.rules.TemporaryDatabaseRule;
 import org.semux.util.Bytes;
@@ -100,6 +104,41 @@ public class BlockchainImplTest {
         assertEquals(number, chain.getBlock(newBlock.getHash()).getNumber());
     }
 
+    @Test
+    public void testGetBlockView() {
+        assertEquals(0, chain.getBlockView(0).getNumber());
+        assertNull(chain.getBlockView(1));
+
+        Block newBlock = createBlock(1);
+        chain.addBlock(newBlock);
+
+        BlockView view = chain.getBlockView(newBlock.getHash());
+        assertEquals(1, view.getNumber());
+        assertEquals(newBlock.getTransactions().size(), view.getTransactionCount());
+        assertArrayEquals(newBlock.toBytes(), view.toBlock().toBytes());
+    }
+
+    @Test
+    public void testGetBlockParts() {
+        int all = BlockPart.encode(BlockPart.HEADER, BlockPart.TRANSACTIONS, BlockPart.RESULTS, BlockPart.VOTES);
+        assertNull(chain.getBlockParts(1, all));
+
+        Block newBlock = createBlock(1);
+        chain.addBlock(newBlock);
+
+        List<byte[]> parts = chain.getBlockParts(1, all);
+        assertEquals(4, parts.size());
+        assertArrayEquals(newBlock.getEncodedHeader(), parts.get(0));
+        assertArrayEquals(newBlock.getEncodedTransactions(), parts.get(1));
+        assertArrayEquals(newBlock.getEncodedResults(), parts.get(2));
+        assertArrayEquals(newBlock.getEncodedVotes(), parts.get(3));
+
+        parts = chain.getBlockParts(1, BlockPart.encode(BlockPart.VOTES, BlockPart.HEADER));
+        assertEquals(2, parts.size());
+        assertArrayEquals(newBlock.getEncodedHeader(), parts.get(0));
+        assertArrayEquals(newBlock.getEncodedVotes(), parts.get(1));
+    }
+
     @Test
     public void testHasBlock() {
         assertFalse(chain.hasBlock(-1));
@@ -290,6 +329,54 @@ public class BlockchainImplTest {
         assertArrayEquals(tx.getHash(), list.get(0).getHash());
     }
 
+    @Test
+    public void testGetTransactionsRange() {
+        Key other = new Key();
+        List<Transaction> txs = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            List<Transaction> blockTxs = new ArrayList<>();
+            List<TransactionResult> blockResults = new ArrayList<>();
+            for (int j = 0; j < 2; j++) {
+                Transaction t = new Transaction(network, TransactionType.TRANSFER, to, value, fee, nonce + txs.size(),
+                        timestamp, data).sign(key);
+                txs.add(t);
+                blockTxs.add(t);
+                blockTxs.add(new Transaction(network, TransactionType.TRANSFER, Bytes.random(20), value, fee,
+                        i * 2 + j, timestamp, data).sign(other));
+                blockResults.add(res);
+                blockResults.add(res);
+            }
+            chain.addBlock(createBlock(i, blockTxs, blockResults));
+        }
+
+        assertEquals(txs, chain.getTransactions(from, 0, 1024));
+        assertEquals(txs.subList(2, 5), chain.getTransactions(from, 2, 5));
+        assertEquals(txs.subList(5, 6), chain.getTransactions(from, 5, 1024));
+        assertEquals(txs.subList(0, 2), chain.getTransactions(from, -1, 2));
+        assertTrue(chain.getTransactions(from, 6, 1024).isEmpty());
+        assertTrue(chain.getTransactions(from, 3, 3).isEmpty());
+        assertEquals(6, chain.getTransactions(other.toAddress(), 0, 1024).size());
+    }
+
+    @Test
+    public void testTransactionCountsAggregated() {
+        List<Transaction> txs = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            txs.add(new Transaction(network, TransactionType.TRANSFER, to, value, fee, nonce + i, timestamp, data)
+                    .sign(key));
+        }
+        chain.addBlock(createBlock(1, txs, Collections.nCopies(txs.size(), res)));
+        chain.addBlock(createBlock(2, txs.subList(0, 1), Collections.singletonList(res)));
+
+        assertEquals(101, chain.getTransactionCount(from));
+        assertEquals(101, chain.getTransactionCount(to));
+        assertEquals(2, chain.getTransactionCount(coinbase));
+
+        List<Transaction> list = chain.getTransactions(from, 0, 1024);
+        assertEquals(txs, list.subList(0, 100));
+        assertEquals(txs.get(0), list.get(100));
+    }
+
     @Test
     public void testGetTransactionsSelfTx() {
         Transaction selfTx = new Transaction(network, TransactionType.TRANSFER, key.toAddress(), value, fee, nonce,
@@ -325,6 +412,11 @@ public class BlockchainImplTest {
         assertEquals(1, chain.getValidatorStats(address).getTurnsMissed());
         chain.adjustValidatorStats(address, StatsType.MISSED, 1);
         assertEquals(2, chain.getValidatorStats(address).getTurnsMissed());
+
+        chain.adjustValidatorStats(address, 2, 3, 4);
+        assertEquals(3, chain.getValidatorStats(address).getBlocksForged());
+        assertEquals(4, chain.getValidatorStats(address).getTurnsHit());
+        assertEquals(6, chain.getValidatorStats(address).getTurnsMissed());
     }
 
     @Test
@@ -354,6 +446,76 @@ public class BlockchainImplTest {
         chain.addBlock(block);
     }
 
+    @Test
+    public void testSnapshot() {
+        chain.addBlock(createBlock(1));
+
+        try (BlockchainSnapshot snapshot = chain.snapshot()) {
+            chain.getAccountState().adjustAvailable(to, Amount.of(5));
+            chain.getAccountState().commit();
+            chain.addBlock(createBlock(2));
+
+            // the snapshot stays at the first block
+            assertEquals(1, snapshot.getLatestBlockNumber());
+            assertNull(snapshot.getBlock(2));
+            assertEquals(1, snapshot.getTransactionCount(tx.getFrom()));
+            assertEquals(Amount.ZERO, snapshot.getAccountState().getAccount(to).getAvailable());
+
+            assertEquals(2, chain.getLatestBlockNumber());
+            assertEquals(2, chain.getTransactionCount(tx.getFrom()));
+        }
+
+        try (BlockchainSnapshot snapshot = chain.snapshot()) {
+            assertSame(snapshot, snapshot.snapshot());
+            assertEquals(2, snapshot.getLatestBlockNumber());
+            assertEquals(Amount.of(5), snapshot.getAccountState().getAccount(to).getAvailable());
+            assertEquals(chain.getDelegateState().getDelegates().size(),
+                    snapshot.getDelegateState().getDelegates().size());
+            assertEquals(chain.getValidators(), snapshot.getValidators());
+        }
+    }
+
+    @Test
+    public void testSnapshotOfBatch() {
+        temporaryDBFactory.startBatch();
+        chain.addBlock(createBlock(1));
+
+        // the blocks of the open batch are cached, but not visible
+        try (BlockchainSnapshot snapshot = chain.snapshot()) {
+            assertEquals(1, chain.getLatestBlockNumber());
+            assertEquals(0, snapshot.getLatestBlockNumber());
+            assertNull(snapshot.getBlock(1));
+            assertEquals(-1, snapshot.getBlockNumber(chain.getBlock(1).getHash()));
+        }
+        temporaryDBFactory.commitBatch();
+    }
+
+    @Test
+    public void testAbortBatch() {
+        chain.setBlocksPerBatch(10);
+        chain.applyBlock(createBlock(1), chain.getAccountState().track(), chain.getDelegateState().track());
+        assertEquals(1, chain.getLatestBlockNumber());
+        Block block = chain.getBlock(1);
+
+        // a failing block aborts the open batch
+        try {
+            chain.applyBlock(createBlock(3), chain.getAccountState().track(), chain.getDelegateState().track());
+            fail();
+        } catch (BlockchainException e) {
+            // expected
+        }
+
+        // back to the last committed block
+        assertEquals(0, chain.getLatestBlockNumber());
+        assertNull(chain.getBlock(1));
+        assertEquals(-1, chain.getBlockNumber(block.getHash()));
+
+        chain.applyBlock(createBlock(1), chain.getAccountState().track(), chain.getDelegateState().track());
+        chain.flushBatch();
+        chain.setBlocksPerBatch(1);
+        assertEquals(1, chain.getLatestBlockNumber());
+    }
+
     private Block createBlock(long number) {
         return createBlock(number, Collections.singletonList(tx), Collections.singletonList(res));
     }
@@ -6,6 +6,7 @@
  */
 package org.semux.core;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doReturn;
@@ -28,6 +29,8 @@ import org.semux.config.Config;
 import org.semux.config.Constants;
 import org.semux.consensus.Vote;
 import org.semux.consensus.VoteType;
+import org.semux.core.state.AccountState;
+import org.semux.core.state.DelegateState;
 import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
 import org.semux.rules.KernelRule;
@@ -156,6 +159,28 @@ public class BlockchainImportTest {
         assertFalse(chain.validateBlockVotes(block));
     }
 
+    @Test
+    public void testImportValidatedBlock() {
+        BlockchainImpl chain = new BlockchainImpl(kernelRule.getKernel().getConfig(), temporaryDBRule);
+        kernelRule.getKernel().setBlockchain(chain);
+
+        // the tracked states are committed as they are
+        byte[] address = new Key().toAddress();
+        Block block = kernelRule.createBlock(Collections.emptyList());
+        AccountState asTrack = chain.getAccountState().track();
+        DelegateState dsTrack = chain.getDelegateState().track();
+        asTrack.adjustAvailable(address, Amount.of(10, SEM));
+
+        assertTrue(chain.importValidatedBlock(block, asTrack, dsTrack));
+        assertEquals(block.getNumber(), chain.getLatestBlockNumber());
+        assertEquals(Amount.of(10, SEM), chain.getAccountState().getAccount(address).getAvailable());
+
+        // states tracked from a previous block are rejected
+        assertFalse(chain.importValidatedBlock(block, chain.getAccountState().track(),
+                chain.getDelegateState().track()));
+        assertEquals(block.getNumber(), chain.getLatestBlockNumber());
+    }
+
     @Test
     public void testCheckpoints() {
         Key key1 = new Key();
@@ -180,5 +205,28 @@ public class BlockchainImportTest {
 
         // tests
         assertFalse(chain.importBlock(block, false));
+        assertFalse(chain.prevalidateBlock(block));
+    }
+
+    @Test
+    public void testImportPrevalidatedBlock() {
+        BlockchainImpl chain = new BlockchainImpl(kernelRule.getKernel().getConfig(), temporaryDBRule);
+        kernelRule.getKernel().setBlockchain(chain);
+
+        Block latest = chain.getLatestBlock();
+        Block block1 = TestUtils.createBlock(latest.getTimestamp() + 1, latest.getHash(), new Key(),
+                latest.getNumber() + 1, Collections.emptyList(), Collections.emptyList());
+        Block block2 = TestUtils.createBlock(latest.getTimestamp() + 2, block1.getHash(), new Key(),
+                latest.getNumber() + 2, Collections.emptyList(), Collections.emptyList());
+
+        // blocks are prevalidated regardless of the latest block
+        assertTrue(chain.prevalidateBlock(block2));
+        assertTrue(chain.prevalidateBlock(block1));
+
+        // but imported in order
+        assertFalse(chain.importPrevalidatedBlock(block2));
+        assertTrue(chain.importPrevalidatedBlock(block1));
+        assertTrue(chain.importPrevalidatedBlock(block2));
+        assertEquals(block2.getNumber(), chain.getLatestBlockNumber());
     }
 }
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.semux.TestUtils;
+import org.semux.config.Config;
+import org.semux.config.Constants;
+import org.semux.config.UnitTestnetConfig;
+import org.semux.core.exception.BlockchainException;
+import org.semux.crypto.Key;
+import org.semux.db.DatabaseName;
+import org.semux.rules.TemporaryDatabaseRule;
+
+public class BlockchainReindexerTest {
+
+    @Rule
+    public TemporaryDatabaseRule sourceDBFactory = new TemporaryDatabaseRule();
+
+    @Rule
+    public TemporaryDatabaseRule targetDBFactory = new TemporaryDatabaseRule();
+
+    private Config config;
+    private BlockchainImpl source;
+
+    @Before
+    public void setUp() {
+        config = new UnitTestnetConfig(Constants.DEFAULT_DATA_DIR);
+        source = new BlockchainImpl(config, sourceDBFactory);
+
+        for (int i = 0; i < 10; i++) {
+            Block latest = source.getLatestBlock();
+            Block block = TestUtils.createBlock(latest.getTimestamp() + 1, latest.getHash(), new Key(),
+                    latest.getNumber() + 1, Collections.emptyList(), Collections.emptyList());
+            source.importBlock(block, false);
+        }
+    }
+
+    @Test
+    public void testReindex() {
+        BlockchainImpl target = new BlockchainImpl(config, targetDBFactory);
+        BlockchainReindexer reindexer = new BlockchainReindexer(sourceDBFactory.getDB(DatabaseName.BLOCK), target,
+                false);
+
+        assertEquals(10, reindexer.run(10, 10));
+        assertEquals(10, target.getLatestBlockNumber());
+        assertArrayEquals(source.getLatestBlockHash(), target.getLatestBlockHash());
+    }
+
+    @Test
+    public void testResume() {
+        BlockchainImpl target = new BlockchainImpl(config, targetDBFactory);
+        BlockchainReindexer reindexer = new BlockchainReindexer(sourceDBFactory.getDB(DatabaseName.BLOCK), target,
+                true);
+
+        assertEquals(4, reindexer.run(4, 10));
+        assertEquals(4, target.getLatestBlockNumber());
+
+        // imports the remaining blocks only
+        assertEquals(6, reindexer.run(Long.MAX_VALUE, 10));
+        assertEquals(10, target.getLatestBlockNumber());
+        assertArrayEquals(source.getLatestBlockHash(), target.getLatestBlockHash());
+    }
+
+    @Test
+    public void testFailedBlock() {
+        AtomicBoolean failing = new AtomicBoolean(true);
+        BlockchainImpl target = new BlockchainImpl(config, targetDBFactory) {
+            @Override
+            public synchronized void addBlock(Block block) {
+                if (block.getNumber() == 6 && failing.get()) {
+                    throw new BlockchainException("Failed to add block");
+                }
+                super.addBlock(block);
+            }
+        };
+        BlockchainReindexer reindexer = new BlockchainReindexer(sourceDBFactory.getDB(DatabaseName.BLOCK), target,
+                true);
+
+        // the blocks preceding the failing one are kept
+        assertEquals(5, reindexer.run(10, 10));
+        assertEquals(5, target.getLatestBlockNumber());
+
+        failing.set(false);
+        assertEquals(5, reindexer.run(10, 10));
+        assertEquals(10, target.getLatestBlockNumber());
+        assertArrayEquals(source.getLatestBlockHash(), target.getLatestBlockHash());
+    }
+}
@@ -19,6 +19,7 @@ import org.semux.Network;
 import org.semux.config.Config;
 import org.semux.config.Constants;
 import org.semux.config.UnitTestnetConfig;
+import org.semux.core.state.AccountState;
 import org.semux.core.state.Delegate;
 import org.semux.crypto.Key;
 import org.semux.rules.TemporaryDatabaseRule;
@@ -95,4 +96,36 @@ public class CorePerformanceTest {
         t2 = System.nanoTime();
         logger.info("Perf_transaction_2: {} μs/tx", (t2 - t1) / 1_000 / repeat);
     }
+
+    @Test
+    public void testTransactionExecutorThroughput() {
+        Key key = new Key();
+        int repeat = 2000;
+        int rounds = 5;
+
+        List<Transaction> txs = new ArrayList<>();
+        for (int i = 0; i < repeat; i++) {
+            Transaction tx = new Transaction(Network.DEVNET, TransactionType.TRANSFER, Bytes.random(20), Amount.of(5),
+                    config.spec().minTransactionFee(), i, TimeUtil.currentTimeMillis(), Bytes.EMPTY_BYTES);
+            txs.add(tx.sign(key));
+        }
+
+        Blockchain chain = new BlockchainImpl(config, temporaryDBFactory);
+        TransactionExecutor exec = new TransactionExecutor(config, new SemuxBlockStore(chain), chain.isVMEnabled(),
+                chain.isVotingPrecompiledUpgraded());
+        SemuxBlock block = new SemuxBlock(chain.getLatestBlock().getHeader(), config.spec().maxBlockGasLimit());
+
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < rounds; r++) {
+            AccountState as = chain.getAccountState().track();
+            as.adjustAvailable(key.toAddress(), Amount.of(1000, Unit.SEM));
+
+            long t1 = System.nanoTime();
+            List<TransactionResult> results = exec.execute(txs, as, chain.getDelegateState().track(), block, 0);
+            long t2 = System.nanoTime();
+            assertTrue(results.stream().allMatch(res -> res.getCode().isSuccess()));
+            best = Math.min(best, t2 - t1);
+        }
+        logger.info("Perf_transaction_executor: {} tx/s, single sender", repeat * 1_000_000_000L / best);
+    }
 }
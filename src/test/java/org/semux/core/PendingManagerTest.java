@@ -10,6 +10,8 @@ import static org.awaitility.Awaitility.await;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 import static org.semux.core.PendingManager.ALLOWED_TIME_DRIFT;
@@ -212,6 +214,135 @@ public class PendingManagerTest {
         await().until(() -> pendingMgr.getPendingTransactions().size() == perm.length);
     }
 
+    @Test
+    public void testAdmissionMetrics() {
+        long now = TimeUtil.currentTimeMillis();
+        long nonce = accountState.getAccount(from).getNonce();
+
+        Transaction tx = new Transaction(network, type, to, value, fee, nonce, now, Bytes.EMPTY_BYTES).sign(key);
+        pendingMgr.addTransaction(tx);
+        Transaction invalid = new Transaction(network, type, to, value, fee, nonce + 1, 0, Bytes.EMPTY_BYTES)
+                .sign(key);
+        pendingMgr.addTransaction(invalid);
+
+        await().until(() -> pendingMgr.getMetrics().getProcessed() == 2);
+        assertEquals(1, pendingMgr.getMetrics().getAccepted());
+        assertEquals(1, pendingMgr.getPendingTransactions().size());
+        assertTrue(pendingMgr.getQueue().isEmpty());
+    }
+
+    @Test
+    public void testPriority() {
+        long now = TimeUtil.currentTimeMillis();
+        long nonce = accountState.getAccount(from).getNonce();
+
+        Key key2 = new Key();
+        accountState.adjustAvailable(key2.toAddress(), Amount.of(1000, SEM));
+        pendingMgr.reset();
+
+        Transaction tx1 = new Transaction(network, type, to, value, fee, nonce, now, Bytes.EMPTY_BYTES).sign(key);
+        Transaction tx2 = new Transaction(network, type, to, value, fee.multiply(3), nonce + 1, now,
+                Bytes.EMPTY_BYTES).sign(key);
+        Transaction tx3 = new Transaction(network, type, to, value, fee.multiply(2), 0, now, Bytes.EMPTY_BYTES)
+                .sign(key2);
+        assertEquals(1, pendingMgr.addTransactionSync(tx1).accepted);
+        assertEquals(1, pendingMgr.addTransactionSync(tx2).accepted);
+        assertEquals(1, pendingMgr.addTransactionSync(tx3).accepted);
+
+        // by fee, but tx2 depends on tx1
+        List<PendingManager.PendingTransaction> txs = pendingMgr.getPendingTransactions();
+        assertEquals(3, txs.size());
+        assertArrayEquals(tx3.getHash(), txs.get(0).transaction.getHash());
+        assertArrayEquals(tx1.getHash(), txs.get(1).transaction.getHash());
+        assertArrayEquals(tx2.getHash(), txs.get(2).transaction.getHash());
+    }
+
+    @Test
+    public void testReplaceByFee() {
+        long now = TimeUtil.currentTimeMillis();
+        long nonce = accountState.getAccount(from).getNonce();
+
+        Transaction tx = new Transaction(network, type, to, value, fee, nonce, now, Bytes.EMPTY_BYTES).sign(key);
+        assertEquals(1, pendingMgr.addTransactionSync(tx).accepted);
+
+        // the fee must be increased
+        Transaction same = new Transaction(network, type, to, value.multiply(2), fee, nonce, now,
+                Bytes.EMPTY_BYTES).sign(key);
+        assertEquals(TransactionResult.Code.INVALID_FEE, pendingMgr.addTransactionSync(same).error);
+
+        Transaction higher = new Transaction(network, type, to, value.multiply(2), fee.multiply(2), nonce, now,
+                Bytes.EMPTY_BYTES).sign(key);
+        assertEquals(1, pendingMgr.addTransactionSync(higher).accepted);
+
+        List<PendingManager.PendingTransaction> txs = pendingMgr.getPendingTransactions();
+        assertEquals(1, txs.size());
+        assertArrayEquals(higher.getHash(), txs.get(0).transaction.getHash());
+        assertEquals(nonce + 1, pendingMgr.getNonce(from));
+    }
+
+    @Test
+    public void testReplaceAffectedOnly() {
+        long now = TimeUtil.currentTimeMillis();
+        long nonce = accountState.getAccount(from).getNonce();
+
+        Key key2 = new Key();
+        byte[] from2 = key2.toAddress();
+        byte[] to2 = new Key().toAddress();
+        accountState.adjustAvailable(from2, Amount.of(10, SEM));
+
+        Transaction tx = new Transaction(network, type, to, value, fee, nonce, now, Bytes.EMPTY_BYTES).sign(key);
+        Transaction tx2 = new Transaction(network, type, to2, value, fee, 0, now, Bytes.EMPTY_BYTES).sign(key2);
+        Transaction tx3 = new Transaction(network, type, to, value, fee, nonce + 1, now, Bytes.EMPTY_BYTES)
+                .sign(key);
+        assertEquals(1, pendingMgr.addTransactionSync(tx).accepted);
+        assertEquals(1, pendingMgr.addTransactionSync(tx2).accepted);
+        assertEquals(1, pendingMgr.addTransactionSync(tx3).accepted);
+        PendingManager.PendingTransaction pending2 = pendingMgr.getPendingTransactions().get(1);
+
+        Transaction higher = new Transaction(network, type, to, value.multiply(2), fee.multiply(2), nonce, now,
+                Bytes.EMPTY_BYTES).sign(key);
+        assertEquals(1, pendingMgr.addTransactionSync(higher).accepted);
+
+        // the other sender is kept as it is, the following transaction is executed again
+        List<PendingManager.PendingTransaction> txs = pendingMgr.getPendingTransactions();
+        assertEquals(3, txs.size());
+        assertArrayEquals(higher.getHash(), txs.get(0).transaction.getHash());
+        assertSame(pending2, txs.get(1));
+        assertArrayEquals(tx3.getHash(), txs.get(2).transaction.getHash());
+        assertEquals(nonce + 2, pendingMgr.getNonce(from));
+        assertEquals(1, pendingMgr.getNonce(from2));
+    }
+
+    @Test
+    public void testRevalidateAffectedOnly() {
+        long now = TimeUtil.currentTimeMillis();
+        long nonce = accountState.getAccount(from).getNonce();
+
+        Key key2 = new Key();
+        byte[] from2 = key2.toAddress();
+        byte[] to2 = new Key().toAddress();
+        accountState.adjustAvailable(from2, Amount.of(10, SEM));
+
+        Transaction tx = new Transaction(network, type, to, value, fee, nonce, now, Bytes.EMPTY_BYTES).sign(key);
+        Transaction tx2 = new Transaction(network, type, to2, value, fee, 0, now, Bytes.EMPTY_BYTES).sign(key2);
+        assertEquals(1, pendingMgr.addTransactionSync(tx).accepted);
+        assertEquals(1, pendingMgr.addTransactionSync(tx2).accepted);
+        PendingManager.PendingTransaction pending2 = pendingMgr.getPendingTransactions().get(1);
+
+        BlockHeader header = new BlockHeader(1, Bytes.random(20), Bytes.random(32), now, Bytes.random(32),
+                Bytes.random(32), Bytes.random(32), Bytes.EMPTY_BYTES);
+        Block block = new Block(header, Arrays.asList(tx), Arrays.asList(new TransactionResult()));
+        accountState.increaseNonce(from);
+        accountState.commit();
+        pendingMgr.onBlockAdded(block);
+
+        // the included transaction is evicted, the other one is kept as it is
+        await().until(() -> pendingMgr.getPendingTransactions().size() == 1);
+        assertSame(pending2, pendingMgr.getPendingTransactions().get(0));
+        assertEquals(nonce + 1, pendingMgr.getNonce(from));
+        assertEquals(1, pendingMgr.getNonce(from2));
+    }
+
     @Test
     public void testNewBlock() throws InterruptedException {
         long now = TimeUtil.currentTimeMillis();
@@ -240,6 +371,7 @@ public class PendingManagerTest {
         Block block = new Block(header, transactions, results);
         kernel.getBlockchain().getAccountState().increaseNonce(from);
         kernel.getBlockchain().getAccountState().increaseNonce(from);
+        kernel.getBlockchain().getAccountState().commit();
         pendingMgr.onBlockAdded(block);
 
         Transaction tx3 = new Transaction(network, type, to, value, fee, nonce + 2, now, Bytes.EMPTY_BYTES).sign(key);
@@ -249,6 +381,33 @@ public class PendingManagerTest {
         assertArrayEquals(tx3.getHash(), pendingMgr.getPendingTransactions().get(0).transaction.getHash());
     }
 
+    @Test
+    public void testRevalidateAppliedBlock() {
+        BlockchainImpl chain = (BlockchainImpl) kernel.getBlockchain();
+        long now = TimeUtil.currentTimeMillis();
+        long nonce = accountState.getAccount(from).getNonce();
+
+        Transaction tx = new Transaction(network, type, to, value, fee, nonce, now, Bytes.EMPTY_BYTES).sign(key);
+        assertEquals(1, pendingMgr.addTransactionSync(tx).accepted);
+
+        // the block goes through the chain, which notifies the pending manager
+        Block latest = chain.getLatestBlock();
+        BlockHeader header = new BlockHeader(latest.getNumber() + 1, Bytes.random(20), latest.getHash(), now,
+                Bytes.random(32), Bytes.random(32), Bytes.random(32), Bytes.EMPTY_BYTES);
+        Block block = new Block(header, Arrays.asList(tx), Arrays.asList(new TransactionResult()));
+        AccountState as = chain.getAccountState().track();
+        as.increaseNonce(from);
+        chain.applyBlock(block, as, chain.getDelegateState().track());
+
+        // the pending state is rebuilt on top of the new block
+        await().until(() -> pendingMgr.getPendingTransactions().isEmpty());
+        assertEquals(nonce + 1, pendingMgr.getNonce(from));
+
+        Transaction tx2 = new Transaction(network, type, to, value, fee, nonce + 1, now, Bytes.EMPTY_BYTES)
+                .sign(key);
+        assertEquals(1, pendingMgr.addTransactionSync(tx2).accepted);
+    }
+
     @After
     public void stop() {
         pendingMgr.stop();
@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.semux.core.Unit.SEM;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.semux.Network;
+import org.semux.config.Config;
+import org.semux.config.Constants;
+import org.semux.config.UnitTestnetConfig;
+import org.semux.core.state.AccountState;
+import org.semux.core.state.Delegate;
+import org.semux.core.state.DelegateState;
+import org.semux.crypto.Key;
+import org.semux.rules.TemporaryDatabaseRule;
+import org.semux.util.ByteArray;
+import org.semux.util.Bytes;
+import org.semux.util.MerkleUtil;
+import org.semux.util.TimeUtil;
+import org.semux.vm.client.SemuxBlock;
+import org.semux.vm.client.SemuxBlockStore;
+
+/**
+ * Differential tests of the parallel transaction execution against the
+ * sequential one.
+ */
+public class TransactionExecutorParallelTest {
+
+    @Rule
+    public TemporaryDatabaseRule temporaryDBFactory = new TemporaryDatabaseRule();
+
+    private Config config;
+    private AccountState as;
+    private DelegateState ds;
+    private TransactionExecutor exec;
+    private Network network;
+    private SemuxBlock block;
+
+    private List<Key> accounts;
+    private List<Key> delegates;
+    private Map<ByteArray, Long> nonces;
+
+    @Before
+    public void prepare() {
+        config = new UnitTestnetConfig(Constants.DEFAULT_DATA_DIR);
+        Blockchain chain = new BlockchainImpl(config, temporaryDBFactory);
+        as = chain.getAccountState();
+        ds = chain.getDelegateState();
+        exec = new TransactionExecutor(config, new SemuxBlockStore(chain), chain.isVMEnabled(),
+                chain.isVotingPrecompiledUpgraded());
+        network = config.network();
+        block = new SemuxBlock(mock(BlockHeader.class), config.spec().maxBlockGasLimit());
+    }
+
+    @Test
+    public void testFewAccounts() {
+        setUpAccounts(5, 2);
+        for (long seed = 0; seed < 20; seed++) {
+            assertSameExecution(randomTransactions(new Random(seed), 50));
+        }
+    }
+
+    @Test
+    public void testManyAccounts() {
+        setUpAccounts(200, 10);
+        for (long seed = 0; seed < 5; seed++) {
+            assertSameExecution(randomTransactions(new Random(seed), 200));
+        }
+    }
+
+    @Test
+    public void testChainedTransfers() {
+        setUpAccounts(10, 0);
+
+        // every transfer spends the funds received by the previous one
+        List<Transaction> txs = new ArrayList<>();
+        Amount fee = config.spec().minTransactionFee();
+        Amount value = Amount.of(100_000, SEM);
+        for (int i = 0; i < accounts.size() - 1; i++) {
+            Key from = accounts.get(i);
+            value = value.subtract(fee);
+            txs.add(transaction(TransactionType.TRANSFER, from, accounts.get(i + 1).toAddress(), value,
+                    nextNonce(from), Bytes.EMPTY_BYTES));
+        }
+
+        assertSameExecution(txs);
+    }
+
+    private void setUpAccounts(int numAccounts, int numDelegates) {
+        accounts = new ArrayList<>();
+        delegates = new ArrayList<>();
+        nonces = new HashMap<>();
+
+        for (int i = 0; i < numAccounts; i++) {
+            Key key = new Key();
+            as.adjustAvailable(key.toAddress(), Amount.of(100_000, SEM));
+            accounts.add(key);
+            if (i < numDelegates) {
+                ds.register(key.toAddress(), Bytes.of("delegate" + i));
+                delegates.add(key);
+            }
+        }
+    }
+
+    private List<Transaction> randomTransactions(Random random, int n) {
+        nonces.clear();
+
+        List<Transaction> txs = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Key from = accounts.get(random.nextInt(accounts.size()));
+            long nonce = random.nextInt(20) == 0 ? random.nextInt(5) : nextNonce(from);
+            Amount value = Amount.of(random.nextInt(20) == 0 ? 1_000_000 : random.nextInt(100), SEM);
+
+            int type = random.nextInt(10);
+            if (type < 6 || delegates.isEmpty()) {
+                byte[] to = accounts.get(random.nextInt(accounts.size())).toAddress();
+                txs.add(transaction(TransactionType.TRANSFER, from, to, value, nonce, Bytes.EMPTY_BYTES));
+            } else if (type < 8) {
+                byte[] to = delegates.get(random.nextInt(delegates.size())).toAddress();
+                txs.add(transaction(TransactionType.VOTE, from, to, value, nonce, Bytes.EMPTY_BYTES));
+            } else if (type < 9) {
+                byte[] to = delegates.get(random.nextInt(delegates.size())).toAddress();
+                txs.add(transaction(TransactionType.UNVOTE, from, to, value, nonce, Bytes.EMPTY_BYTES));
+            } else {
+                byte[] name = Bytes.of("name" + random.nextInt(4));
+                txs.add(transaction(TransactionType.DELEGATE, from, Bytes.EMPTY_ADDRESS,
+                        config.spec().minDelegateBurnAmount(), nonce, name));
+            }
+        }
+        return txs;
+    }
+
+    private long nextNonce(Key key) {
+        return nonces.merge(ByteArray.of(key.toAddress()), 1L, Long::sum) - 1;
+    }
+
+    private Transaction transaction(TransactionType type, Key from, byte[] to, Amount value, long nonce,
+            byte[] data) {
+        return new Transaction(network, type, to, value, config.spec().minTransactionFee(), nonce,
+                TimeUtil.currentTimeMillis(), data).sign(from);
+    }
+
+    private void assertSameExecution(List<Transaction> txs) {
+        AccountState as1 = as.track();
+        DelegateState ds1 = ds.track();
+        List<TransactionResult> serial = exec.execute(txs, as1, ds1, block, 0);
+
+        AccountState as2 = as.track();
+        DelegateState ds2 = ds.track();
+        List<TransactionResult> parallel = exec.executeParallel(txs, as2, ds2, block, 0);
+
+        // same results
+        assertEquals(serial.size(), parallel.size());
+        for (int i = 0; i < serial.size(); i++) {
+            assertEquals(serial.get(i).getCode(), parallel.get(i).getCode());
+        }
+        assertArrayEquals(MerkleUtil.computeResultsRoot(serial), MerkleUtil.computeResultsRoot(parallel));
+
+        // same states
+        for (Key key : accounts) {
+            byte[] address = key.toAddress();
+            assertArrayEquals(as1.getAccount(address).toBytes(), as2.getAccount(address).toBytes());
+            for (Key d : delegates) {
+                assertEquals(ds1.getVote(address, d.toAddress()), ds2.getVote(address, d.toAddress()));
+            }
+        }
+        List<Delegate> delegates1 = ds1.getDelegates();
+        List<Delegate> delegates2 = ds2.getDelegates();
+        assertEquals(delegates1.size(), delegates2.size());
+        for (int i = 0; i < delegates1.size(); i++) {
+            assertArrayEquals(delegates1.get(i).toBytes(), delegates2.get(i).toBytes());
+            assertArrayEquals(delegates1.get(i).getAddress(), delegates2.get(i).getAddress());
+        }
+    }
+}
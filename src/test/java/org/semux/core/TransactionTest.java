@@ -17,6 +17,7 @@ import org.semux.Network;
 import org.semux.config.Config;
 import org.semux.config.Constants;
 import org.semux.config.UnitTestnetConfig;
+import org.semux.crypto.Hash;
 import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
 import org.semux.util.Bytes;
@@ -64,6 +65,19 @@ public class TransactionTest {
         testFields(Transaction.fromBytes(tx.toBytes()));
     }
 
+    @Test
+    public void testSerializationVM() {
+        Transaction tx = new Transaction(network, TransactionType.CALL, to, value, Amount.ZERO, nonce, timestamp,
+                Bytes.random(300), 100_000L, Amount.of(10)).sign(key);
+        Transaction decoded = Transaction.fromBytes(tx.toBytes());
+
+        assertEquals(tx, decoded);
+        assertArrayEquals(tx.getEncoded(), decoded.getEncoded());
+        assertEquals(100_000L, decoded.getGas());
+        assertEquals(Amount.of(10), decoded.getGasPrice());
+        assertTrue(decoded.validate(network));
+    }
+
     @Test
     public void testTransactionSize() {
         Transaction tx = new Transaction(network, type, to, value, fee, nonce, timestamp, Bytes.random(128))
@@ -128,5 +142,7 @@ public class TransactionTest {
         assertEquals(nonce, tx.getNonce());
         assertEquals(timestamp, tx.getTimestamp());
         assertArrayEquals(data, tx.getData());
+        assertArrayEquals(encodedBytes, tx.getEncoded());
+        assertArrayEquals(Hash.h256(encodedBytes), tx.getHash());
     }
 }
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core.state;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.semux.core.Amount;
+import org.semux.db.Database;
+import org.semux.db.DatabaseName;
+import org.semux.rules.TemporaryDatabaseRule;
+import org.semux.util.ByteArray;
+import org.semux.util.Bytes;
+
+public class AccountCacheTest {
+
+    @Rule
+    public TemporaryDatabaseRule temporaryDBFactory = new TemporaryDatabaseRule();
+
+    @Test
+    public void testLoad() {
+        AccountCache cache = new AccountCache();
+        AtomicInteger loads = new AtomicInteger();
+        ByteArray key = ByteArray.of(Bytes.random(21));
+        Account account = new Account(Bytes.random(20), Amount.of(1), Amount.ZERO, 2);
+
+        assertSame(account, cache.getAccount(key, k -> {
+            loads.incrementAndGet();
+            return account;
+        }));
+        assertSame(account, cache.getAccount(key, k -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertEquals(1, loads.get());
+        assertEquals(0.5, cache.getHitRate(), 0.001);
+
+        // absent keys are cached as well
+        ByteArray absent = ByteArray.of(Bytes.random(21));
+        assertNull(cache.getBytes(absent, k -> null));
+        assertNull(cache.getBytes(absent, k -> Bytes.random(1)));
+
+        cache.putBytes(absent, Bytes.of(1));
+        assertArrayEquals(Bytes.of(1), cache.getBytes(absent, k -> null));
+
+        cache.invalidateAll();
+        assertNull(cache.getBytes(absent, k -> null));
+    }
+
+    @Test
+    public void testBounded() {
+        AccountCache cache = new AccountCache(64 * 1024);
+        for (int i = 0; i < 1000; i++) {
+            cache.putBytes(ByteArray.of(Bytes.of(i)), new byte[1024]);
+        }
+        cache.getBytes(ByteArray.of(Bytes.of(0)), k -> null);
+
+        assertTrue(cache.size() <= 64);
+    }
+
+    @Test
+    public void testWriteThrough() {
+        Database accountDB = temporaryDBFactory.getDB(DatabaseName.ACCOUNT);
+        AccountCache cache = new AccountCache();
+        AccountStateImpl root = new AccountStateImpl(accountDB, cache);
+        byte[] address = Bytes.random(20);
+        byte[] code = Bytes.random(32);
+
+        assertEquals(Amount.ZERO, root.getAccount(address).getAvailable());
+
+        AccountState track = root.track();
+        track.adjustAvailable(address, Amount.of(10));
+        track.setCode(address, code);
+        track.commit();
+        root.commit();
+
+        // the committed values are read from the cache, and match the database
+        long hits = cache.getStats().hitCount();
+        assertEquals(Amount.of(10), root.getAccount(address).getAvailable());
+        assertArrayEquals(code, root.getCode(address));
+        assertEquals(hits + 2, cache.getStats().hitCount());
+
+        AccountState reloaded = new AccountStateImpl(accountDB);
+        assertEquals(Amount.of(10), reloaded.getAccount(address).getAvailable());
+        assertArrayEquals(code, reloaded.getCode(address));
+    }
+}
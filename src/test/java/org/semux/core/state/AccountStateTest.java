@@ -8,7 +8,9 @@ package org.semux.core.state;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.semux.core.Amount.ZERO;
 
 import java.util.Map;
@@ -22,6 +24,7 @@ import org.semux.core.Amount;
 import org.semux.core.Blockchain;
 import org.semux.core.BlockchainImpl;
 import org.semux.core.Genesis.Premine;
+import org.semux.db.DatabaseName;
 import org.semux.rules.TemporaryDatabaseRule;
 import org.semux.util.ByteArray;
 import org.semux.util.Bytes;
@@ -148,4 +151,99 @@ public class AccountStateTest {
         state.rollback();
         assertEquals(0, state2.getAccount(address).getNonce());
     }
+
+    @Test
+    public void testAccountOverlay() {
+        byte[] address = Bytes.random(20);
+        state.adjustAvailable(address, Amount.of(10));
+        Account acc = state.getAccount(address);
+
+        // returned accounts are snapshots
+        AccountState track = state.track();
+        track.adjustAvailable(address, Amount.of(5));
+        track.increaseNonce(address);
+        assertEquals(Amount.of(10), acc.getAvailable());
+        assertEquals(Amount.of(10), state.getAccount(address).getAvailable());
+        assertEquals(Amount.of(15), track.getAccount(address).getAvailable());
+
+        // clones are independent
+        AccountState clone = track.clone();
+        clone.adjustAvailable(address, Amount.of(1));
+        assertEquals(Amount.of(15), track.getAccount(address).getAvailable());
+        assertEquals(Amount.of(16), clone.getAccount(address).getAvailable());
+
+        // updates after a commit don't leak into the parent
+        track.commit();
+        track.adjustLocked(address, Amount.of(3));
+        assertEquals(ZERO, state.getAccount(address).getLocked());
+        assertEquals(Amount.of(15), state.getAccount(address).getAvailable());
+        assertEquals(1, state.getAccount(address).getNonce());
+
+        // accounts are serialized on the final commit
+        state.commit();
+        AccountState reloaded = new AccountStateImpl(temporaryDBFactory.getDB(DatabaseName.ACCOUNT));
+        assertEquals(Amount.of(15), reloaded.getAccount(address).getAvailable());
+        assertEquals(1, reloaded.getAccount(address).getNonce());
+        assertTrue(reloaded.exists(address));
+        assertFalse(reloaded.exists(Bytes.random(20)));
+    }
+
+    @Test
+    public void testDeepTracks() {
+        byte[] address = Bytes.random(20);
+        byte[] key = Bytes.random(3);
+        state.adjustAvailable(address, Amount.of(1));
+
+        AccountState track = state;
+        for (int i = 0; i < 100; i++) {
+            track = track.track();
+            track.adjustAvailable(address, Amount.of(1));
+            track.putStorage(address, key, Bytes.of(i));
+        }
+        assertEquals(100, track.getDepth());
+        assertEquals(2, track.getSize());
+        assertEquals(Amount.of(101), track.getAccount(address).getAvailable());
+        assertArrayEquals(Bytes.of(99), track.getStorage(address, key));
+
+        // deletes hide the values of the lower states
+        AccountState top = track.track();
+        top.removeStorage(address, key);
+        assertNull(top.getStorage(address, key));
+        assertArrayEquals(Bytes.of(99), track.getStorage(address, key));
+
+        // the root is read through
+        state.setCode(address, Bytes.of(1));
+        assertArrayEquals(Bytes.of(1), top.getCode(address));
+
+        top.rollback();
+        assertEquals(0, top.getSize());
+        assertArrayEquals(Bytes.of(99), top.getStorage(address, key));
+    }
+
+    @Test
+    public void testCloneSharesUpdates() {
+        byte[] address = Bytes.random(20);
+        AccountState parent = state.track();
+        parent.adjustAvailable(address, Amount.of(10));
+
+        AccountState track = parent.track();
+        track.increaseNonce(address);
+        AccountState clone = track.clone();
+        assertEquals(1, clone.getSize());
+        assertEquals(2, clone.getDepth());
+
+        clone.increaseNonce(address);
+        track.adjustLocked(address, Amount.of(1));
+        assertEquals(2, clone.getAccount(address).getNonce());
+        assertEquals(ZERO, clone.getAccount(address).getLocked());
+        assertEquals(1, track.getAccount(address).getNonce());
+        assertEquals(Amount.of(1), track.getAccount(address).getLocked());
+
+        // a commit makes the parent updates visible again
+        clone.commit();
+        assertEquals(2, parent.getAccount(address).getNonce());
+        assertEquals(Amount.of(10), clone.getAccount(address).getAvailable());
+        assertEquals(2, clone.getAccount(address).getNonce());
+        assertEquals(0, clone.getSize());
+    }
 }
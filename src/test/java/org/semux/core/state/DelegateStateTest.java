@@ -10,6 +10,7 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.semux.core.Amount.ZERO;
 import static org.semux.core.Unit.SEM;
@@ -27,6 +28,7 @@ import org.semux.core.Amount;
 import org.semux.core.Blockchain;
 import org.semux.core.BlockchainImpl;
 import org.semux.crypto.Key;
+import org.semux.db.DatabaseName;
 import org.semux.rules.TemporaryDatabaseRule;
 import org.semux.util.ByteArray;
 import org.semux.util.Bytes;
@@ -89,6 +91,32 @@ public class DelegateStateTest {
         assertEquals(Amount.of(1000 * 1000), list.get(0).getVotes());
     }
 
+    @Test
+    public void testDelegateOverlay() {
+        byte[] delegate = new Key().toAddress();
+        byte[] voter = new Key().toAddress();
+        assertTrue(ds.register(delegate, Bytes.of("overlay")));
+        Delegate d = ds.getDelegateByAddress(delegate);
+
+        DelegateState track = ds.track();
+        assertTrue(track.vote(voter, delegate, Amount.of(10)));
+        assertTrue(track.vote(voter, delegate, Amount.of(5)));
+        assertEquals(ZERO, d.getVotes());
+        assertEquals(ZERO, ds.getDelegateByAddress(delegate).getVotes());
+        assertEquals(Amount.of(15), track.getDelegateByAddress(delegate).getVotes());
+
+        DelegateState clone = track.clone();
+        assertTrue(clone.unvote(voter, delegate, Amount.of(15)));
+        assertEquals(Amount.of(15), track.getDelegateByAddress(delegate).getVotes());
+
+        track.commit();
+        assertEquals(Amount.of(15), ds.getDelegateByAddress(delegate).getVotes());
+        ds.commit();
+        assertEquals(Amount.of(15), ds.getDelegateByName(Bytes.of("overlay")).getVotes());
+        assertEquals(Amount.of(15), chain.getDelegateState().getDelegates().stream()
+                .filter(x -> x.getNameString().equals("overlay")).findFirst().get().getVotes());
+    }
+
     @Test
     public void testMultipleDelegates() {
         byte[] delegate = null;
@@ -156,6 +184,133 @@ public class DelegateStateTest {
         assertEquals(value2, votes.get(new ByteArray(voterKey2.toAddress())));
     }
 
+    @Test
+    public void testRankingOverlay() {
+        byte[] voter = new Key().toAddress();
+        byte[] delegate1 = new Key().toAddress();
+        byte[] delegate2 = new Key().toAddress();
+
+        ds.register(delegate1, Bytes.of("test1"));
+        ds.register(delegate2, Bytes.of("test2"));
+        ds.vote(voter, delegate1, Amount.of(2, SEM));
+        ds.vote(voter, delegate2, Amount.of(1, SEM));
+        ds.commit();
+        assertArrayEquals(delegate1, ds.getDelegates(1).get(0).getAddress());
+
+        // updates of a tracked state are ranked without being committed
+        DelegateState track = ds.track();
+        track.vote(voter, delegate2, Amount.of(2, SEM));
+        assertArrayEquals(delegate2, track.getDelegates(1).get(0).getAddress());
+        assertArrayEquals(delegate1, track.getDelegates(2).get(1).getAddress());
+        assertEquals(delegates.size() + 2, track.getDelegates().size());
+        assertArrayEquals(delegate1, ds.getDelegates(1).get(0).getAddress());
+
+        track.commit();
+        ds.commit();
+        assertArrayEquals(delegate2, ds.getDelegates(1).get(0).getAddress());
+        assertEquals(delegates.size() + 2, ds.getDelegates().size());
+
+        // the database ranking is consistent with a reloaded one
+        DelegateState reloaded = new DelegateStateImpl(chain, temporaryDBFactory.getDB(DatabaseName.DELEGATE),
+                temporaryDBFactory.getDB(DatabaseName.VOTE), temporaryDBFactory.getDB(DatabaseName.VOTER));
+        List<Delegate> expected = reloaded.getDelegates();
+        List<Delegate> actual = ds.getDelegates();
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i).toBytes(), actual.get(i).toBytes());
+        }
+    }
+
+    @Test
+    public void testGetVotesByVoter() {
+        byte[] voter = new Key().toAddress();
+        byte[] delegate1 = new Key().toAddress();
+        byte[] delegate2 = new Key().toAddress();
+        Amount value = Amount.of(2, SEM);
+
+        ds.register(delegate1, Bytes.of("test1"));
+        ds.register(delegate2, Bytes.of("test2"));
+        assertTrue(ds.vote(voter, delegate1, value));
+        assertTrue(ds.vote(voter, delegate2, value));
+        ds.commit();
+
+        // tracked updates override the index, zero votes are dropped
+        DelegateState track = ds.track();
+        assertTrue(track.unvote(voter, delegate2, value));
+        Map<ByteArray, Amount> votes = track.getVotesByVoter(voter);
+        assertEquals(1, votes.size());
+        assertEquals(value, votes.get(ByteArray.of(delegate1)));
+        assertEquals(2, ds.getVotesByVoter(voter).size());
+
+        track.commit();
+        ds.commit();
+        votes = ds.getVotesByVoter(voter);
+        assertEquals(1, votes.size());
+        assertEquals(value, votes.get(ByteArray.of(delegate1)));
+        assertTrue(ds.getVotesByVoter(delegate1).isEmpty());
+    }
+
+    @Test
+    public void testBackfillVoterIndex() {
+        byte[] voter = new Key().toAddress();
+        byte[] delegate = new Key().toAddress();
+        Amount value = Amount.of(2, SEM);
+
+        // votes written without the voter index
+        ds.register(delegate, Bytes.of("test"));
+        ds.commit();
+        temporaryDBFactory.getDB(DatabaseName.VOTE).put(Bytes.merge(delegate, voter), Bytes.of(value.toLong()));
+        assertTrue(ds.getVotesByVoter(voter).isEmpty());
+
+        DelegateStateImpl backfilled = new DelegateStateImpl(chain, temporaryDBFactory.getDB(DatabaseName.DELEGATE),
+                temporaryDBFactory.getDB(DatabaseName.VOTE), temporaryDBFactory.getDB(DatabaseName.VOTER));
+        assertEquals(1, backfilled.backfillVoterIndex());
+        assertEquals(value, ds.getVotesByVoter(voter).get(ByteArray.of(delegate)));
+    }
+
+    @Test
+    public void testCopyRanking() {
+        DelegateStateImpl root = (DelegateStateImpl) ds;
+        int n = root.getDelegates().size();
+        DelegateRanking copy = root.copyRanking();
+        assertNotNull(copy);
+
+        byte[] address = new Key().toAddress();
+        assertTrue(ds.register(address, Bytes.of("copy")));
+        ds.commit();
+        assertEquals(n + 1, ds.getDelegates().size());
+
+        // the copy isn't affected by the later commits, nor reloaded
+        DelegateState snapshot = new DelegateStateImpl(chain, temporaryDBFactory.getDB(DatabaseName.DELEGATE),
+                temporaryDBFactory.getDB(DatabaseName.VOTE), temporaryDBFactory.getDB(DatabaseName.VOTER), copy);
+        ((DelegateStateImpl) snapshot).invalidateRanking();
+        assertEquals(n, snapshot.getDelegates().size());
+    }
+
+    @Test
+    public void testDeepTracks() {
+        byte[] delegate = new Key().toAddress();
+        byte[] voter = new Key().toAddress();
+
+        DelegateState track = ds.track();
+        assertTrue(track.register(delegate, Bytes.of("deep")));
+        for (int i = 0; i < 50; i++) {
+            track = track.track();
+            assertTrue(track.vote(voter, delegate, Amount.of(1)));
+        }
+        assertEquals(51, track.getDepth());
+        assertEquals(2, track.getSize());
+        assertEquals(Amount.of(50), track.getVote(voter, delegate));
+        assertEquals(Amount.of(50), track.getDelegateByName(Bytes.of("deep")).getVotes());
+        assertEquals(Amount.of(50), track.getVotesByVoter(voter).get(ByteArray.of(delegate)));
+        assertTrue(track.getDelegates().stream().anyMatch(d -> d.getNameString().equals("deep")));
+
+        DelegateState clone = track.clone();
+        assertTrue(clone.unvote(voter, delegate, Amount.of(50)));
+        assertEquals(ZERO, clone.getVote(voter, delegate));
+        assertEquals(Amount.of(50), track.getVote(voter, delegate));
+        assertNull(ds.getDelegateByName(Bytes.of("deep")));
+    }
+
     @After
     public void rollback() {
         ds.rollback();
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.crypto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.semux.crypto.Key.Signature;
+import org.semux.util.Bytes;
+
+import net.i2p.crypto.eddsa.EdDSAPrivateKey;
+import net.i2p.crypto.eddsa.math.Curve;
+import net.i2p.crypto.eddsa.math.GroupElement;
+import net.i2p.crypto.eddsa.math.GroupElement.Representation;
+import net.i2p.crypto.eddsa.spec.EdDSANamedCurveTable;
+import net.i2p.crypto.eddsa.spec.EdDSAParameterSpec;
+import net.i2p.crypto.eddsa.spec.EdDSAPrivateKeySpec;
+
+public class Ed25519BatchTest {
+
+    private static final Curve CURVE = EdDSANamedCurveTable.getByName("ed25519").getCurve();
+    private static final BigInteger L = BigInteger.ONE.shiftLeft(252)
+            .add(new BigInteger("27742317777372353535851937790883648493"));
+    private static final String ORDER2 = "ecffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff7f";
+
+    private List<byte[]> messages = new ArrayList<>();
+    private List<Signature> signatures = new ArrayList<>();
+
+    private void sign(int n) {
+        for (int i = 0; i < n; i++) {
+            Key key = new Key();
+            byte[] message = Bytes.random(32);
+            messages.add(message);
+            signatures.add(key.sign(message));
+        }
+    }
+
+    @Test
+    public void testVerify() {
+        assertTrue(Ed25519Batch.verify(messages, signatures));
+
+        sign(1);
+        assertTrue(Ed25519Batch.verify(messages, signatures));
+
+        sign(63);
+        assertTrue(Ed25519Batch.verify(messages, signatures));
+    }
+
+    @Test
+    public void testSameMessage() {
+        byte[] message = Bytes.random(64);
+        for (int i = 0; i < 10; i++) {
+            signatures.add(new Key().sign(message));
+        }
+
+        assertTrue(Ed25519Batch.verify(Collections.nCopies(signatures.size(), message), signatures));
+    }
+
+    @Test
+    public void testInvalidMessage() {
+        sign(10);
+        messages.set(5, Bytes.random(32));
+        assertFalse(Ed25519Batch.verify(messages, signatures));
+    }
+
+    @Test
+    public void testInvalidSignature() {
+        sign(10);
+        byte[] s = signatures.get(3).getS().clone();
+        s[40] ^= 1;
+        signatures.set(3, new Signature(s, signatures.get(3).getA()));
+        assertFalse(Ed25519Batch.verify(messages, signatures));
+    }
+
+    @Test
+    public void testInvalidPublicKey() {
+        sign(10);
+        signatures.set(7, new Signature(signatures.get(7).getS(), new Key().sign(Bytes.random(32)).getA()));
+        assertFalse(Ed25519Batch.verify(messages, signatures));
+    }
+
+    @Test
+    public void testNonCanonicalScalar() {
+        sign(3);
+        byte[] s = signatures.get(0).getS().clone();
+        for (int i = 32; i < 64; i++) {
+            s[i] = (byte) 0xff;
+        }
+        signatures.set(0, new Signature(s, signatures.get(0).getA()));
+        assertFalse(Ed25519Batch.verify(messages, signatures));
+    }
+
+    @Test
+    public void testTorsionR() {
+        // R + T, where T = (0, -1) is the point of order 2
+        GroupElement t = new GroupElement(CURVE, Hex.decode(ORDER2));
+        assertFalse(Ed25519Batch.isTorsionFree(t));
+
+        for (int i = 0; i < 32; i++) {
+            messages.clear();
+            signatures.clear();
+            sign(2);
+            byte[] s = signatures.get(1).getS().clone();
+            GroupElement r = new GroupElement(CURVE, Arrays.copyOfRange(s, 0, 32));
+            assertTrue(Ed25519Batch.isTorsionFree(r));
+            System.arraycopy(r.add(t.toCached()).toP2().toByteArray(), 0, s, 0, 32);
+            signatures.set(1, new Signature(s, signatures.get(1).getA()));
+
+            assertFalse(Key.verify(messages.get(1), signatures.get(1)));
+            assertFalse(Ed25519Batch.verify(messages, signatures));
+        }
+    }
+
+    @Test
+    public void testIdentityR() throws NoSuchAlgorithmException {
+        // a valid signature with R = 0, which the single verification accepts
+        EdDSAParameterSpec spec = EdDSANamedCurveTable.getByName("ed25519");
+        EdDSAPrivateKey sk = new EdDSAPrivateKey(new EdDSAPrivateKeySpec(Bytes.random(32), spec));
+        byte[] r = CURVE.getZero(Representation.P3).toByteArray();
+        byte[] message = Bytes.random(32);
+
+        MessageDigest sha512 = MessageDigest.getInstance(spec.getHashAlgorithm());
+        sha512.update(r);
+        sha512.update(sk.getAbyte());
+        sha512.update(message);
+        BigInteger h = toBigInteger(sha512.digest()).mod(L);
+        byte[] s = toBytes(h.multiply(toBigInteger(sk.geta())).mod(L));
+
+        sign(3);
+        messages.add(message);
+        signatures.add(new Signature(Bytes.merge(r, s), sk.getAbyte()));
+        assertTrue(Key.verify(message, signatures.get(3)));
+        assertTrue(Ed25519Batch.verify(messages, signatures));
+
+        // the same R, encoded with y = p + 1
+        byte[] nonCanonical = Hex.decode("eeffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff7f");
+        signatures.set(3, new Signature(Bytes.merge(nonCanonical, s), sk.getAbyte()));
+        assertFalse(Key.verify(message, signatures.get(3)));
+        assertFalse(Ed25519Batch.verify(messages, signatures));
+    }
+
+    @Test
+    public void testSlide() {
+        for (int n = 0; n < 100; n++) {
+            byte[] a = Bytes.random(32);
+            a[31] &= 0x7f;
+
+            byte[] digits = Ed25519Batch.slide(a);
+            BigInteger sum = BigInteger.ZERO;
+            for (int i = 0; i < digits.length; i++) {
+                assertTrue(digits[i] == 0 || (digits[i] % 2 != 0 && Math.abs(digits[i]) <= 15));
+                sum = sum.add(BigInteger.valueOf(digits[i]).shiftLeft(i));
+            }
+
+            byte[] be = new byte[32];
+            for (int i = 0; i < 32; i++) {
+                be[i] = a[31 - i];
+            }
+            assertEquals(new BigInteger(1, be), sum);
+        }
+    }
+
+    private static BigInteger toBigInteger(byte[] le) {
+        byte[] be = new byte[le.length];
+        for (int i = 0; i < le.length; i++) {
+            be[i] = le[le.length - 1 - i];
+        }
+        return new BigInteger(1, be);
+    }
+
+    private static byte[] toBytes(BigInteger n) {
+        byte[] be = n.toByteArray();
+        byte[] le = new byte[32];
+        for (int i = 0; i < be.length && i < 32; i++) {
+            le[i] = be[be.length - 1 - i];
+        }
+        return le;
+    }
+}
@@ -9,6 +9,7 @@ package org.semux.crypto;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.math.BigInteger;
@@ -123,6 +124,20 @@ public class KeyTest {
         assertFalse(Key.verify(hash, Bytes.random(200)));
     }
 
+    @Test
+    public void testSignatureSigner() {
+        Key key = new Key();
+        Signature sig = Signature.fromBytes(key.sign(Bytes.of("test")).toBytes());
+
+        assertArrayEquals(key.getPublicKey(), sig.getPublicKey());
+        assertArrayEquals(key.toAddress(), sig.getAddress());
+        assertEquals(key.toAddressString(), sig.getAddressString());
+
+        // derived once, then shared
+        assertSame(sig.getAddress(), sig.getAddress());
+        assertSame(sig.getAddressString(), sig.getAddressString());
+    }
+
     @Test
     public void testSignatureSize() {
         Key key = new Key();
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.crypto.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.semux.crypto.Key;
+import org.semux.crypto.Key.Signature;
+import org.semux.util.Bytes;
+
+public class SignatureCacheTest {
+
+    @Before
+    public void setUp() {
+        SignatureCache.clear();
+    }
+
+    @Test
+    public void testVerify() {
+        Key key = new Key();
+        byte[] message = Bytes.random(32);
+        Signature sig = key.sign(message);
+
+        assertFalse(SignatureCache.contains(message, sig));
+        assertTrue(SignatureCache.verify(message, sig));
+        assertTrue(SignatureCache.contains(message, sig));
+        assertTrue(SignatureCache.verify(message, sig));
+        assertEquals(1, SignatureCache.getHits());
+        assertEquals(1, SignatureCache.getMisses());
+        assertEquals(0.5, SignatureCache.getHitRate(), 0.001);
+    }
+
+    @Test
+    public void testInvalidNotCached() {
+        Key key = new Key();
+        byte[] message = Bytes.random(32);
+        Signature sig = key.sign(message);
+        byte[] other = Bytes.random(32);
+
+        assertFalse(SignatureCache.verify(other, sig));
+        assertFalse(SignatureCache.contains(other, sig));
+        assertFalse(SignatureCache.verify(other, sig));
+        assertEquals(0, SignatureCache.getHits());
+    }
+
+    @Test
+    public void testVerifyBatch() {
+        Key key = new Key();
+        List<byte[]> messages = new ArrayList<>();
+        List<Signature> signatures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            byte[] message = Bytes.random(32);
+            messages.add(message);
+            signatures.add(key.sign(message));
+        }
+
+        assertTrue(SignatureCache.verify(messages.get(0), signatures.get(0)));
+        assertTrue(SignatureCache.verifyBatch(messages, signatures));
+        assertEquals(1, SignatureCache.getHits());
+        for (int i = 0; i < messages.size(); i++) {
+            assertTrue(SignatureCache.contains(messages.get(i), signatures.get(i)));
+        }
+
+        // a rejected batch isn't cached
+        byte[] message = Bytes.random(32);
+        List<byte[]> invalidMessages = Arrays.asList(message, Bytes.random(32), Bytes.random(32));
+        List<Signature> invalidSignatures = Arrays.asList(key.sign(message), signatures.get(1), signatures.get(2));
+        assertFalse(SignatureCache.verifyBatch(invalidMessages, invalidSignatures));
+        assertFalse(SignatureCache.contains(message, invalidSignatures.get(0)));
+    }
+}
@@ -7,18 +7,23 @@
 package org.semux.db;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map.Entry;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.semux.config.Constants;
 import org.semux.db.LeveldbDatabase.LeveldbFactory;
 import org.semux.util.Bytes;
@@ -26,6 +31,9 @@ import org.semux.util.ClosableIterator;
 
 public class LeveldbDatabaseTest {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private byte[] key = Bytes.of("key");
     private byte[] value = Bytes.of("value");
 
@@ -76,6 +84,83 @@ public class LeveldbDatabaseTest {
         }
     }
 
+    @Test
+    public void testBatch() {
+        LeveldbDatabase db = openDatabase();
+        try {
+            db.put(Bytes.of("a"), Bytes.of("1"));
+            db.put(Bytes.of("c"), Bytes.of("3"));
+
+            db.startBatch();
+            db.delete(Bytes.of("a"));
+            db.put(Bytes.of("b"), Bytes.of("2"));
+            db.put(Bytes.of("c"), Bytes.of("4"));
+
+            // buffered writes are visible
+            assertNull(db.get(Bytes.of("a")));
+            assertArrayEquals(Bytes.of("2"), db.get(Bytes.of("b")));
+            ClosableIterator<Entry<byte[], byte[]>> itr = db.iterator();
+            assertArrayEquals(Bytes.of("b"), itr.next().getKey());
+            Entry<byte[], byte[]> e = itr.next();
+            assertArrayEquals(Bytes.of("c"), e.getKey());
+            assertArrayEquals(Bytes.of("4"), e.getValue());
+            assertFalse(itr.hasNext());
+            itr.close();
+
+            db.commitBatch(true);
+            assertNull(db.get(Bytes.of("a")));
+            assertArrayEquals(Bytes.of("2"), db.get(Bytes.of("b")));
+            assertArrayEquals(Bytes.of("4"), db.get(Bytes.of("c")));
+
+            db.startBatch();
+            db.put(Bytes.of("d"), Bytes.of("5"));
+            db.abortBatch();
+            assertNull(db.get(Bytes.of("d")));
+        } finally {
+            db.destroy();
+        }
+    }
+
+    @Test
+    public void testSnapshot() {
+        LeveldbDatabase db = openDatabase();
+        try {
+            db.put(Bytes.of("a"), Bytes.of("1"));
+            db.put(Bytes.of("b"), Bytes.of("2"));
+
+            db.startBatch();
+            db.put(Bytes.of("c"), Bytes.of("3"));
+            Database snapshot = db.snapshot();
+            db.commitBatch(true);
+            db.delete(Bytes.of("a"));
+            db.put(Bytes.of("b"), Bytes.of("4"));
+
+            // neither the buffered nor the later writes are visible
+            assertArrayEquals(Bytes.of("1"), snapshot.get(Bytes.of("a")));
+            assertArrayEquals(Bytes.of("2"), snapshot.get(Bytes.of("b")));
+            assertNull(snapshot.get(Bytes.of("c")));
+            ClosableIterator<Entry<byte[], byte[]>> itr = snapshot.iterator();
+            assertArrayEquals(Bytes.of("a"), itr.next().getKey());
+            assertArrayEquals(Bytes.of("b"), itr.next().getKey());
+            assertFalse(itr.hasNext());
+            itr.close();
+
+            try {
+                snapshot.put(Bytes.of("d"), Bytes.of("5"));
+                fail("Snapshots should be read-only");
+            } catch (UnsupportedOperationException e) {
+                // expected
+            }
+            snapshot.close();
+            snapshot.close();
+
+            assertNull(db.get(Bytes.of("a")));
+            assertArrayEquals(Bytes.of("3"), db.get(Bytes.of("c")));
+        } finally {
+            db.destroy();
+        }
+    }
+
     @Test
     public void testIterator() {
         LeveldbDatabase db = openDatabase();
@@ -106,6 +191,58 @@ public class LeveldbDatabaseTest {
         // NOTE: empty databases are created
     }
 
+    @Test
+    public void testFactoryCommitBatch() throws IOException {
+        File dataDir = temporaryFolder.newFolder("database");
+        LeveldbFactory factory = new LeveldbFactory(dataDir);
+        try {
+            factory.startBatch();
+            factory.getDB(DatabaseName.INDEX).put(key, value);
+            factory.getDB(DatabaseName.ACCOUNT).put(key, value);
+            factory.commitBatch();
+            assertArrayEquals(value, factory.getDB(DatabaseName.INDEX).get(key));
+            assertArrayEquals(value, factory.getDB(DatabaseName.ACCOUNT).get(key));
+
+            // replaying a complete commit changes nothing
+            assertEquals(1, factory.recoverBatch());
+            assertArrayEquals(value, factory.getDB(DatabaseName.ACCOUNT).get(key));
+            assertEquals(0, factory.recoverBatch());
+        } finally {
+            factory.close();
+        }
+    }
+
+    @Test
+    public void testFactoryRecoverBatch() throws IOException {
+        File dataDir = temporaryFolder.newFolder("database");
+        LeveldbFactory factory = new LeveldbFactory(dataDir);
+        try {
+            factory.startBatch();
+            factory.getDB(DatabaseName.ACCOUNT).put(key, value);
+            factory.commitBatch();
+
+            // a commit interrupted after the index database is written
+            byte[] key2 = Bytes.of("key2");
+            factory.startBatch();
+            factory.getDB(DatabaseName.INDEX).put(key2, value);
+            factory.getDB(DatabaseName.BLOCK).put(key2, value);
+            factory.getDB(DatabaseName.ACCOUNT).delete(key);
+            RedoLog.append(factory, RedoLog.getRange(factory.getDB(DatabaseName.INDEX)));
+            factory.abortBatch();
+            factory.close();
+
+            factory = new LeveldbFactory(dataDir);
+            assertNull(factory.getDB(DatabaseName.BLOCK).get(key2));
+            assertEquals(2, factory.recoverBatch());
+            assertArrayEquals(value, factory.getDB(DatabaseName.INDEX).get(key2));
+            assertArrayEquals(value, factory.getDB(DatabaseName.BLOCK).get(key2));
+            assertNull(factory.getDB(DatabaseName.ACCOUNT).get(key));
+            assertEquals(0, factory.recoverBatch());
+        } finally {
+            factory.close();
+        }
+    }
+
     @Test
     public void testClose() {
         LeveldbDatabase db = openDatabase();
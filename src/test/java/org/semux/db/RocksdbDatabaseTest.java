@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semux.db.LeveldbDatabase.LeveldbFactory;
+import org.semux.db.RocksdbDatabase.RocksdbFactory;
+import org.semux.util.Bytes;
+import org.semux.util.ClosableIterator;
+
+public class RocksdbDatabaseTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private RocksdbFactory factory;
+
+    @Before
+    public void setUp() {
+        factory = new RocksdbFactory(temporaryFolder.getRoot());
+    }
+
+    @After
+    public void tearDown() {
+        factory.close();
+    }
+
+    @Test
+    public void testGetAndPut() {
+        Database db = factory.getDB(DatabaseName.INDEX);
+        assertNull(db.get(Bytes.of("key")));
+        db.put(Bytes.of("key"), Bytes.of("value"));
+        assertArrayEquals(Bytes.of("value"), db.get(Bytes.of("key")));
+
+        // column families are independent
+        assertNull(factory.getDB(DatabaseName.BLOCK).get(Bytes.of("key")));
+    }
+
+    @Test
+    public void testUpdateBatch() {
+        Database db = factory.getDB(DatabaseName.ACCOUNT);
+        db.put(Bytes.of("a"), Bytes.of("1"));
+
+        List<Pair<byte[], byte[]>> update = new ArrayList<>();
+        update.add(Pair.of(Bytes.of("a"), null));
+        update.add(Pair.of(Bytes.of("b"), Bytes.of("2")));
+        db.updateBatch(update);
+
+        assertNull(db.get(Bytes.of("a")));
+        assertArrayEquals(Bytes.of("2"), db.get(Bytes.of("b")));
+    }
+
+    @Test
+    public void testIterator() {
+        Database db = factory.getDB(DatabaseName.VOTE);
+        db.put(Bytes.of("a"), Bytes.of("1"));
+        db.put(Bytes.of("b"), Bytes.of("2"));
+        db.put(Bytes.of("c"), Bytes.of("3"));
+
+        ClosableIterator<Entry<byte[], byte[]>> itr = db.iterator(Bytes.of("a1"));
+        assertTrue(itr.hasNext());
+        assertArrayEquals(Bytes.of("b"), itr.next().getKey());
+        assertTrue(itr.hasNext());
+        assertArrayEquals(Bytes.of("c"), itr.next().getKey());
+        assertFalse(itr.hasNext());
+        itr.close();
+    }
+
+    @Test
+    public void testFactoryBatch() {
+        factory.startBatch();
+        factory.getDB(DatabaseName.INDEX).put(Bytes.of("a"), Bytes.of("1"));
+        factory.getDB(DatabaseName.BLOCK).put(Bytes.of("b"), Bytes.of("2"));
+        assertArrayEquals(Bytes.of("1"), factory.getDB(DatabaseName.INDEX).get(Bytes.of("a")));
+        factory.commitBatch();
+
+        assertArrayEquals(Bytes.of("1"), factory.getDB(DatabaseName.INDEX).get(Bytes.of("a")));
+        assertArrayEquals(Bytes.of("2"), factory.getDB(DatabaseName.BLOCK).get(Bytes.of("b")));
+
+        factory.startBatch();
+        factory.getDB(DatabaseName.INDEX).put(Bytes.of("c"), Bytes.of("3"));
+        factory.abortBatch();
+        assertNull(factory.getDB(DatabaseName.INDEX).get(Bytes.of("c")));
+    }
+
+    @Test
+    public void testFactorySnapshot() {
+        factory.getDB(DatabaseName.INDEX).put(Bytes.of("a"), Bytes.of("1"));
+
+        factory.startBatch();
+        factory.getDB(DatabaseName.BLOCK).put(Bytes.of("b"), Bytes.of("2"));
+        DatabaseFactory snapshot = factory.snapshot();
+        factory.commitBatch();
+        factory.getDB(DatabaseName.INDEX).put(Bytes.of("a"), Bytes.of("3"));
+
+        assertArrayEquals(Bytes.of("1"), snapshot.getDB(DatabaseName.INDEX).get(Bytes.of("a")));
+        assertNull(snapshot.getDB(DatabaseName.BLOCK).get(Bytes.of("b")));
+        ClosableIterator<Entry<byte[], byte[]>> itr = snapshot.getDB(DatabaseName.INDEX).iterator();
+        assertArrayEquals(Bytes.of("1"), itr.next().getValue());
+        assertFalse(itr.hasNext());
+        itr.close();
+        snapshot.close();
+
+        assertArrayEquals(Bytes.of("3"), factory.getDB(DatabaseName.INDEX).get(Bytes.of("a")));
+        assertArrayEquals(Bytes.of("2"), factory.getDB(DatabaseName.BLOCK).get(Bytes.of("b")));
+    }
+
+    @Test
+    public void testMigrateFromLeveldb() throws IOException {
+        factory.close();
+
+        File dataDir = temporaryFolder.newFolder("leveldb");
+        LeveldbFactory leveldb = new LeveldbFactory(dataDir);
+        for (DatabaseName name : DatabaseName.values()) {
+            leveldb.getDB(name).put(Bytes.of(name.toString()), Bytes.of("value"));
+        }
+        leveldb.close();
+
+        RocksdbFactory.migrateFromLeveldb(dataDir);
+
+        factory = new RocksdbFactory(dataDir);
+        for (DatabaseName name : DatabaseName.values()) {
+            assertNotNull(factory.getDB(name));
+            assertArrayEquals(Bytes.of("value"), factory.getDB(name).get(Bytes.of(name.toString())));
+        }
+        assertTrue(new File(dataDir, "index").exists());
+    }
+}
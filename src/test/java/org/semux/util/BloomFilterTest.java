@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class BloomFilterTest {
+
+    @Test
+    public void testNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10_000);
+        List<byte[]> keys = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            byte[] key = Bytes.random(32);
+            keys.add(key);
+            filter.add(key);
+        }
+
+        for (byte[] key : keys) {
+            assertTrue(filter.mightContain(key));
+        }
+        assertEquals(10_000, filter.getCount());
+        assertFalse(filter.isSaturated());
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+        BloomFilter filter = new BloomFilter(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(Bytes.random(32));
+        }
+
+        int positives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(Bytes.random(32))) {
+                positives++;
+            }
+        }
+        assertTrue("false positive rate too high: " + positives, positives < 5_000);
+    }
+
+    @Test
+    public void testSerialization() throws IOException {
+        BloomFilter filter = new BloomFilter(1_000);
+        byte[] key = Bytes.random(32);
+        filter.add(key);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        filter.writeTo(new DataOutputStream(out));
+        BloomFilter filter2 = BloomFilter.readFrom(new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+
+        assertTrue(filter2.mightContain(key));
+        assertEquals(filter.getCapacity(), filter2.getCapacity());
+        assertEquals(1, filter2.getCount());
+    }
+}
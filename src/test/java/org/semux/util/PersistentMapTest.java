@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2017-2020 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PersistentMapTest {
+
+    @Test
+    public void testPutAndGet() {
+        PersistentMap<ByteArray, byte[]> empty = PersistentMap.empty();
+        ByteArray key = ByteArray.of(Bytes.of(1));
+
+        PersistentMap<ByteArray, byte[]> map = empty.put(key, Bytes.of(2));
+        assertEquals(1, map.size());
+        assertEquals(Bytes.of(2)[0], map.get(key)[0]);
+
+        // updates don't affect the previous versions
+        PersistentMap<ByteArray, byte[]> deleted = map.put(key, null);
+        assertTrue(empty.isEmpty());
+        assertFalse(empty.containsKey(key));
+        assertEquals(1, map.get(key).length);
+        assertEquals(1, deleted.size());
+        assertTrue(deleted.containsKey(key));
+        assertNull(deleted.getOrDefault(key, Bytes.EMPTY_BYTES));
+    }
+
+    @Test
+    public void testRandom() {
+        Random r = new Random(0);
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentMap<Integer, Integer> map = PersistentMap.empty();
+
+        for (int i = 0; i < 10_000; i++) {
+            int k = r.nextInt(5_000);
+            expected.put(k, i);
+            map = map.put(k, i);
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Integer, Integer> e : expected.entrySet()) {
+            assertEquals(e.getValue(), map.get(e.getKey()));
+        }
+        Map<Integer, Integer> iterated = new HashMap<>();
+        map.forEach(iterated::put);
+        assertEquals(expected, iterated);
+    }
+
+    @Test
+    public void testHashCollisions() {
+        PersistentMap<Colliding, Integer> map = PersistentMap.empty();
+        for (int i = 0; i < 100; i++) {
+            map = map.put(new Colliding(i), i);
+        }
+        map = map.put(new Colliding(0), -1);
+
+        assertEquals(100, map.size());
+        assertEquals(-1, (int) map.get(new Colliding(0)));
+        for (int i = 1; i < 100; i++) {
+            assertEquals(i, (int) map.get(new Colliding(i)));
+        }
+        assertFalse(map.containsKey(new Colliding(100)));
+    }
+
+    @Test
+    public void testPutAll() {
+        PersistentMap<Integer, Integer> a = PersistentMap.<Integer, Integer> empty().put(1, 1).put(2, 2);
+        PersistentMap<Integer, Integer> b = PersistentMap.<Integer, Integer> empty().put(2, 3).put(4, 4);
+
+        PersistentMap<Integer, Integer> merged = a.putAll(b);
+        assertEquals(3, merged.size());
+        assertEquals(1, (int) merged.get(1));
+        assertEquals(3, (int) merged.get(2));
+        assertEquals(4, (int) merged.get(4));
+        assertEquals(2, (int) a.get(2));
+    }
+
+    private static class Colliding {
+        final int id;
+
+        Colliding(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id % 3;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return (o instanceof Colliding) && ((Colliding) o).id == id;
+        }
+    }
+}
@@ -22,4 +22,33 @@ public class SimpleEncoderTest {
 
         assertThat(enc.toBytes(), equalTo(Bytes.merge(append, Bytes.of((byte) 1), Bytes.of("s"))));
     }
+
+    @Test
+    public void testSizeOf() {
+        for (int len : new int[] { 0, 1, 127, 128, 16383, 16384, 100_000 }) {
+            byte[] bytes = new byte[len];
+
+            SimpleEncoder enc = new SimpleEncoder(SimpleEncoder.sizeOf(bytes));
+            enc.writeBytes(bytes);
+            byte[] encoded = enc.toBytes();
+
+            assertThat(encoded.length, equalTo(SimpleEncoder.sizeOf(bytes)));
+            assertThat(new SimpleDecoder(encoded).readBytes(), equalTo(bytes));
+        }
+    }
+
+    @Test
+    public void testGrow() {
+        SimpleEncoder enc = new SimpleEncoder(1);
+        enc.writeLong(Long.MAX_VALUE);
+        enc.writeString("hello");
+        byte[] first = enc.toBytes();
+        enc.writeInt(7);
+
+        SimpleDecoder dec = new SimpleDecoder(enc.toBytes());
+        assertThat(dec.readLong(), equalTo(Long.MAX_VALUE));
+        assertThat(dec.readString(), equalTo("hello"));
+        assertThat(dec.readInt(), equalTo(7));
+        assertThat(first.length, equalTo(8 + 1 + 5));
+    }
 }